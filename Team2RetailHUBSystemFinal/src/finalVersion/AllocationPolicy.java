@@ -0,0 +1,10 @@
+package finalVersion;
+
+// Με ποια σειρά μοιράζεται το διαθέσιμο απόθεμα ενός προϊόντος στα είδη που το περιμένουν (βλ. BackorderQueue)
+public enum AllocationPolicy {
+    FIFO,                 // Με τη σειρά που μπήκαν τα είδη στην ουρά, όσο περισσότερο γίνεται στο καθένα
+    OLDEST_FIRST,         // Πρώτα οι παλαιότερες παραγγελίες (Order.getTimestamp)
+    CUSTOMER_PRIORITY,    // Πρώτα οι πελάτες με μεγαλύτερη προτεραιότητα (βλ. OrderManager.setCustomerPriority)
+    SMALLEST_ORDER_FIRST, // Πρώτα οι παραγγελίες με τα λιγότερα ζητούμενα τεμάχια συνολικά (σταθερό μέγεθος, όχι τα εκκρεμή)
+    PRO_RATA              // Κάθε είδος παίρνει μερίδιο ανάλογο με την εκκρεμή ποσότητά του
+}
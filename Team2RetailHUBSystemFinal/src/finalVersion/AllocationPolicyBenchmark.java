@@ -0,0 +1,64 @@
+package finalVersion;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+// Σύγκριση των πολιτικών κατανομής backorder σε μεγάλο βιβλίο εκκρεμών παραγγελιών.
+// Για κάθε πολιτική δημιουργούνται οι ίδιες παραγγελίες (μία γραμμή η καθεμία, χωρίς απόθεμα, άρα όλες σε backorder)
+// και το απόθεμα που λείπει φτάνει σε ισόποσες αναπληρώσεις. Μετράμε τον χρόνο της κατανομής και πόσες
+// παραγγελίες ολοκληρώθηκαν. Εκτέλεση: java finalVersion.AllocationPolicyBenchmark [γραμμές] [προϊόντα] [αναπληρώσεις]
+class AllocationPolicyBenchmark {
+    private static final int CUSTOMERS = 100;
+
+    public static void main(String[] args) {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int productCount = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        EventLog.setLevel(EventLog.Level.WARN); // Χωρίς μήνυμα ανά παραγγελία και ανά κατανομή
+
+        System.out.println("--- Πολιτικές κατανομής: " + lines + " γραμμές backorder, " + productCount + " προϊόντα, " +
+                           rounds + " αναπληρώσεις ---");
+        for (AllocationPolicy policy : AllocationPolicy.values()) {
+            InventoryManager inventory = new InventoryManager();
+            CustomerManager customers = new CustomerManager();
+            OrderManager orders = new OrderManager(inventory);
+            List<Product> products = new ArrayList<>(productCount);
+            for (int code = 1; code <= productCount; code++) {
+                products.add(new Product(code, "Προϊόν " + code, 1.0, 0));
+            }
+            inventory.addProducts(products);
+            List<Customer> buyers = new ArrayList<>(CUSTOMERS);
+            for (int i = 0; i < CUSTOMERS; i++) {
+                buyers.add(customers.addCustomer("Πελάτης " + i, "c" + i + "@example.gr", "69" + i, "Οδός " + i, 30));
+            }
+            orders.setCustomerPriority(customer -> customer.getId() % 7);
+            orders.setAllocationPolicy(policy);
+
+            Random random = new Random(5); // Ίδιο βιβλίο παραγγελιών για όλες τις πολιτικές
+            long demand = 0;
+            for (int i = 0; i < lines; i++) {
+                int qty = 1 + random.nextInt(9);
+                demand += qty;
+                Product product = products.get(random.nextInt(productCount));
+                orders.createOrder(buyers.get(random.nextInt(CUSTOMERS)),
+                                   Collections.singletonList(new OrderItem(product, qty)), true);
+            }
+
+            int restock = (int) (demand / productCount / rounds);
+            long allocated = 0;
+            long start = System.nanoTime();
+            for (int round = 0; round < rounds; round++) {
+                for (Product product : products) {
+                    product.increaseQuantity(restock);
+                    allocated += orders.allocateBackorderedItems(product.getCode());
+                }
+            }
+            long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            int completed = orders.countByStatus(OrderStatus.READY_TO_BE_DELIVERED);
+            System.out.printf("%-21s %,6d ms, κατανεμήθηκαν %,d τεμάχια, ολοκληρώθηκαν %,d παραγγελίες (%,.0f/s)%n",
+                              policy, millis, allocated, completed, completed * 1000.0 / millis);
+        }
+    }
+}
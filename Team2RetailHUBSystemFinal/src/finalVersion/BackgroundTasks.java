@@ -0,0 +1,167 @@
+package finalVersion;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Runs backend operations off the Event Dispatch Thread and hands their results back to it.
+ * <p>
+ * Operations run one at a time, in submission order, on a single background thread, so they never race
+ * each other and the window stays responsive while they run. The status bar shows the running operation,
+ * its progress and a Cancel button; cancellation is cooperative through {@link TaskControl}.
+ */
+class BackgroundTasks {
+
+    /** Backend work; runs on the background thread. */
+    interface Work<T> {
+        T run(TaskControl control) throws Exception;
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "backend-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final JPanel statusBar = new JPanel(new BorderLayout(10, 0));
+    private final JLabel statusLabel = new JLabel("Ready");
+    private final JProgressBar progressBar = new JProgressBar(0, 100);
+    private final JButton cancelButton = new JButton("Cancel");
+    private final Consumer<String> errorReporter;
+
+    private int pending;              // Submitted but not finished (EDT only)
+    private Control running;          // Control of the operation currently running (EDT only)
+
+    BackgroundTasks(Consumer<String> errorReporter) {
+        this.errorReporter = errorReporter;
+        progressBar.setStringPainted(true);
+        progressBar.setVisible(false);
+        cancelButton.setEnabled(false);
+        cancelButton.addActionListener(e -> {
+            if (running != null) {
+                running.cancelled.set(true);
+                statusLabel.setText(running.description + " - cancelling...");
+            }
+        });
+        statusBar.add(statusLabel, BorderLayout.CENTER);
+        JPanel right = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        right.add(progressBar);
+        right.add(cancelButton);
+        statusBar.add(right, BorderLayout.EAST);
+    }
+
+    JComponent getStatusBar() {
+        return statusBar;
+    }
+
+    /**
+     * Queues {@code work} on the background thread. {@code onDone} receives the result on the EDT;
+     * if the work throws, the error is reported instead and {@code onDone} is not called.
+     * Must be called from the EDT.
+     */
+    <T> void submit(String description, Work<T> work, Consumer<T> onDone) {
+        Control control = new Control(description);
+        ProgressWorker<T> worker = new ProgressWorker<T>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                control.worker = this;
+                SwingUtilities.invokeLater(() -> started(control));
+                return work.run(control);
+            }
+
+            @Override
+            protected void done() {
+                finished(control);
+                try {
+                    onDone.accept(get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    errorReporter.accept(description + " failed: " + cause.getMessage());
+                    cause.printStackTrace();
+                }
+            }
+        };
+        worker.addPropertyChangeListener(event -> {
+            if ("progress".equals(event.getPropertyName()) && control == running) {
+                progressBar.setIndeterminate(false);
+                progressBar.setValue((Integer) event.getNewValue());
+            }
+        });
+        pending++;
+        if (running == null) {
+            statusLabel.setText("Queued: " + description);
+        }
+        executor.execute(worker);
+    }
+
+    boolean isBusy() {
+        return pending > 0;
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void started(Control control) {
+        running = control;
+        statusLabel.setText(control.description + "...");
+        progressBar.setIndeterminate(true);
+        progressBar.setValue(0);
+        progressBar.setVisible(true);
+        cancelButton.setEnabled(true);
+    }
+
+    private void finished(Control control) {
+        pending--;
+        if (running == control || running == null) {
+            running = null;
+            progressBar.setVisible(false);
+            cancelButton.setEnabled(false);
+            statusLabel.setText(pending > 0 ? "Waiting for " + pending + " queued operation(s)..."
+                                            : (control.cancelled.get() ? control.description + " - cancelled" : "Ready"));
+        }
+    }
+
+    /** Cancellation flag and progress bridge for one submitted operation. */
+    private static final class Control implements TaskControl {
+        private final String description;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private volatile ProgressWorker<?> worker;
+        private int lastPercent = -1;
+
+        Control(String description) {
+            this.description = description;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        @Override
+        public void progress(int done, int total) {
+            if (total <= 0 || worker == null) {
+                return;
+            }
+            int percent = (int) Math.min(100, (done * 100L) / total);
+            if (percent != lastPercent) { // One event per percent, not per step
+                lastPercent = percent;
+                worker.report(percent);
+            }
+        }
+    }
+
+    /** SwingWorker that exposes its (protected) progress setter to {@link Control}. */
+    private abstract static class ProgressWorker<T> extends SwingWorker<T, Void> {
+        void report(int percent) {
+            setProgress(percent);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package finalVersion;
+
+// Εγγραφή στην ουρά backorder ενός προϊόντος: ποια παραγγελία και ποιο είδος της περιμένουν απόθεμα.
+class BackorderEntry {
+    private final Order order;
+    private final OrderItem item;
+
+    BackorderEntry(Order order, OrderItem item) {
+        this.order = order;
+        this.item = item;
+    }
+
+    public Order getOrder() { return order; }
+    public OrderItem getItem() { return item; }
+
+    // Η εγγραφή δεν ισχύει πια αν η παραγγελία έκλεισε ή αν το είδος δεν έχει άλλη εκκρεμή ποσότητα
+    public boolean isStale() {
+        OrderStatus status = order.getStatus();
+        return status == OrderStatus.CANCELED || status == OrderStatus.FULFILLED || item.getBackorderedQuantity() <= 0;
+    }
+}
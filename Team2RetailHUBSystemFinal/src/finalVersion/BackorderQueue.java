@@ -0,0 +1,205 @@
+package finalVersion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+// Ουρά backorder ενός προϊόντος: δυαδικός σωρός (min-heap) με τα είδη που περιμένουν απόθεμα.
+// Η σειρά εξυπηρέτησης ορίζεται από την προτεραιότητα (rank, μικρότερη πρώτα) της πολιτικής κατανομής,
+// με ισοπαλίες κατά σειρά άφιξης, οπότε με σταθερή προτεραιότητα η ουρά είναι FIFO. Η προτεραιότητα
+// δίνεται κατά την εισαγωγή και κρατιέται σε πίνακα δίπλα στη σειρά άφιξης, ώστε οι συγκρίσεις του
+// σωρού να μην αγγίζουν τις παραγγελίες. Δεν είναι thread-safe: αλλάζει μόνο με το κλείδωμα του προϊόντος.
+class BackorderQueue {
+    private static final int INITIAL_CAPACITY = 4;
+
+    private BackorderEntry[] entries = new BackorderEntry[INITIAL_CAPACITY];
+    private long[] ranks = new long[INITIAL_CAPACITY];
+    private long[] arrivals = new long[INITIAL_CAPACITY];
+    private int size;
+    private long nextArrival;
+
+    int size() { return size; }
+    boolean isEmpty() { return size == 0; }
+
+    // O(log n)
+    void add(BackorderEntry entry, long rank) {
+        insert(entry, rank, nextArrival++);
+    }
+
+    BackorderEntry peek() {
+        return size == 0 ? null : entries[0];
+    }
+
+    // O(log n)
+    BackorderEntry poll() {
+        if (size == 0) {
+            return null;
+        }
+        BackorderEntry first = entries[0];
+        size--;
+        if (size > 0) {
+            set(0, entries[size], ranks[size], arrivals[size]);
+            siftDown(0);
+        }
+        entries[size] = null;
+        return first;
+    }
+
+    // O(n): αφαιρεί τις εγγραφές που ταιριάζουν και ξαναχτίζει τον σωρό
+    boolean removeIf(Predicate<BackorderEntry> filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!filter.test(entries[i])) {
+                set(kept++, entries[i], ranks[i], arrivals[i]);
+            }
+        }
+        if (kept == size) {
+            return false;
+        }
+        Arrays.fill(entries, kept, size, null);
+        size = kept;
+        heapify();
+        return true;
+    }
+
+    // Νέα πολιτική: υπολογίζει ξανά τις προτεραιότητες και ξαναχτίζει τον σωρό
+    void reorder(ToLongFunction<BackorderEntry> rankOf) {
+        for (int i = 0; i < size; i++) {
+            ranks[i] = rankOf.applyAsLong(entries[i]);
+        }
+        heapify();
+    }
+
+    // Εκκρεμή τεμάχια όλων των ενεργών εγγραφών
+    long backorderedUnits() {
+        long units = 0;
+        for (int i = 0; i < size; i++) {
+            if (!entries[i].isStale()) {
+                units += entries[i].getItem().getBackorderedQuantity();
+            }
+        }
+        return units;
+    }
+
+    // Οι εγγραφές με σειρά άφιξης (για αποθήκευση: η επαναφορά τις ξαναβάζει με την ίδια σειρά)
+    List<BackorderEntry> inArrivalOrder() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(arrivals[a], arrivals[b]));
+        List<BackorderEntry> result = new ArrayList<>(size);
+        for (int index : order) {
+            result.add(entries[index]);
+        }
+        return result;
+    }
+
+    // Αναλογική (pro-rata) μοιρασιά budget τεμαχίων στις ενεργές εγγραφές: καθεμία παίρνει το ακέραιο μέρος του
+    // μεριδίου της (budget * εκκρεμή / σύνολο εκκρεμών) και τα k τεμάχια που περισσεύουν από τη στρογγυλοποίηση
+    // δίνονται ένα-ένα με τη σειρά του σωρού. Γεμίζει τη recipients και επιστρέφει τα μερίδια (O(n + k log k)).
+    int[] fairShares(int budget, List<BackorderEntry> recipients) {
+        long total = backorderedUnits();
+        int[] recipientAt = new int[size]; // Θέση στον σωρό -> θέση στη recipients (-1: άκυρη εγγραφή)
+        int[] shares = new int[size];
+        int leftover = budget;
+        for (int i = 0; i < size; i++) {
+            if (entries[i].isStale()) {
+                recipientAt[i] = -1;
+                continue;
+            }
+            int wanted = entries[i].getItem().getBackorderedQuantity();
+            int share = (int) Math.min(wanted, (long) budget * wanted / total);
+            recipientAt[i] = recipients.size();
+            shares[recipients.size()] = share;
+            recipients.add(entries[i]);
+            leftover -= share;
+        }
+        // Διάσχιση του σωρού με σειρά προτεραιότητας χωρίς να τον αλλάξουμε: το "σύνορο" κρατά τις θέσεις
+        // των οποίων ο γονέας έχει ήδη εξεταστεί, οπότε η μικρότερη από αυτές είναι η επόμενη του σωρού
+        PriorityQueue<Integer> frontier = new PriorityQueue<>((a, b) -> before(a, b) ? -1 : (before(b, a) ? 1 : 0));
+        if (size > 0) {
+            frontier.add(0);
+        }
+        while (leftover > 0 && !frontier.isEmpty()) {
+            int position = frontier.poll();
+            int recipient = recipientAt[position];
+            if (recipient >= 0 && shares[recipient] < entries[position].getItem().getBackorderedQuantity()) {
+                shares[recipient]++;
+                leftover--;
+            }
+            for (int child = 2 * position + 1; child <= 2 * position + 2 && child < size; child++) {
+                frontier.add(child);
+            }
+        }
+        return Arrays.copyOf(shares, recipients.size());
+    }
+
+    // --- Σωρός
+
+    private void insert(BackorderEntry entry, long rank, long arrival) {
+        if (size == entries.length) {
+            int capacity = size * 2;
+            entries = Arrays.copyOf(entries, capacity);
+            ranks = Arrays.copyOf(ranks, capacity);
+            arrivals = Arrays.copyOf(arrivals, capacity);
+        }
+        set(size, entry, rank, arrival);
+        siftUp(size++);
+    }
+
+    private void set(int index, BackorderEntry entry, long rank, long arrival) {
+        entries[index] = entry;
+        ranks[index] = rank;
+        arrivals[index] = arrival;
+    }
+
+    private boolean before(int a, int b) {
+        return ranks[a] != ranks[b] ? ranks[a] < ranks[b] : arrivals[a] < arrivals[b];
+    }
+
+    private void swap(int a, int b) {
+        BackorderEntry entry = entries[a];
+        long rank = ranks[a];
+        long arrival = arrivals[a];
+        set(a, entries[b], ranks[b], arrivals[b]);
+        set(b, entry, rank, arrival);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!before(index, parent)) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && before(child + 1, child)) {
+                child++;
+            }
+            if (!before(child, index)) {
+                return;
+            }
+            swap(index, child);
+            index = child;
+        }
+    }
+
+    private void heapify() {
+        for (int i = (size >>> 1) - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+}
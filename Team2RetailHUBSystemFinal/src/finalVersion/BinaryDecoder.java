@@ -0,0 +1,57 @@
+package finalVersion;
+
+import java.nio.charset.StandardCharsets;
+
+// Ανάγνωση των τιμών του BinaryEncoder από τα bytes ενός μπλοκ ή μιας κεφαλίδας
+final class BinaryDecoder {
+    final byte[] bytes;
+    int position;
+    long previousTime;
+
+    BinaryDecoder(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    int varInt() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = bytes[position++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Μη έγκυρος varint.");
+    }
+
+    long varLong() {
+        long zigzag = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = bytes[position++];
+            zigzag |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IllegalArgumentException("Μη έγκυρος varint.");
+    }
+
+    boolean hasRemaining() {
+        return position < bytes.length;
+    }
+
+    long time() {
+        previousTime += varLong();
+        return previousTime;
+    }
+
+    String string() {
+        int length = varInt() - 1;
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+}
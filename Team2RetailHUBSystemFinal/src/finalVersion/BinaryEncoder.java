@@ -0,0 +1,86 @@
+package finalVersion;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Κωδικοποίηση σε πίνακα bytes που μεγαλώνει: varint (LEB128) για int, zigzag varint για long
+final class BinaryEncoder {
+    byte[] bytes = new byte[256];
+    int size;
+    long previousTime;
+
+    int size() {
+        return size;
+    }
+
+    void reset() {
+        size = 0;
+        previousTime = 0;
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+        }
+    }
+
+    BinaryEncoder fixedInt(int value) {
+        ensure(Integer.BYTES);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            bytes[size++] = (byte) (value >>> shift);
+        }
+        return this;
+    }
+
+    BinaryEncoder fixedLong(long value) {
+        return fixedInt((int) (value >>> 32)).fixedInt((int) value);
+    }
+
+    BinaryEncoder varInt(int value) {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+        return this;
+    }
+
+    BinaryEncoder varLong(long value) {
+        ensure(10);
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            bytes[size++] = (byte) ((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        bytes[size++] = (byte) zigzag;
+        return this;
+    }
+
+    // Χρόνος σε ms ως διαφορά από τον προηγούμενο που γράφτηκε μετά το reset (συνήθως λίγα bytes)
+    BinaryEncoder time(long millis) {
+        varLong(millis - previousTime);
+        previousTime = millis;
+        return this;
+    }
+
+    // null -> 0, αλλιώς μήκος + 1 και τα bytes UTF-8
+    BinaryEncoder string(String value) {
+        if (value == null) {
+            return varInt(0);
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        varInt(utf8.length + 1);
+        ensure(utf8.length);
+        System.arraycopy(utf8, 0, bytes, size, utf8.length);
+        size += utf8.length;
+        return this;
+    }
+
+    BinaryEncoder append(BinaryEncoder other) {
+        ensure(other.size);
+        System.arraycopy(other.bytes, 0, bytes, size, other.size);
+        size += other.size;
+        return this;
+    }
+}
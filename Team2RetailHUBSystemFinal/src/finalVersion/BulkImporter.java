@@ -0,0 +1,481 @@
+package finalVersion;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Μαζική εισαγωγή από αρχεία κειμένου με διαχωριστικό (προϊόντα, πελάτες, ιστορικές πωλήσεις),
+// π.χ. για την ανάκτηση των ιστορικών δεδομένων του παλαιού συστήματος.
+// - Το αρχείο χωρίζεται σε τμήματα (~8MB) σε όρια γραμμής· κάθε τμήμα διαβάζεται με memory-mapped NIO
+//   και αναλύεται/ελέγχεται παράλληλα με τα υπόλοιπα.
+// - Οι έγκυρες εγγραφές περνούν στους managers με μία μαζική κλήση (ένα κλείδωμα, χωρίς μήνυμα ανά εγγραφή).
+// - Οι λανθασμένες γραμμές δεν σταματούν την εισαγωγή: καταγράφονται στην αναφορά με τον αριθμό γραμμής τους.
+// - Αν ακυρωθεί (TaskControl) κατά την ανάγνωση, δεν προστίθεται τίποτα.
+// Μορφές (μία εγγραφή ανά γραμμή, πεδία χωρισμένα με το διαχωριστικό, προεπιλογή ';', χωρίς εισαγωγικά):
+//   προϊόντα:  κωδικός;όνομα;τιμή;ποσότητα
+//   πελάτες:   id;όνομα;email;τηλέφωνο;διεύθυνση;ηλικία  (κενό id: ανατίθεται αυτόματα· μετά το όνομα όλα προαιρετικά)
+//   πωλήσεις:  παραγγελία;id πελάτη;ημερομηνία;κωδικός προϊόντος;ποσότητα;τιμή μονάδας
+//              (ημερομηνία yyyy-MM-dd[ HH:mm[:ss]]· διαδοχικές γραμμές της ίδιας παραγγελίας γίνονται μία πώληση)
+// Κενές γραμμές και γραμμές που ξεκινούν με '#' αγνοούνται, όπως και μια πρώτη γραμμή-επικεφαλίδα
+// (όταν το πρώτο της πεδίο δεν είναι αριθμός).
+public class BulkImporter {
+    public static final char DEFAULT_DELIMITER = ';';
+    private static final int CHUNK_BYTES = 8 << 20;
+
+    // Αναλύει τα πεδία μιας γραμμής σε εγγραφή· πετάει IllegalArgumentException/DateTimeException για άκυρη γραμμή
+    private interface LineParser<T> {
+        T parse(String[] fields);
+    }
+
+    // Οι εγγραφές ενός τμήματος, με τον (τοπικό στο τμήμα) αριθμό γραμμής καθεμίας, και τα σφάλματά του
+    private static final class ChunkResult<T> {
+        final List<T> rows = new ArrayList<>();
+        int[] rowLines = new int[256];
+        final List<ImportReport.RowError> errors = new ArrayList<>();
+        int lineCount;
+        long lineOffset; // Γραμμές όλων των προηγούμενων τμημάτων (συμπληρώνεται μετά την ανάλυση)
+
+        void addRow(T row, int line) {
+            if (rows.size() == rowLines.length) {
+                rowLines = Arrays.copyOf(rowLines, rowLines.length * 2);
+            }
+            rowLines[rows.size()] = line;
+            rows.add(row);
+        }
+
+        long lineOf(int row) {
+            return lineOffset + rowLines[row];
+        }
+    }
+
+    // Πελάτης όπως διαβάστηκε (το id είναι 0 αν πρέπει να ανατεθεί)
+    private static final class CustomerRow {
+        final int id;
+        final String[] fields;
+
+        CustomerRow(int id, String[] fields) {
+            this.id = id;
+            this.fields = fields;
+        }
+    }
+
+    // Μία γραμμή ιστορικής πώλησης
+    private static final class SaleLine {
+        final int orderId;
+        final Customer customer;
+        final long time;
+        final OrderItem item;
+
+        SaleLine(int orderId, Customer customer, long time, OrderItem item) {
+            this.orderId = orderId;
+            this.customer = customer;
+            this.time = time;
+            this.item = item;
+        }
+    }
+
+    private final InventoryManager inventoryManager;
+    private final CustomerManager customerManager;
+    private final SalesLedger salesLedger;
+    private final char delimiter;
+
+    public BulkImporter(InventoryManager inventoryManager, CustomerManager customerManager, SalesLedger salesLedger) {
+        this(inventoryManager, customerManager, salesLedger, DEFAULT_DELIMITER);
+    }
+
+    public BulkImporter(InventoryManager inventoryManager, CustomerManager customerManager, SalesLedger salesLedger, char delimiter) {
+        if (inventoryManager == null || customerManager == null || salesLedger == null) {
+            throw new IllegalArgumentException("Οι managers της εισαγωγής δεν μπορούν να είναι null.");
+        }
+        if (delimiter == '\n' || delimiter == '\r' || delimiter == '#' || delimiter > 0x7F) {
+            throw new IllegalArgumentException("Μη έγκυρο διαχωριστικό πεδίων (πρέπει να είναι χαρακτήρας ASCII).");
+        }
+        this.inventoryManager = inventoryManager;
+        this.customerManager = customerManager;
+        this.salesLedger = salesLedger;
+        this.delimiter = delimiter;
+    }
+
+    public ImportReport importProducts(Path file, TaskControl control) throws IOException {
+        ImportReport report = new ImportReport(file.toString());
+        List<ChunkResult<Product>> chunks = parse(file, fields -> {
+            requireFields(fields, 4);
+            Product product = new Product(parseInt(fields[0], "κωδικός"), fields[1].trim(), 0, parseInt(fields[3], "ποσότητα"));
+            product.setPriceCents(parsePrice(fields[2]));
+            return product;
+        }, report, control);
+        if (chunks == null) {
+            return report;
+        }
+
+        List<Product> products = new ArrayList<>();
+        for (ChunkResult<Product> chunk : chunks) {
+            products.addAll(chunk.rows);
+        }
+        BitSet rejected = inventoryManager.addProducts(products);
+        int row = 0;
+        for (ChunkResult<Product> chunk : chunks) {
+            for (int i = 0; i < chunk.rows.size(); i++, row++) {
+                if (rejected.get(row)) {
+                    report.reject(chunk.lineOf(i), "Ο κωδικός προϊόντος " + chunk.rows.get(i).getCode() + " υπάρχει ήδη.");
+                }
+            }
+        }
+        report.addImported(products.size() - rejected.cardinality());
+        return finish(report);
+    }
+
+    public ImportReport importCustomers(Path file, TaskControl control) throws IOException {
+        ImportReport report = new ImportReport(file.toString());
+        List<ChunkResult<CustomerRow>> chunks = parse(file, fields -> {
+            requireFields(fields, 2);
+            int id = fields[0].trim().isEmpty() ? 0 : parseInt(fields[0], "id");
+            if (fields.length > 5 && !fields[5].trim().isEmpty()) {
+                parseInt(fields[5], "ηλικία"); // Έλεγχος εδώ, ώστε το σφάλμα να αναφέρει τη γραμμή
+            }
+            return new CustomerRow(id, fields);
+        }, report, control);
+        if (chunks == null) {
+            return report;
+        }
+
+        // Πρώτα όσοι έχουν δικό τους id, ώστε το μπλοκ για τους υπόλοιπους να μην πέσει πάνω τους
+        int withoutId = 0;
+        List<Customer> customers = new ArrayList<>();
+        List<Long> lines = new ArrayList<>();
+        for (ChunkResult<CustomerRow> chunk : chunks) {
+            for (int i = 0; i < chunk.rows.size(); i++) {
+                CustomerRow row = chunk.rows.get(i);
+                if (row.id == 0) {
+                    withoutId++;
+                } else {
+                    addCustomerRow(row, row.id, chunk.lineOf(i), customers, lines, report);
+                }
+            }
+        }
+        insertCustomers(customers, lines, report);
+
+        if (withoutId > 0) {
+            int nextId = customerManager.reserveIdBlock(withoutId);
+            customers.clear();
+            lines.clear();
+            for (ChunkResult<CustomerRow> chunk : chunks) {
+                for (int i = 0; i < chunk.rows.size(); i++) {
+                    CustomerRow row = chunk.rows.get(i);
+                    if (row.id == 0) {
+                        addCustomerRow(row, nextId++, chunk.lineOf(i), customers, lines, report);
+                    }
+                }
+            }
+            insertCustomers(customers, lines, report);
+        }
+        return finish(report);
+    }
+
+    public ImportReport importSales(Path file, TaskControl control) throws IOException {
+        ImportReport report = new ImportReport(file.toString());
+        // Στιγμιότυπα καταλόγων για αναζήτηση χωρίς τα κλειδώματα των managers από τα παράλληλα νήματα
+        IntKeyMap<Customer> customers = new IntKeyMap<>();
+        for (Customer c : customerManager.getAllCustomers()) {
+            customers.put(c.getId(), c);
+        }
+        IntKeyMap<Product> products = new IntKeyMap<>();
+        for (Product p : inventoryManager.getAllProducts()) {
+            products.put(p.getCode(), p);
+        }
+        ZoneRules zoneRules = salesLedger.getZone().getRules();
+
+        List<ChunkResult<SaleLine>> chunks = parse(file, fields -> {
+            requireFields(fields, 6);
+            int orderId = parseInt(fields[0], "παραγγελία");
+            Customer customer = customers.get(parseInt(fields[1], "id πελάτη"));
+            if (customer == null) {
+                throw new IllegalArgumentException("Άγνωστος πελάτης " + fields[1].trim() + ".");
+            }
+            LocalDateTime dateTime = parseDateTime(fields[2].trim());
+            Product product = products.get(parseInt(fields[3], "κωδικός προϊόντος"));
+            if (product == null) {
+                throw new IllegalArgumentException("Άγνωστος κωδικός προϊόντος " + fields[3].trim() + ".");
+            }
+            int quantity = parseInt(fields[4], "ποσότητα");
+            OrderItem item = new OrderItem(product, quantity);
+            item.setPriceAtSaleCents(parsePrice(fields[5]));
+            item.setReservation(quantity, 0); // Ιστορική πώληση: όλη η ποσότητα παραδόθηκε
+            item.getTotalValueCents(); // Έλεγχος υπερχείλισης αξίας εδώ, ώστε το σφάλμα να αναφέρει τη γραμμή
+            long time = dateTime.toEpochSecond(zoneRules.getOffset(dateTime)) * 1000;
+            return new SaleLine(orderId, customer, time, item);
+        }, report, control);
+        if (chunks == null) {
+            return report;
+        }
+
+        // Διαδοχικές γραμμές της ίδιας παραγγελίας (και μέσα από όρια τμημάτων) γίνονται μία πώληση
+        List<Sale> sales = new ArrayList<>();
+        List<OrderItem> items = new ArrayList<>();
+        SaleLine first = null;
+        long imported = 0;
+        int maxOrderId = 0;
+        for (ChunkResult<SaleLine> chunk : chunks) {
+            for (int i = 0; i < chunk.rows.size(); i++) {
+                SaleLine line = chunk.rows.get(i);
+                if (first != null && line.orderId == first.orderId) {
+                    if (line.customer != first.customer) {
+                        report.reject(chunk.lineOf(i), "Η παραγγελία " + line.orderId + " έχει ήδη άλλον πελάτη.");
+                        continue;
+                    }
+                } else {
+                    if (first != null) {
+                        sales.add(new Sale(first.orderId, first.customer, new Date(first.time), items));
+                        items.clear();
+                    }
+                    first = line;
+                    maxOrderId = Math.max(maxOrderId, line.orderId);
+                }
+                items.add(line.item);
+                imported++;
+            }
+        }
+        if (first != null) {
+            sales.add(new Sale(first.orderId, first.customer, new Date(first.time), items));
+        }
+
+        salesLedger.recordAll(sales);
+        Order.reserveIdsThrough(maxOrderId); // Οι νέες παραγγελίες δεν παίρνουν ID ιστορικών
+        report.addImported(imported);
+        return finish(report);
+    }
+
+    // --- Ανάγνωση και ανάλυση ---
+
+    // Αναλύει παράλληλα τα τμήματα του αρχείου. Επιστρέφει null αν ακυρώθηκε.
+    private <T> List<ChunkResult<T>> parse(Path file, LineParser<T> parser, ImportReport report, TaskControl control) throws IOException {
+        List<ChunkResult<T>> chunks;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<long[]> ranges = split(channel);
+            AtomicInteger done = new AtomicInteger();
+            try {
+                chunks = IntStream.range(0, ranges.size()).parallel()
+                        .mapToObj(i -> {
+                            if (control.isCancelled()) {
+                                return null;
+                            }
+                            ChunkResult<T> chunk = parseChunk(channel, ranges.get(i), i == 0, parser);
+                            control.progress(done.incrementAndGet(), ranges.size());
+                            return chunk;
+                        })
+                        .collect(Collectors.toList());
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        if (control.isCancelled()) {
+            report.markCancelled();
+            return null;
+        }
+        long offset = 0;
+        for (ChunkResult<T> chunk : chunks) {
+            chunk.lineOffset = offset;
+            for (ImportReport.RowError error : chunk.errors) {
+                report.reject(offset + error.getLineNumber(), error.getMessage());
+            }
+            report.addRowsRead(chunk.rows.size() + chunk.errors.size());
+            offset += chunk.lineCount;
+        }
+        return chunks;
+    }
+
+    // Όρια τμημάτων [αρχή, τέλος) σε bytes· κάθε τμήμα τελειώνει αμέσως μετά από '\n' (ή στο τέλος του αρχείου)
+    private static List<long[]> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<long[]> ranges = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + CHUNK_BYTES);
+            while (end < size) {
+                probe.clear();
+                int n = channel.read(probe, end);
+                if (n <= 0) {
+                    end = size;
+                    break;
+                }
+                int i = 0;
+                while (i < n && probe.get(i) != '\n') i++;
+                end += i < n ? i + 1 : n;
+                if (i < n) break;
+            }
+            ranges.add(new long[]{start, end});
+            start = end;
+        }
+        return ranges;
+    }
+
+    // Το τμήμα αντιγράφεται από τη χαρτογράφηση σε byte[] και χωρίζεται σε γραμμές/πεδία απευθείας στα bytes
+    // ('\n' και το διαχωριστικό είναι ASCII, άρα δεν εμφανίζονται μέσα σε πολυ-byte χαρακτήρες UTF-8).
+    // Μόνο τα πεδία γίνονται String· άκυρα bytes UTF-8 αντικαθίστανται με '\uFFFD'.
+    private <T> ChunkResult<T> parseChunk(FileChannel channel, long[] range, boolean firstChunk, LineParser<T> parser) {
+        byte[] text = new byte[(int) (range[1] - range[0])];
+        try {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, range[0], text.length);
+            bytes.get(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ChunkResult<T> chunk = new ChunkResult<>();
+        int length = text.length;
+        int pos = firstChunk && length >= 3 && text[0] == (byte) 0xEF && text[1] == (byte) 0xBB && text[2] == (byte) 0xBF ? 3 : 0; // BOM
+        while (pos < length) {
+            int end = pos;
+            while (end < length && text[end] != '\n') end++;
+            int lineEnd = end > pos && text[end - 1] == '\r' ? end - 1 : end;
+            int line = ++chunk.lineCount;
+            if (lineEnd > pos && text[pos] != '#') {
+                String[] fields = splitFields(text, pos, lineEnd);
+                boolean header = firstChunk && line == 1 && !isInteger(fields[0]);
+                if (!header && !(fields.length == 1 && fields[0].trim().isEmpty())) {
+                    try {
+                        chunk.addRow(parser.parse(fields), line);
+                    } catch (IllegalArgumentException | DateTimeException | ArithmeticException e) {
+                        chunk.errors.add(new ImportReport.RowError(line, e.getMessage()));
+                    }
+                }
+            }
+            pos = end + 1;
+        }
+        return chunk;
+    }
+
+    private String[] splitFields(byte[] text, int from, int to) {
+        byte delimiter = (byte) this.delimiter;
+        int count = 1;
+        for (int i = from; i < to; i++) {
+            if (text[i] == delimiter) count++;
+        }
+        String[] fields = new String[count];
+        int f = 0;
+        int start = from;
+        for (int i = from; i <= to; i++) {
+            if (i == to || text[i] == delimiter) {
+                fields[f++] = new String(text, start, i - start, StandardCharsets.UTF_8);
+                start = i + 1;
+            }
+        }
+        return fields;
+    }
+
+    // --- Βοηθητικά ---
+
+    private void addCustomerRow(CustomerRow row, int id, long line, List<Customer> customers, List<Long> lines, ImportReport report) {
+        String[] f = row.fields;
+        try {
+            customers.add(new Customer(id, f[1].trim(), optional(f, 2), optional(f, 3), optional(f, 4),
+                                       optional(f, 5) == null ? 0 : parseInt(f[5], "ηλικία")));
+            lines.add(line);
+        } catch (IllegalArgumentException e) {
+            report.reject(line, e.getMessage());
+        }
+    }
+
+    private void insertCustomers(List<Customer> customers, List<Long> lines, ImportReport report) {
+        BitSet rejected = customerManager.addCustomers(customers);
+        for (int i = rejected.nextSetBit(0); i >= 0; i = rejected.nextSetBit(i + 1)) {
+            report.reject(lines.get(i), "Ο πελάτης " + customers.get(i).getId() + " υπάρχει ήδη (ίδιο id ή email).");
+        }
+        report.addImported(customers.size() - rejected.cardinality());
+    }
+
+    private static ImportReport finish(ImportReport report) {
+        report.sortErrors();
+        System.out.println(report);
+        return report;
+    }
+
+    private static void requireFields(String[] fields, int count) {
+        if (fields.length < count) {
+            throw new IllegalArgumentException("Αναμένονταν τουλάχιστον " + count + " πεδία, βρέθηκαν " + fields.length + ".");
+        }
+    }
+
+    private static String optional(String[] fields, int index) {
+        if (index >= fields.length || fields[index].trim().isEmpty()) {
+            return null;
+        }
+        return fields[index].trim();
+    }
+
+    private static int parseInt(String text, String field) {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Μη έγκυρο πεδίο '" + field + "': " + text.trim());
+        }
+    }
+
+    private static long parsePrice(String text) {
+        try {
+            return Money.parse(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Μη έγκυρη τιμή: " + text.trim());
+        }
+    }
+
+    private static boolean isInteger(String text) {
+        String t = text.trim();
+        if (t.isEmpty()) {
+            return true; // Κενό πρώτο πεδίο (π.χ. πελάτης χωρίς id): δεδομένα, όχι επικεφαλίδα
+        }
+        for (int i = 0; i < t.length(); i++) {
+            if (!Character.isDigit(t.charAt(i)) && !(i == 0 && t.charAt(i) == '-')) return false;
+        }
+        return true;
+    }
+
+    // yyyy-MM-dd, yyyy-MM-dd HH:mm ή yyyy-MM-dd HH:mm:ss (και με 'T' αντί για κενό)
+    static LocalDateTime parseDateTime(String text) {
+        int length = text.length();
+        if ((length != 10 && length != 16 && length != 19) || text.charAt(4) != '-' || text.charAt(7) != '-'
+                || (length > 10 && text.charAt(10) != ' ' && text.charAt(10) != 'T')
+                || (length > 10 && text.charAt(13) != ':') || (length == 19 && text.charAt(16) != ':')) {
+            throw new IllegalArgumentException("Μη έγκυρη ημερομηνία: " + text);
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 7);
+        int day = digits(text, 8, 10);
+        int hour = length > 10 ? digits(text, 11, 13) : 0;
+        int minute = length > 10 ? digits(text, 14, 16) : 0;
+        int second = length == 19 ? digits(text, 17, 19) : 0;
+        try {
+            return LocalDateTime.of(year, month, day, hour, minute, second);
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Μη έγκυρη ημερομηνία: " + text); // π.χ. 30 Φεβρουαρίου
+        }
+    }
+
+    private static int digits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("Μη έγκυρη ημερομηνία: " + text);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,44 @@
+package finalVersion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Μέτρηση του χρόνου αναζήτησης προϊόντος με κωδικό (InventoryManager.getProductByCode) για καταλόγους
+// από 1.000 έως 1.000.000 προϊόντα. Με το ευρετήριο IntKeyMap ο χρόνος ανά αναζήτηση πρέπει να μένει
+// σχεδόν σταθερός καθώς μεγαλώνει ο κατάλογος. Εκτέλεση: java finalVersion.CatalogLookupBenchmark
+class CatalogLookupBenchmark {
+    private static final int[] CATALOG_SIZES = {1_000, 10_000, 100_000, 1_000_000};
+    private static final int LOOKUPS = 2_000_000;
+    private static final int ROUNDS = 5; // Οι πρώτοι γύροι ζεσταίνουν τον JIT, κρατάμε τον καλύτερο
+
+    public static void main(String[] args) {
+        System.out.println("--- Αναζήτηση προϊόντος με κωδικό ---");
+        for (int size : CATALOG_SIZES) {
+            InventoryManager inventory = new InventoryManager();
+            List<Product> batch = new ArrayList<>(size);
+            for (int code = 1; code <= size; code++) {
+                batch.add(new Product(code, "Προϊόν " + code, 1.0, 10));
+            }
+            inventory.addProducts(batch);
+
+            Random random = new Random(size);
+            int[] codes = new int[LOOKUPS];
+            for (int i = 0; i < codes.length; i++) {
+                codes[i] = 1 + random.nextInt(size);
+            }
+
+            long best = Long.MAX_VALUE;
+            long checksum = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                for (int code : codes) {
+                    checksum += inventory.getProductByCode(code).getCode();
+                }
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            System.out.printf("%,10d προϊόντα: %.1f ns ανά αναζήτηση (έλεγχος %d)%n",
+                              size, best / (double) LOOKUPS, checksum % 1000);
+        }
+    }
+}
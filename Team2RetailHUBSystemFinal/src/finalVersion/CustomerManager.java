@@ -1,116 +1,241 @@
 package finalVersion;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
+// Οι πελάτες διαβάζονται και από νήματα παρασκηνίου (αναζήτηση κατά την πληκτρολόγηση στο GUI),
+// γι' αυτό κάθε πρόσβαση γίνεται μέσα στο κλείδωμα του CustomerManager.
+// Ευρετήρια: ID -> πελάτης (με τη σειρά εισαγωγής) και κανονικοποιημένο email -> πελάτης.
+// Το email είναι μοναδικό ανάμεσα στους πελάτες (όσοι δεν έχουν email δεν μπαίνουν στο ευρετήριο).
+// Αλλαγές στοιχείων πρέπει να γίνονται μέσω updateCustomer, ώστε να ενημερώνονται τα ευρετήρια.
 class CustomerManager {
-    private List<Customer> customers = new ArrayList<>();
-    private int nextIdCounter = 1;
+    private final IntKeyMap<Customer> customers = new IntKeyMap<>();
+    private final Map<String, Customer> customersByEmail = new HashMap<>();
+    // Ευρετήριο τριγραμμάτων των ονομάτων για αναζήτηση κειμένου
+    private final NameIndex<Customer> nameIndex = new NameIndex<>(Customer::getId, Customer::getName);
+    // Ελεύθερα ID για νέους πελάτες (γνωρίζει και τα ρητά ID, ώστε να μην τα ξαναδώσει)
+    private final IdAllocator ids = new IdAllocator();
+    // Ημερολόγιο των αλλαγών (null: δεν γράφονται). Το Journal.Op ανοίγει πριν από το κλείδωμα του manager.
+    private volatile Journal journal;
 
     public CustomerManager() {
     }
 
     public boolean addCustomer(Customer c) {
+        try (Journal.Op op = Journal.begin(journal)) {
+            return addCustomer(c, op);
+        }
+    }
+
+    private synchronized boolean addCustomer(Customer c, Journal.Op op) {
         if (c == null) {
             return false;
         }
-        // Ελέγχουμε αν υπάρχει ήδη πελάτης με αυτό το ID
-        for (Customer existingCustomer : customers) {
-            if (existingCustomer.getId() == c.getId()) {
-                return false; // Ο πελάτης με αυτό το ID υπάρχει ήδη
-            }
+        // Ελέγχουμε αν υπάρχει ήδη πελάτης με αυτό το ID ή το email
+        if (customers.containsKey(c.getId())) {
+            return false; // Ο πελάτης με αυτό το ID υπάρχει ήδη
         }
-        customers.add(c);
-        // Ενημερώνουμε τον nextIdCounter αν το ID του νέου πελάτη είναι μεγαλύτερο
-        if (c.getId() >= nextIdCounter) {
-            nextIdCounter = c.getId() + 1;
+        if (emailTaken(c.getEmail(), null)) {
+            System.err.println("Υπάρχει ήδη πελάτης με email " + c.getEmail() + ".");
+            return false;
         }
+        insert(c);
+        op.append(new Journal.Entry().customer(c));
         return true; // Προστέθηκε επιτυχώς
     }
 
-    // Αυτή η μέθοδος είναι η πιο κοινή για προσθήκη νέου πελάτη,
-    // όπου ο manager αναθέτει το ID.
-    public Customer addCustomer(String name, String email, String phone, String address, int age) {
-        int newId = nextIdCounter;
-        boolean idExists;
-        do {
-            idExists = false;
-            for (Customer cust : customers) {
-                if (cust.getId() == newId) {
-                    idExists = true;
-                    newId++; // Δοκιμάζουμε το επόμενο ID
-                    break;
-                }
+    // Μαζική προσθήκη πελατών με δικά τους ID (π.χ. εισαγωγή αρχείου): ένα κλείδωμα για όλη τη λίστα.
+    // Επιστρέφει τις θέσεις της λίστας που απορρίφθηκαν (ID ή email που υπήρχε ήδη ή εμφανίστηκε νωρίτερα στη λίστα).
+    public synchronized BitSet addCustomers(List<Customer> batch) {
+        BitSet rejected = new BitSet(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Customer c = batch.get(i);
+            if (customers.containsKey(c.getId()) || emailTaken(c.getEmail(), null)) {
+                rejected.set(i);
+            } else {
+                insert(c);
             }
-        } while (idExists);
-        
-        nextIdCounter = newId + 1; // Ενημερώνουμε τον counter για την επόμενη κλήση
-        Customer c = new Customer(newId, name, email, phone, address, age);
-        customers.add(c);
-        return c; // Επιστρέφουμε τον νέο πελάτη
+        }
+        return rejected;
     }
 
-    public Customer findById(int id) {
-        for (Customer c : customers) {
-            if (c.getId() == id) {
-                return c;
-            }
+    // Αυτή η μέθοδος είναι η πιο κοινή για προσθήκη νέου πελάτη,
+    // όπου ο manager αναθέτει το ID. Επιστρέφει null αν το email ανήκει ήδη σε άλλον πελάτη.
+    public Customer addCustomer(String name, String email, String phone, String address, int age) {
+        try (Journal.Op op = Journal.begin(journal)) {
+            return addCustomer(name, email, phone, address, age, op);
         }
-        return null; // Δεν βρέθηκε
     }
 
-    public Customer findByEmail(String email) {
-        if (email == null || email.trim().isEmpty()) return null;
-        for (Customer c : customers) {
-            String custEmail = c.getEmail();
-            if (custEmail != null && custEmail.equalsIgnoreCase(email)) {
-                return c;
-            }
+    private synchronized Customer addCustomer(String name, String email, String phone, String address, int age, Journal.Op op) {
+        if (emailTaken(email, null)) {
+            System.err.println("Υπάρχει ήδη πελάτης με email " + email + ".");
+            return null;
         }
-        return null;
+        Customer c = new Customer(ids.next(), name, email, phone, address, age);
+        insert(c);
+        op.append(new Journal.Entry().customer(c));
+        return c; // Επιστρέφουμε τον νέο πελάτη
+    }
+
+    public synchronized Customer findById(int id) {
+        return customers.get(id); // null αν δεν βρέθηκε
+    }
+
+    public synchronized Customer findByEmail(String email) {
+        String key = emailKey(email);
+        return key != null ? customersByEmail.get(key) : null;
     }
 
     public boolean updateCustomer(int id, String newName, String newEmail, String newPhone, String newAddress, int newAge) {
+        try (Journal.Op op = Journal.begin(journal)) {
+            return updateCustomer(id, newName, newEmail, newPhone, newAddress, newAge, op);
+        }
+    }
+
+    private synchronized boolean updateCustomer(int id, String newName, String newEmail, String newPhone, String newAddress,
+                                                int newAge, Journal.Op op) {
         Customer c = findById(id); // Χρησιμοποιούμε τη findById
         if (c == null) {
             return false; // Ο πελάτης δεν βρέθηκε
         }
+        if (emailTaken(newEmail, c)) {
+            System.err.println("Υπάρχει ήδη άλλος πελάτης με email " + newEmail + ".");
+            return false;
+        }
 
-        c.setName(newName);
-        c.setEmail(newEmail);
-        c.setPhone(newPhone);
-        c.setAddress(newAddress);
-        c.setAge(newAge);
+        update(c, newName, newEmail, newPhone, newAddress, newAge);
+        op.append(new Journal.Entry().customer(c));
         return true; // Ενημερώθηκε επιτυχώς
     }
 
     public boolean deleteCustomer(int id) {
-        int indexToRemove = -1;
-        for (int i = 0; i < customers.size(); i++) {
-            if (customers.get(i).getId() == id) {
-                indexToRemove = i;
-                break;
-            }
+        try (Journal.Op op = Journal.begin(journal)) {
+            return deleteCustomer(id, op);
         }
-        if (indexToRemove != -1) {
-            customers.remove(indexToRemove);
-            return true;
+    }
+
+    private synchronized boolean deleteCustomer(int id, Journal.Op op) {
+        if (remove(id) == null) {
+            return false;
         }
-        return false;
+        op.append(new Journal.Entry().customerRemoved(id));
+        return true;
     }
 
-    public List<Customer> listAll() {
-        return new ArrayList<>(customers);
+    public synchronized List<Customer> listAll() {
+        return customers.values(); // Αντίγραφο με τη σειρά εισαγωγής
     }
 
-    public List<Customer> getAllCustomers() {
-        return new ArrayList<>(customers); 
+    public synchronized List<Customer> getAllCustomers() {
+        return customers.values(); 
     }
 
-    public Customer getCustomerById(int customerId) {
+    public synchronized Customer getCustomerById(int customerId) {
         return findById(customerId); 
     }
+
+    // Έως limit πελάτες κατά συνάφεια ονόματος (πρώτα όσοι αρχίζουν με το query), για αναζήτηση κατά την πληκτρολόγηση
+    public synchronized List<Customer> searchByName(String query, int limit) {
+        return nameIndex.search(query, limit);
+    }
+
+    // Οι πρώτοι (έως limit) πελάτες με τη σειρά εισαγωγής
+    public synchronized List<Customer> getFirstCustomers(int limit) {
+        return customers.firstValues(limit);
+    }
+
+    // Δεσμεύει count συνεχόμενα ID για μαζική εισαγωγή πελατών με ρητά ID και επιστρέφει το πρώτο.
+    // Τα ID αυτά δεν θα δοθούν σε άλλους πελάτες από την addCustomer(name, ...).
+    public synchronized int reserveIdBlock(int count) {
+        return ids.reserveBlock(count);
+    }
+
+    // Κατάσταση του κατανεμητή ID, για αποθήκευση/επαναφορά μαζί με τους πελάτες (βλ. SnapshotStore)
+    synchronized int[] getIdAllocatorState() {
+        return ids.state();
+    }
+
+    synchronized void restoreIdAllocatorState(int[] state) {
+        ids.restore(state);
+    }
+
+    void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    // Επανάληψη ημερολογίου (βλ. Journal): η εικόνα του πελάτη όπως γράφτηκε, χωρίς νέα εγγραφή.
+    // Οι έλεγχοι μοναδικότητας έγιναν όταν γράφτηκε η αλλαγή, άρα εδώ δεν επαναλαμβάνονται.
+    synchronized void replayCustomer(Customer image) {
+        Customer c = customers.get(image.getId());
+        if (c == null) {
+            insert(image);
+        } else {
+            update(c, image.getName(), image.getEmail(), image.getPhone(), image.getAddress(), image.getAge());
+        }
+    }
+
+    synchronized void replayCustomerRemoved(int id) {
+        remove(id);
+    }
+
+    private void insert(Customer c) {
+        customers.put(c.getId(), c);
+        ids.markUsed(c.getId());
+        String key = emailKey(c.getEmail());
+        if (key != null) {
+            customersByEmail.put(key, c);
+        }
+        nameIndex.add(c);
+    }
+
+    private void update(Customer c, String newName, String newEmail, String newPhone, String newAddress, int newAge) {
+        String oldKey = emailKey(c.getEmail());
+        if (oldKey != null) {
+            customersByEmail.remove(oldKey);
+        }
+        c.setName(newName);
+        c.setEmail(newEmail);
+        String newKey = emailKey(newEmail);
+        if (newKey != null) {
+            customersByEmail.put(newKey, c);
+        }
+        c.setPhone(newPhone);
+        c.setAddress(newAddress);
+        c.setAge(newAge);
+        nameIndex.add(c); // Το όνομα μπορεί να άλλαξε
+    }
+
+    private Customer remove(int id) {
+        Customer removed = customers.remove(id);
+        if (removed != null) {
+            String key = emailKey(removed.getEmail());
+            if (key != null) {
+                customersByEmail.remove(key);
+            }
+            nameIndex.remove(id);
+        }
+        return removed;
+    }
+
+    // Ανήκει το email σε κάποιον πελάτη εκτός από τον owner;
+    private boolean emailTaken(String email, Customer owner) {
+        String key = emailKey(email);
+        if (key == null) {
+            return false;
+        }
+        Customer existing = customersByEmail.get(key);
+        return existing != null && existing != owner;
+    }
+
+    // Κλειδί ευρετηρίου email: χωρίς κενά στην αρχή/τέλος και με πεζά (null για κενό email)
+    private static String emailKey(String email) {
+        if (email == null || email.trim().isEmpty()) {
+            return null;
+        }
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
 }
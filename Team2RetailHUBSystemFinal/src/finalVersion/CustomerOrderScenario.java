@@ -7,6 +7,9 @@ import finalVersion.OrderItem; // Import της ξεχωριστής κλάση
 
 
 public class CustomerOrderScenario {
+    // Πόσο κρατιέται το απόθεμα της περίληψης μέχρι την επιβεβαίωση (αν ο πελάτης εγκαταλείψει, λήγει)
+    private static final long HOLD_MILLIS = 15 * 60 * 1000;
+
     private InventoryManager inventory;
     private CustomerManager customerManager; 
     private Scanner scanner;
@@ -86,22 +89,26 @@ public class CustomerOrderScenario {
             return;
         }
 
-        // 4. Δέσμευση αποθέματος
-        double totalValue = 0;
+        // 4. Δέσμευση αποθέματος με χρόνο λήξης
+        ReservationHolds reservationHolds = inventory.getReservationHolds();
+        List<ReservationHolds.Hold> holds = new ArrayList<>();
+        long totalValueCents = 0;
         System.out.println("\n--- Περίληψη Παραγγελίας ---");
         for (OrderItem oi : orderItems) {
             // Δεσμεύουμε μόνο από το διαθέσιμο απόθεμα
-            oi.setReservedQuantity(oi.getProduct().reserve(oi.getRequestedQty())); 
+            ReservationHolds.Hold hold = reservationHolds.hold(oi.getProduct(), oi.getRequestedQty(), HOLD_MILLIS);
+            holds.add(hold);
+            oi.setReservedQuantity(hold.getQuantity());
             oi.setBackorderedQuantity(oi.getRequestedQty() - oi.getReservedQuantity());
 
-            double lineValue = oi.getProduct().getPrice() * oi.getRequestedQty();
-            totalValue += lineValue;
+            totalValueCents += oi.getTotalValueCents();
 
-            System.out.printf("%s: Ζητήθηκαν %d, Δεσμεύτηκαν %d%s @ %.2f€/τμχ\n",
+            System.out.printf("%s: Ζητήθηκαν %d, Δεσμεύτηκαν %d%s @ %s/τμχ\n",
                 oi.getProduct().getName(), oi.getRequestedQty(), oi.getReservedQuantity(),
-                (oi.getBackorderedQuantity() > 0 ? ", Λείπουν " + oi.getBackorderedQuantity() : ""), oi.getProduct().getPrice());
+                (oi.getBackorderedQuantity() > 0 ? ", Λείπουν " + oi.getBackorderedQuantity() : ""), Money.format(oi.getPriceAtSaleCents()));
         }
-        System.out.printf("Συνολική Αξία Παραγγελίας (εκτίμηση): %.2f€\n", totalValue);
+        System.out.printf("Συνολική Αξία Παραγγελίας (εκτίμηση): %s\n", Money.format(totalValueCents));
+        System.out.printf("Το απόθεμα κρατιέται για %d λεπτά.\n", HOLD_MILLIS / 60000);
 
         // 5. Τελική Επιβεβαίωση
         String confirm;
@@ -112,13 +119,30 @@ public class CustomerOrderScenario {
 
         if (confirm.equalsIgnoreCase("n")) {
             // Απελευθέρωση δεσμευμένων
-            for (OrderItem oi : orderItems) {
-                oi.getProduct().unreserve(oi.getReservedQuantity()); 
+            for (ReservationHolds.Hold hold : holds) {
+                reservationHolds.release(hold);
             }
             System.out.println("Η παραγγελία ακυρώθηκε.");
             return;
         }
 
+        // Επιβεβαίωση κάθε κράτησης. Αν κάποια έληξε στο μεταξύ, τα τεμάχιά της δεν είναι πια δεσμευμένα:
+        // αποδεσμεύουμε όσες δεν επιβεβαιώθηκαν ακόμη και αναιρούμε (με εγγραφή στο ημερολόγιο) όσες επιβεβαιώθηκαν.
+        for (int i = 0; i < holds.size(); i++) {
+            ReservationHolds.Hold hold = holds.get(i);
+            if (hold.getQuantity() == 0 || reservationHolds.confirm(hold)) {
+                continue; // Χωρίς δεσμευμένα τεμάχια δεν υπάρχει κάτι να επιβεβαιωθεί
+            }
+            for (int j = 0; j < i; j++) {
+                reservationHolds.unconfirm(holds.get(j));
+            }
+            for (int j = i + 1; j < holds.size(); j++) {
+                reservationHolds.release(holds.get(j));
+            }
+            System.out.println("Έληξε ο χρόνος κράτησης του αποθέματος. Η παραγγελία ακυρώθηκε.");
+            return;
+        }
+
         System.out.println("Η παραγγελία καταχωρήθηκε. Πώληση μόνο κατά παραλαβή/αποστολή.");
     }
 
@@ -0,0 +1,115 @@
+package finalVersion;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Table model whose rows are the backend entities themselves (products, customers, orders, sales).
+ * Cells are read from the entity only when the table paints them, and changes are announced per row
+ * ({@code fireTableRowsInserted/Updated/Deleted}) instead of rebuilding the whole model.
+ * Rows are found by entity key (product code, customer ID, ...) through an {@link IntKeyMap}.
+ * Must be used from the Event Dispatch Thread, like any Swing model.
+ */
+class EntityTableModel<T> extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    /** Reads the value of one column from an entity. */
+    interface CellReader<T> {
+        Object valueAt(T entity, int column);
+    }
+
+    private final String[] columns;
+    private final ToIntFunction<T> keyOf;
+    private final CellReader<T> cellReader;
+    private final List<T> rows = new ArrayList<>();
+    private final IntKeyMap<Integer> rowByKey = new IntKeyMap<>();
+
+    EntityTableModel(String[] columns, ToIntFunction<T> keyOf, CellReader<T> cellReader) {
+        this.columns = columns.clone();
+        this.keyOf = keyOf;
+        this.cellReader = cellReader;
+    }
+
+    /** Replaces all rows (initial load, search results, "Show All"). */
+    void setRows(List<T> entities) {
+        rows.clear();
+        rowByKey.clear();
+        for (T entity : entities) {
+            rowByKey.put(keyOf.applyAsInt(entity), rows.size());
+            rows.add(entity);
+        }
+        fireTableDataChanged();
+    }
+
+    /** Appends a new entity, or repaints its row if it is already shown. */
+    void add(T entity) {
+        int key = keyOf.applyAsInt(entity);
+        Integer row = rowByKey.get(key);
+        if (row != null) {
+            rows.set(row, entity);
+            fireTableRowsUpdated(row, row);
+            return;
+        }
+        int index = rows.size();
+        rows.add(entity);
+        rowByKey.put(key, index);
+        fireTableRowsInserted(index, index);
+    }
+
+    /** Repaints the row of an entity whose state changed; does nothing if the entity is not shown. */
+    void update(int key) {
+        Integer row = rowByKey.get(key);
+        if (row != null) {
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    void remove(int key) {
+        Integer row = rowByKey.remove(key);
+        if (row == null) {
+            return;
+        }
+        int index = row;
+        rows.remove(index);
+        // Rows after the removed one move up by one
+        for (int i = index; i < rows.size(); i++) {
+            rowByKey.put(keyOf.applyAsInt(rows.get(i)), i);
+        }
+        fireTableRowsDeleted(index, index);
+    }
+
+    boolean contains(int key) {
+        return rowByKey.containsKey(key);
+    }
+
+    T getRow(int rowIndex) {
+        return rows.get(rowIndex);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        return cellReader.valueAt(rows.get(rowIndex), columnIndex);
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+        return false;
+    }
+}
@@ -0,0 +1,337 @@
+package finalVersion;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Ασύγχρονη καταγραφή γεγονότων για τα συχνά μονοπάτια (δέσμευση αποθέματος, παραγγελίες, κατανομή backorder).
+// Ο καλών δεν φτιάχνει κείμενο: γράφει το είδος του γεγονότος και τα ορίσματά του (έως δύο αναφορές σε υπάρχοντα
+// αντικείμενα και τέσσερις αριθμούς) σε μια θέση ενός προκατανεμημένου δακτυλίου και επιστρέφει.
+// Ένα νήμα παρασκηνίου διαβάζει τις θέσεις με τη σειρά, φτιάχνει τις γραμμές και τις γράφει μαζεμένες
+// (WARN στο System.err, τα υπόλοιπα στο System.out).
+// Αν ο δακτύλιος γεμίσει, το γεγονός χάνεται (και μετράται) αντί να περιμένει ο καλών την κονσόλα.
+// Επίπεδο ανά κατηγορία με setLevel ή με -Dretailhub.log=INFO ή π.χ. -Dretailhub.log=STOCK=DEBUG,ORDER=WARN.
+public final class EventLog {
+
+    public enum Level { DEBUG, INFO, WARN }
+
+    public enum Category { STOCK, INVENTORY, ORDER, BACKORDER }
+
+    // Τα γεγονότα με το κείμενό τους: κάθε %s παίρνει την επόμενη αναφορά και κάθε %d τον επόμενο αριθμό
+    enum Event {
+        // Product
+        PRODUCT_STOCK_ADDED(Category.STOCK, Level.DEBUG, "Product %s added %d stock. Total: %d, Available: %d"),
+        PRODUCT_RESERVED(Category.STOCK, Level.DEBUG, "Product %s reserved %d. New Total: %d, New Reserved: %d, New Available: %d"),
+        PRODUCT_FULFILLED(Category.STOCK, Level.DEBUG, "Product %s fulfilled %d. New Total: %d, New Reserved: %d, New Available: %d"),
+        PRODUCT_UNRESERVED(Category.STOCK, Level.DEBUG, "Product %s unreserved %d. New Reserved: %d, New Available: %d"),
+        // ReservationHolds
+        HOLDS_EXPIRED(Category.STOCK, Level.INFO, "Έληξαν %d κρατήσεις αποθέματος. Επιστράφηκαν %d τεμάχια στο διαθέσιμο απόθεμα."),
+        // InventoryManager
+        STOCK_INCREASED(Category.INVENTORY, Level.INFO, "Απόθεμα αυξήθηκε για %s κατά %d. Νέο συνολικό απόθεμα: %d"),
+        STOCK_INCREASE_FAILED(Category.INVENTORY, Level.WARN, "Αποτυχία αύξησης αποθέματος για κωδικό προϊόντος %d. Το προϊόν δεν βρέθηκε ή η ποσότητα είναι άκυρη."),
+        STOCK_DECREASED(Category.INVENTORY, Level.INFO, "Απόθεμα μειώθηκε για %s κατά %d. Νέο συνολικό απόθεμα: %d"),
+        STOCK_DECREASE_SHORT(Category.INVENTORY, Level.WARN, "Αποτυχία μείωσης αποθέματος για %s. Ανεπαρκές απόθεμα. Διαθέσιμο: %d, Ζητούμενο: %d"),
+        STOCK_DECREASE_FAILED(Category.INVENTORY, Level.WARN, "Αποτυχία μείωσης αποθέματος για κωδικό προϊόντος %d. Το προϊόν δεν βρέθηκε ή η ποσότητα είναι άκυρη."),
+        // OrderManager: δημιουργία, εκπλήρωση, παράδοση, ακύρωση
+        ORDER_NOT_CREATED(Category.ORDER, Level.INFO, "Η παραγγελία για τον πελάτη %s δεν δημιουργήθηκε: δεν υπάρχει επαρκές απόθεμα για όλα τα είδη."),
+        ORDER_CREATED_AS(Category.ORDER, Level.DEBUG, "Νέα παραγγελία %d δημιουργήθηκε ως: %s."),
+        ORDER_CREATED(Category.ORDER, Level.INFO, "Η παραγγελία %d δημιουργήθηκε επιτυχώς για τον πελάτη %s. Κατάσταση: %s"),
+        ITEM_SHORT(Category.ORDER, Level.DEBUG, "Προϊόν %s: Ανεπαρκές απόθεμα (Διαθέσιμο: %d, Ζητήθηκαν: %d). Αναίρεση δεσμεύσεων της παραγγελίας."),
+        ITEM_RESERVED_FULLY(Category.ORDER, Level.DEBUG, "Προϊόν %s: Δεσμεύτηκαν πλήρως %d τεμάχια."),
+        ITEM_RESERVED(Category.ORDER, Level.DEBUG, "Προϊόν %s: Δεσμεύτηκαν %d τεμάχια."),
+        ITEM_NONE_AVAILABLE(Category.ORDER, Level.DEBUG, "Προϊόν %s: Δεν υπάρχει διαθέσιμο απόθεμα για δέσμευση."),
+        ITEM_BACKORDERED(Category.ORDER, Level.INFO, "Προσοχή: Για το προϊόν %s δημιουργήθηκε backorder %d τεμαχίων."),
+        ITEM_NO_BACKORDER(Category.ORDER, Level.INFO, "Προσοχή: Για το προϊόν %s διατέθηκαν μόνο %d τεμάχια (backorder δεν επιτράπηκε)."),
+        ORDER_ALREADY_READY(Category.ORDER, Level.INFO, "Η παραγγελία %d είναι ήδη Έτοιμη για Παράδοση."),
+        ITEM_RESERVED_MORE(Category.ORDER, Level.DEBUG, "Προϊόν %s: επιπλέον δεσμεύτηκαν %d τεμάχια. Συνολικά δεσμευμένα: %d"),
+        ORDER_STATUS(Category.ORDER, Level.DEBUG, "Η παραγγελία %d είναι τώρα: %s."),
+        ORDER_STILL_PENDING(Category.ORDER, Level.WARN, "Η παραγγελία %d παραμένει: PENDING (δεν υπήρχε διαθέσιμο απόθεμα)."),
+        ORDER_FULFILL_DONE(Category.ORDER, Level.INFO, "Η παραγγελία %d ολοκληρώθηκε με κατάσταση: %s"),
+        ORDER_DELIVERED(Category.ORDER, Level.INFO, "Η παραγγελία %d παραδόθηκε."),
+        ORDER_RESERVATION_RETURNED(Category.ORDER, Level.DEBUG, "Επιστράφηκαν %d δεσμευμένα τεμάχια για το προϊόν %s (Παραγγελία %d)."),
+        ORDER_CANCELED(Category.ORDER, Level.INFO, "Η παραγγελία %d ακυρώθηκε επιτυχώς."),
+        ORDER_HOLD_SET(Category.ORDER, Level.INFO, "Χρόνος κράτησης παραγγελιών σε αναμονή: %d δευτερόλεπτα (0: χωρίς λήξη)."),
+        ORDER_HOLD_EXPIRED(Category.ORDER, Level.INFO, "Η παραγγελία %d ακυρώθηκε: έληξε ο χρόνος κράτησης του αποθέματός της."),
+        // OrderManager: κατανομή backorder
+        ALLOCATION_STARTED(Category.BACKORDER, Level.INFO, "Εκτέλεση κατανομής backorder για προϊόν: %s (Διαθέσιμο: %d, Σε αναμονή: %d)."),
+        ALLOCATION_CANCELLED(Category.BACKORDER, Level.INFO, "Η κατανομή backorder για το προϊόν %s ακυρώθηκε."),
+        ALLOCATION_OUT_OF_STOCK(Category.BACKORDER, Level.DEBUG, "Δεν υπάρχει άλλο διαθέσιμο απόθεμα για κατανομή backorder για το προϊόν %s."),
+        ITEM_ALLOCATED(Category.BACKORDER, Level.DEBUG, "Κατανεμήθηκαν %d τεμάχια για το backordered είδος %s σε παραγγελία %d."),
+        ITEM_COVERED(Category.BACKORDER, Level.DEBUG, "Το είδος %s στην παραγγελία %d καλύφθηκε πλήρως."),
+        ORDER_ALLOCATED_STATUS(Category.BACKORDER, Level.INFO, "Η παραγγελία %d είναι τώρα: %s."),
+        ALLOCATION_DONE(Category.BACKORDER, Level.INFO, "Συνολικά κατανεμήθηκαν %d τεμάχια για το προϊόν %s από backorders."),
+        ALLOCATION_POLICY_CHANGED(Category.BACKORDER, Level.INFO, "Πολιτική κατανομής backorder: %s."),
+        ALLOCATE_ALL_STARTED(Category.BACKORDER, Level.INFO, "Συνολική κατανομή backorder σε %d ομάδες προϊόντων."),
+        ALLOCATE_ALL_CANCELLED(Category.BACKORDER, Level.INFO, "Η συνολική κατανομή ακυρώθηκε (ολοκληρώθηκαν %d από %d ομάδες)."),
+        ALLOCATE_ALL_DONE(Category.BACKORDER, Level.INFO, "Συνολική κατανομή: κατανεμήθηκαν %d τεμάχια σε %d ομάδες προϊόντων.");
+
+        final Category category;
+        final Level level;
+        private final String[] parts;  // Το κείμενο ανάμεσα στα ορίσματα
+        private final boolean[] isNumber; // Το είδος κάθε ορίσματος (%d ή %s)
+
+        Event(Category category, Level level, String template) {
+            this.category = category;
+            this.level = level;
+            String[] pieces = template.split("%", -1);
+            parts = new String[pieces.length];
+            isNumber = new boolean[pieces.length - 1];
+            parts[0] = pieces[0];
+            for (int i = 1; i < pieces.length; i++) {
+                isNumber[i - 1] = pieces[i].charAt(0) == 'd';
+                parts[i] = pieces[i].substring(1);
+            }
+        }
+
+        private void format(Slot slot, StringBuilder out) {
+            int objects = 0;
+            int numbers = 0;
+            out.append(parts[0]);
+            for (int i = 0; i < isNumber.length; i++) {
+                if (isNumber[i]) {
+                    out.append(slot.number(numbers++));
+                } else {
+                    out.append(objects++ == 0 ? slot.first : slot.second);
+                }
+                out.append(parts[i + 1]);
+            }
+            out.append(System.lineSeparator());
+        }
+    }
+
+    // Μία θέση του δακτυλίου. Το sequence γράφεται τελευταίο: όταν είναι ίσο με τον αύξοντα αριθμό που περιμένει
+    // ο αναγνώστης, τα υπόλοιπα πεδία είναι πλήρη.
+    private static final class Slot {
+        volatile long sequence = -1;
+        Event event;
+        Object first;
+        Object second;
+        long a, b, c, d;
+
+        long number(int index) {
+            switch (index) {
+                case 0: return a;
+                case 1: return b;
+                case 2: return c;
+                default: return d;
+            }
+        }
+    }
+
+    private static final int CAPACITY = 1 << 14;
+    private static final int MASK = CAPACITY - 1;
+    private static final int BATCH_CHARS = 16 * 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int LEVELS = Level.values().length;
+
+    private static final Slot[] ring = new Slot[CAPACITY];
+    private static final AtomicLong claimed = new AtomicLong(); // Ο αριθμός που θα πάρει το επόμενο γεγονός
+    private static volatile long consumed;                      // Όσα διάβασε ο αναγνώστης (ελευθερώνουν θέσεις)
+    private static volatile long written;                       // Όσα γράφτηκαν στην κονσόλα
+    private static final AtomicLong dropped = new AtomicLong();
+    private static volatile boolean writerIdle;
+    // Μόνο για το νήμα εγγραφής: πόσα χαμένα γεγονότα αναφέρθηκαν και πότε (το πολύ μία αναφορά ανά δευτερόλεπτο)
+    private static long reportedDropped;
+    private static long lastDropReport;
+    // Ένα bit ανά (κατηγορία, επίπεδο) που είναι ενεργό
+    private static volatile long enabled;
+    private static final Thread writer;
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            ring[i] = new Slot();
+        }
+        setLevel(Level.INFO);
+        configure(System.getProperty("retailhub.log"));
+        writer = new Thread(EventLog::drain, "event-log");
+        writer.setDaemon(true);
+        writer.start();
+        // Στην κανονική έξοδο γράφεται ό,τι έχει μείνει στον δακτύλιο
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(TimeUnit.SECONDS.toMillis(2)), "event-log-flush"));
+    }
+
+    private EventLog() {
+    }
+
+    // --- Ρυθμίσεις
+
+    // Ενεργά γίνονται τα γεγονότα της κατηγορίας με επίπεδο minimum και πάνω (null: κανένα)
+    public static synchronized void setLevel(Category category, Level minimum) {
+        long mask = enabled;
+        for (Level level : Level.values()) {
+            long bit = bit(category, level);
+            mask = minimum != null && level.compareTo(minimum) >= 0 ? mask | bit : mask & ~bit;
+        }
+        enabled = mask;
+    }
+
+    public static synchronized void setLevel(Level minimum) {
+        for (Category category : Category.values()) {
+            setLevel(category, minimum);
+        }
+    }
+
+    public static boolean isEnabled(Category category, Level level) {
+        return (enabled & bit(category, level)) != 0;
+    }
+
+    private static long bit(Category category, Level level) {
+        return 1L << (category.ordinal() * LEVELS + level.ordinal());
+    }
+
+    // "INFO" για όλες τις κατηγορίες ή "STOCK=DEBUG,ORDER=OFF" ανά κατηγορία
+    private static void configure(String setting) {
+        if (setting == null || setting.trim().isEmpty()) {
+            return;
+        }
+        for (String entry : setting.split(",")) {
+            String[] pair = entry.trim().split("=", 2);
+            try {
+                if (pair.length == 1) {
+                    setLevel(levelOf(pair[0]));
+                } else {
+                    setLevel(Category.valueOf(pair[0].trim().toUpperCase()), levelOf(pair[1]));
+                }
+            } catch (IllegalArgumentException e) {
+                System.err.println("Μη έγκυρη ρύθμιση καταγραφής: " + entry.trim());
+            }
+        }
+    }
+
+    private static Level levelOf(String name) {
+        String trimmed = name.trim().toUpperCase();
+        return trimmed.equals("OFF") ? null : Level.valueOf(trimmed);
+    }
+
+    // --- Καταγραφή (χωρίς δέσμευση μνήμης στον καλούντα)
+
+    static void log(Event event, Object first) {
+        log(event, first, null, 0, 0, 0, 0);
+    }
+
+    static void log(Event event, Object first, long a) {
+        log(event, first, null, a, 0, 0, 0);
+    }
+
+    static void log(Event event, Object first, long a, long b) {
+        log(event, first, null, a, b, 0, 0);
+    }
+
+    static void log(Event event, Object first, long a, long b, long c) {
+        log(event, first, null, a, b, c, 0);
+    }
+
+    static void log(Event event, Object first, long a, long b, long c, long d) {
+        log(event, first, null, a, b, c, d);
+    }
+
+    static void log(Event event, long a) {
+        log(event, null, null, a, 0, 0, 0);
+    }
+
+    static void log(Event event, long a, long b) {
+        log(event, null, null, a, b, 0, 0);
+    }
+
+    static void log(Event event, long a, Object first) {
+        log(event, first, null, a, 0, 0, 0);
+    }
+
+    static void log(Event event, long a, Object first, Object second) {
+        log(event, first, second, a, 0, 0, 0);
+    }
+
+    private static void log(Event event, Object first, Object second, long a, long b, long c, long d) {
+        if ((enabled & bit(event.category, event.level)) == 0) {
+            return;
+        }
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= CAPACITY) {
+                dropped.incrementAndGet(); // Ο αναγνώστης δεν προλαβαίνει: δεν περιμένουμε την κονσόλα
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        Slot slot = ring[(int) sequence & MASK];
+        slot.event = event;
+        slot.first = first;
+        slot.second = second;
+        slot.a = a;
+        slot.b = b;
+        slot.c = c;
+        slot.d = d;
+        slot.sequence = sequence; // Δημοσίευση
+        if (writerIdle) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    // Περιμένει (έως timeoutMillis) να γραφτούν όσα γεγονότα έχουν καταγραφεί ως τώρα
+    public static void flush(long timeoutMillis) {
+        long target = claimed.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (written < target && System.nanoTime() < deadline) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    public static long getDroppedCount() {
+        return dropped.get();
+    }
+
+    // --- Νήμα εγγραφής
+
+    private static void drain() {
+        StringBuilder batch = new StringBuilder(BATCH_CHARS * 2);
+        boolean batchIsWarning = false;
+        long next = 0;
+        while (true) {
+            Slot slot = ring[(int) next & MASK];
+            if (slot.sequence == next) {
+                Event event = slot.event;
+                boolean warning = event.level == Level.WARN;
+                if (warning != batchIsWarning && batch.length() > 0) {
+                    write(batch, batchIsWarning, next);
+                }
+                batchIsWarning = warning;
+                event.format(slot, batch);
+                slot.first = null; // Να μην κρατάμε αντικείμενα ζωντανά μέσω του δακτυλίου
+                slot.second = null;
+                consumed = ++next;
+                if (batch.length() >= BATCH_CHARS) {
+                    write(batch, batchIsWarning, next);
+                }
+                continue;
+            }
+            // Ο δακτύλιος άδειασε (ή το επόμενο γεγονός δεν έχει δημοσιευτεί ακόμα)
+            if (batch.length() > 0) {
+                write(batch, batchIsWarning, next);
+            }
+            written = next;
+            writerIdle = true;
+            if (slot.sequence != next) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            writerIdle = false;
+        }
+    }
+
+    private static void write(StringBuilder batch, boolean warning, long through) {
+        PrintStream stream = warning ? System.err : System.out; // Όποιο ισχύει τώρα (μπορεί να έχει αλλάξει με setOut)
+        stream.print(batch);
+        stream.flush();
+        batch.setLength(0);
+        long lost = dropped.get();
+        long now = System.nanoTime();
+        if (lost != reportedDropped && now - lastDropReport >= TimeUnit.SECONDS.toNanos(1)) {
+            lastDropReport = now;
+            System.err.println("Καταγραφή γεγονότων: χάθηκαν " + (lost - reportedDropped) + " γεγονότα (γεμάτος δακτύλιος).");
+            reportedDropped = lost;
+        }
+        written = through;
+    }
+}
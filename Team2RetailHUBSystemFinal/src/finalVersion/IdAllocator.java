@@ -0,0 +1,110 @@
+package finalVersion;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+// Κατανομή θετικών αριθμών ID (π.χ. πελατών) χωρίς αναζήτηση στη λίστα των εγγραφών.
+// - next: το μικρότερο ID που δεν έχει δοθεί ποτέ. Κανένα ID μικρότερο από αυτό δεν ξαναδίνεται,
+//   οπότε ID διαγραμμένων εγγραφών δεν επαναχρησιμοποιούνται.
+// - taken: ID μεγαλύτερα του next που πιάστηκαν ήδη (ρητά ID, μπλοκ για μαζική εισαγωγή), ως ταξινομημένα
+//   διαστήματα [αρχή, τέλος] που συγχωνεύονται όταν εφάπτονται. Ένα απομονωμένο ρητό ID (π.χ. 9999)
+//   κοστίζει μία εγγραφή, όχι bitmap μέχρι εκεί.
+// Το next() είναι O(1) αποσβεσμένα: όταν ο δείκτης φτάνει σε πιασμένο διάστημα, το προσπερνά μονομιάς.
+// Δεν είναι thread-safe· το προστατεύει ο manager που το κατέχει.
+class IdAllocator {
+    private int next = 1;
+    private final TreeMap<Integer, Integer> taken = new TreeMap<>();
+
+    // Το επόμενο ελεύθερο ID
+    int next() {
+        if (next == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Εξαντλήθηκαν τα διαθέσιμα ID.");
+        }
+        int id = next++;
+        skipTaken();
+        return id;
+    }
+
+    // Σημειώνει ένα ID που δόθηκε ρητά (π.χ. πελάτης με δικό του ID), ώστε να μη δοθεί από το next()
+    void markUsed(int id) {
+        if (id < next) {
+            return; // Ήδη πίσω από τον δείκτη: δεν θα δοθεί ποτέ
+        }
+        markRange(id, id);
+    }
+
+    // Δεσμεύει count συνεχόμενα ελεύθερα ID (για μαζική εισαγωγή) και επιστρέφει το πρώτο.
+    // Το μπλοκ είναι το πρώτο κενό αρκετού μεγέθους από τον δείκτη και μετά.
+    int reserveBlock(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Το πλήθος των ID πρέπει να είναι θετικό.");
+        }
+        long start = next;
+        for (Map.Entry<Integer, Integer> range : taken.entrySet()) {
+            if (range.getKey() - start >= count) {
+                break; // Το κενό πριν από αυτό το διάστημα χωράει το μπλοκ
+            }
+            start = range.getValue() + 1L;
+        }
+        if (start + count - 1 >= Integer.MAX_VALUE) {
+            throw new IllegalStateException("Δεν υπάρχουν " + count + " συνεχόμενα διαθέσιμα ID.");
+        }
+        markRange((int) start, (int) (start + count - 1));
+        return (int) start;
+    }
+
+    // Κατάσταση για αποθήκευση (βλ. SnapshotStore): [next, αρχή1, τέλος1, αρχή2, τέλος2, ...]
+    int[] state() {
+        int[] state = new int[1 + 2 * taken.size()];
+        state[0] = next;
+        int i = 1;
+        for (Map.Entry<Integer, Integer> range : taken.entrySet()) {
+            state[i++] = range.getKey();
+            state[i++] = range.getValue();
+        }
+        return state;
+    }
+
+    // Επαναφορά από state(). Ο δείκτης δεν γυρίζει ποτέ πίσω, ώστε ID που δόθηκαν ήδη να μην ξαναδοθούν.
+    void restore(int[] state) {
+        if (state.length == 0 || state.length % 2 == 0 || state[0] <= 0) {
+            throw new IllegalArgumentException("Μη έγκυρη κατάσταση κατανομής ID.");
+        }
+        next = Math.max(next, state[0]);
+        for (int i = 1; i < state.length; i += 2) {
+            if (state[i] > state[i + 1]) {
+                throw new IllegalArgumentException("Μη έγκυρη κατάσταση κατανομής ID.");
+            }
+            if (state[i + 1] >= next) {
+                markRange(Math.max(state[i], next), state[i + 1]);
+            }
+        }
+        skipTaken();
+    }
+
+    private void markRange(int from, int to) {
+        Map.Entry<Integer, Integer> before = taken.floorEntry(from);
+        if (before != null && before.getValue() >= from - 1L) {
+            // Εφάπτεται ή επικαλύπτεται με το προηγούμενο διάστημα: επέκταση
+            from = before.getKey();
+            to = Math.max(to, before.getValue());
+        }
+        // Απορρόφηση των επόμενων διαστημάτων που ξεκινούν μέσα ή αμέσως μετά το [from, to]
+        Map.Entry<Integer, Integer> after = taken.ceilingEntry(from);
+        while (after != null && after.getKey() <= to + 1L) {
+            to = Math.max(to, after.getValue());
+            taken.remove(after.getKey());
+            after = taken.ceilingEntry(from);
+        }
+        taken.put(from, to);
+        skipTaken();
+    }
+
+    // Αν ο δείκτης έπεσε στην αρχή πιασμένου διαστήματος, τον μεταφέρει αμέσως μετά το τέλος του
+    private void skipTaken() {
+        Integer end = taken.remove(next);
+        if (end != null) {
+            next = end == Integer.MAX_VALUE ? Integer.MAX_VALUE : end + 1;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package finalVersion;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+// Αποτέλεσμα μιας μαζικής εισαγωγής (βλ. BulkImporter): πόσες εγγραφές διαβάστηκαν, πόσες μπήκαν,
+// και οι γραμμές που απορρίφθηκαν με τον λόγο τους. Κρατούνται έως MAX_ERRORS σφάλματα· τα υπόλοιπα μόνο μετριούνται.
+public class ImportReport {
+    public static final int MAX_ERRORS = 1000;
+
+    // Μία γραμμή που απορρίφθηκε
+    public static final class RowError {
+        private final long lineNumber;
+        private final String message;
+
+        RowError(long lineNumber, String message) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "Γραμμή " + lineNumber + ": " + message;
+        }
+    }
+
+    private final String file;
+    private long rowsRead;
+    private long imported;
+    private long rejected;
+    private boolean cancelled;
+    private final List<RowError> errors = new ArrayList<>();
+
+    ImportReport(String file) {
+        this.file = file;
+    }
+
+    void addRowsRead(long rows) {
+        rowsRead += rows;
+    }
+
+    void addImported(long rows) {
+        imported += rows;
+    }
+
+    void reject(long lineNumber, String message) {
+        rejected++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(new RowError(lineNumber, message));
+        }
+    }
+
+    void markCancelled() {
+        cancelled = true;
+    }
+
+    // Τα σφάλματα έρχονται από διαφορετικά στάδια (ανάλυση, εισαγωγή): ταξινόμηση κατά γραμμή για την αναφορά
+    void sortErrors() {
+        errors.sort(Comparator.comparingLong(RowError::getLineNumber));
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    // Ακυρώθηκε πριν την καταχώρηση: τίποτα από το αρχείο δεν προστέθηκε
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public List<RowError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    @Override
+    public String toString() {
+        if (cancelled) {
+            return "Εισαγωγή από " + file + ": ακυρώθηκε, δεν προστέθηκε καμία εγγραφή.";
+        }
+        return "Εισαγωγή από " + file + ": " + rowsRead + " εγγραφές, " + imported + " καταχωρήθηκαν, " +
+               rejected + " απορρίφθηκαν.";
+    }
+}
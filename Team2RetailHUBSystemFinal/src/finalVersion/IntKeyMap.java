@@ -0,0 +1,237 @@
+package finalVersion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+// Πίνακας κατακερματισμού με κλειδιά int (χωρίς boxing σε Integer).
+// Ανοιχτή διευθυνσιοδότηση με γραμμική ανίχνευση: ο πίνακας "slots" δείχνει σε θέσεις των πυκνών
+// πινάκων keys/values, οι οποίοι κρατούν τις εγγραφές με τη σειρά εισαγωγής τους.
+public class IntKeyMap<V> {
+    private static final int EMPTY = -1;
+    private static final int DELETED = -2;
+    private static final int MIN_CAPACITY = 16;
+
+    public interface EntryVisitor<V> {
+        void visit(int key, V value);
+    }
+
+    private int[] slots;      // Θέση στους πυκνούς πίνακες ή EMPTY/DELETED
+    private int[] keys;       // Κλειδιά με σειρά εισαγωγής
+    private Object[] values;  // Τιμές με σειρά εισαγωγής (null = διαγραμμένη εγγραφή)
+    private int used;         // Πόσες θέσεις των πυκνών πινάκων έχουν χρησιμοποιηθεί (μαζί με τις διαγραμμένες)
+    private int size;         // Πόσες εγγραφές υπάρχουν πραγματικά
+    private int deletedSlots; // Πόσα DELETED υπάρχουν στον πίνακα slots
+
+    public IntKeyMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntKeyMap(int expectedSize) {
+        if (expectedSize < 0) throw new IllegalArgumentException("Το αναμενόμενο μέγεθος δεν μπορεί να είναι αρνητικό.");
+        int capacity = Math.max(MIN_CAPACITY, expectedSize);
+        this.keys = new int[capacity];
+        this.values = new Object[capacity];
+        this.slots = new int[tableSizeFor(capacity)];
+        Arrays.fill(slots, EMPTY);
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int slot = findSlot(key);
+        return slot < 0 ? null : (V) values[slots[slot]];
+    }
+
+    public boolean containsKey(int key) {
+        return findSlot(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) throw new IllegalArgumentException("Οι τιμές του IntKeyMap δεν μπορούν να είναι null.");
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            V previous = (V) values[slots[slot]];
+            values[slots[slot]] = value;
+            return previous;
+        }
+        insertNew(key, value);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(int key, V value) {
+        if (value == null) throw new IllegalArgumentException("Οι τιμές του IntKeyMap δεν μπορούν να είναι null.");
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            return (V) values[slots[slot]];
+        }
+        insertNew(key, value);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(int key, IntFunction<V> factory) {
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            return (V) values[slots[slot]];
+        }
+        V value = factory.apply(key);
+        if (value != null) {
+            insertNew(key, value);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return null;
+        }
+        int entry = slots[slot];
+        V previous = (V) values[entry];
+        values[entry] = null; // Η θέση στους πυκνούς πίνακες μένει κενή μέχρι την επόμενη συμπίεση
+        slots[slot] = DELETED;
+        deletedSlots++;
+        size--;
+        if (size == 0) {
+            clear();
+        }
+        return previous;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, EMPTY);
+        Arrays.fill(values, 0, used, null);
+        used = 0;
+        size = 0;
+        deletedSlots = 0;
+    }
+
+    // Επιστρέφει τις τιμές με τη σειρά εισαγωγής τους (αντίγραφο)
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> result = new ArrayList<>(size);
+        for (int i = 0; i < used; i++) {
+            if (values[i] != null) {
+                result.add((V) values[i]);
+            }
+        }
+        return result;
+    }
+
+    // Οι πρώτες (έως limit) τιμές με τη σειρά εισαγωγής, χωρίς να αντιγραφεί όλος ο χάρτης
+    @SuppressWarnings("unchecked")
+    public List<V> firstValues(int limit) {
+        List<V> result = new ArrayList<>(Math.max(0, Math.min(limit, size)));
+        for (int i = 0; i < used && result.size() < limit; i++) {
+            if (values[i] != null) {
+                result.add((V) values[i]);
+            }
+        }
+        return result;
+    }
+
+    // Επιστρέφει τα κλειδιά με τη σειρά εισαγωγής τους
+    public int[] keys() {
+        int[] result = new int[size];
+        int n = 0;
+        for (int i = 0; i < used; i++) {
+            if (values[i] != null) {
+                result[n++] = keys[i];
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryVisitor<? super V> visitor) {
+        for (int i = 0; i < used; i++) {
+            if (values[i] != null) {
+                visitor.visit(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    // --- Εσωτερικές μέθοδοι ---
+
+    private void insertNew(int key, Object value) {
+        if (used == keys.length || (used + 1 + deletedSlots) * 2 > slots.length) {
+            rebuild();
+        }
+        int mask = slots.length - 1;
+        int slot = hash(key) & mask;
+        while (slots[slot] >= 0) {
+            slot = (slot + 1) & mask;
+        }
+        if (slots[slot] == DELETED) {
+            deletedSlots--;
+        }
+        keys[used] = key;
+        values[used] = value;
+        slots[slot] = used;
+        used++;
+        size++;
+    }
+
+    private int findSlot(int key) {
+        int mask = slots.length - 1;
+        int slot = hash(key) & mask;
+        while (true) {
+            int entry = slots[slot];
+            if (entry == EMPTY) {
+                return -1;
+            }
+            if (entry >= 0 && keys[entry] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // Συμπιέζει τους πυκνούς πίνακες (αφαιρώντας τις διαγραμμένες εγγραφές) και ξαναχτίζει τον πίνακα slots
+    private void rebuild() {
+        int capacity = Math.max(MIN_CAPACITY, size * 2);
+        int[] newKeys = new int[capacity];
+        Object[] newValues = new Object[capacity];
+        int n = 0;
+        for (int i = 0; i < used; i++) {
+            if (values[i] != null) {
+                newKeys[n] = keys[i];
+                newValues[n] = values[i];
+                n++;
+            }
+        }
+        int[] newSlots = new int[tableSizeFor(capacity)];
+        Arrays.fill(newSlots, EMPTY);
+        int mask = newSlots.length - 1;
+        for (int i = 0; i < n; i++) {
+            int slot = hash(newKeys[i]) & mask;
+            while (newSlots[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            newSlots[slot] = i;
+        }
+        this.keys = newKeys;
+        this.values = newValues;
+        this.slots = newSlots;
+        this.used = n;
+        this.deletedSlots = 0;
+    }
+
+    // Ο πίνακας slots έχει πάντα τουλάχιστον διπλάσιο μέγεθος από τους πυκνούς πίνακες (load factor <= 0.5)
+    private static int tableSizeFor(int capacity) {
+        int n = Integer.highestOneBit(Math.max(MIN_CAPACITY, capacity) - 1) << 2;
+        return n > 0 ? n : 1 << 30;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
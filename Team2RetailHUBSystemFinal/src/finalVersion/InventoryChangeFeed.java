@@ -0,0 +1,145 @@
+package finalVersion;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Ροή αλλαγών αποθέματος ανά κωδικό προϊόντος.
+// Κάθε μεταβολή ενός Product (συνολικό/δεσμευμένο) καταγράφεται εδώ και οι μεταβολές του ίδιου
+// προϊόντος αθροίζονται μέχρι το επόμενο "tick". Σε κάθε tick οι συνδρομητές λαμβάνουν μία παρτίδα
+// με το πολύ μία StockChange ανά προϊόν, αντί για μία ειδοποίηση ανά μεταβολή.
+public class InventoryChangeFeed implements AutoCloseable {
+
+    public static final long DEFAULT_TICK_MILLIS = 100;
+
+    public interface Listener {
+        void stockChanged(List<StockChange> changes);
+    }
+
+    // Οι αθροισμένες μεταβολές ενός προϊόντος σε μία παρτίδα
+    public static final class StockChange {
+        private final Product product;
+        private int quantityDelta;
+        private int reservedDelta;
+        private int mutations;
+
+        private StockChange(Product product) {
+            this.product = product;
+        }
+
+        public Product getProduct() { return product; }
+        public int getProductCode() { return product.getCode(); }
+        public int getQuantityDelta() { return quantityDelta; }
+        public int getReservedDelta() { return reservedDelta; }
+        public int getAvailableDelta() { return quantityDelta - reservedDelta; }
+        public int getMutationCount() { return mutations; }
+
+        @Override
+        public String toString() {
+            return "Προϊόν " + product.getCode() + ": συνολικό " + quantityDelta + ", δεσμευμένο " + reservedDelta +
+                   " (" + mutations + " μεταβολές)";
+        }
+    }
+
+    private final long tickMillis;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private IntKeyMap<StockChange> pending = new IntKeyMap<>(); // guarded by this
+    private final Object deliveryLock = new Object();            // Μία παρτίδα τη φορά, με τη σειρά
+    private ScheduledExecutorService ticker;                     // guarded by this, ξεκινά με τον πρώτο συνδρομητή
+    private boolean closed;                                      // guarded by this
+
+    public InventoryChangeFeed() {
+        this(DEFAULT_TICK_MILLIS);
+    }
+
+    public InventoryChangeFeed(long tickMillis) {
+        if (tickMillis <= 0) throw new IllegalArgumentException("Το διάστημα του tick πρέπει να είναι θετικό.");
+        this.tickMillis = tickMillis;
+    }
+
+    public synchronized void subscribe(Listener listener) {
+        if (listener == null) throw new IllegalArgumentException("Ο listener δεν μπορεί να είναι null.");
+        if (closed) throw new IllegalStateException("Η ροή αλλαγών έχει κλείσει.");
+        listeners.add(listener);
+        if (ticker == null) {
+            ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "inventory-changes");
+                thread.setDaemon(true);
+                return thread;
+            });
+            ticker.scheduleWithFixedDelay(this::flush, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void unsubscribe(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Καλείται από το Product μετά από κάθε επιτυχημένη μεταβολή.
+    // Χωρίς συνδρομητές δεν κρατάμε τίποτα, ώστε η ροή να μην κοστίζει στις λειτουργίες αποθέματος.
+    void record(Product product, int quantityDelta, int reservedDelta) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            StockChange change = pending.get(product.getCode());
+            if (change == null || change.product != product) {
+                // Νέο προϊόν με τον ίδιο κωδικό μετά από διαγραφή: η προηγούμενη εγγραφή δεν ισχύει πια
+                change = new StockChange(product);
+                pending.put(product.getCode(), change);
+            }
+            change.quantityDelta += quantityDelta;
+            change.reservedDelta += reservedDelta;
+            change.mutations++;
+        }
+    }
+
+    // Παραδίδει αμέσως τις εκκρεμείς μεταβολές (το ίδιο κάνει και κάθε tick).
+    // Οι listeners καλούνται στο νήμα του καλούντος, χωρίς κανένα κλείδωμα αποθέματος.
+    public void flush() {
+        synchronized (deliveryLock) {
+            IntKeyMap<StockChange> batch;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new IntKeyMap<>(batch.size());
+            }
+            // Και οι μεταβολές που αλληλοαναιρέθηκαν μέσα στο tick παραδίδονται (με μηδενικές διαφορές):
+            // το απόθεμα πέρασε από άλλη τιμή και κάποιος συνδρομητής μπορεί να θέλει να το ξαναελέγξει
+            List<StockChange> changes = Collections.unmodifiableList(batch.values());
+            for (Listener listener : listeners) {
+                try {
+                    listener.stockChanged(changes);
+                } catch (RuntimeException e) {
+                    System.err.println("Σφάλμα στον listener της ροής αλλαγών αποθέματος: " + e);
+                }
+            }
+        }
+    }
+
+    public int getPendingCount() {
+        synchronized (this) {
+            return pending.size();
+        }
+    }
+
+    @Override
+    public void close() {
+        ScheduledExecutorService stopping;
+        synchronized (this) {
+            closed = true;
+            stopping = ticker;
+            ticker = null;
+        }
+        if (stopping != null) {
+            stopping.shutdown();
+        }
+        flush();
+        listeners.clear();
+    }
+}
@@ -1,25 +1,50 @@
 package finalVersion;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Collections; 
+import java.util.function.IntUnaryOperator;
 
 public class InventoryManager {
-    // Χρησιμοποιούμε List για την αποθήκευση προϊόντων
-    private List<Product> products;
+    // Κατάλογος προϊόντων με ευρετήριο κωδικού (O(1) αναζήτηση) που διατηρεί και τη σειρά εισαγωγής.
+    // Ο κατάλογος διαβάζεται και από νήματα παρασκηνίου (π.χ. αναζήτηση από το GUI), γι' αυτό κάθε
+    // πρόσβαση σε αυτόν γίνεται μέσα στο κλείδωμα του InventoryManager. Το απόθεμα κάθε προϊόντος
+    // αλλάζει ατομικά στο ίδιο το Product και δεν χρειάζεται αυτό το κλείδωμα.
+    private IntKeyMap<Product> products;
+    // Ευρετήριο τριγραμμάτων των ονομάτων για αναζήτηση κειμένου (ενημερώνεται στο ίδιο κλείδωμα με τον κατάλογο)
+    private final NameIndex<Product> nameIndex = new NameIndex<>(Product::getCode, Product::getName);
+    // Καλείται μία φορά ανά προϊόν μετά από αναπλήρωση για να κατανείμει το νέο απόθεμα σε backorders
+    // (κωδικός προϊόντος -> τεμάχια που κατανεμήθηκαν). Τον ορίζει ο OrderManager.
+    private volatile IntUnaryOperator backorderAllocator;
+    // Ημερολόγιο των αλλαγών (null: δεν γράφονται). Κάθε λειτουργία ανοίγει το Journal.Op της πριν από το
+    // κλείδωμα του καταλόγου, γι' αυτό οι synchronized λειτουργίες έχουν μη-synchronized δημόσια μέθοδο.
+    private volatile Journal journal;
+    // Ροή αλλαγών αποθέματος: κάθε προϊόν του καταλόγου της αναφέρει τις μεταβολές του
+    private final InventoryChangeFeed changeFeed = new InventoryChangeFeed();
+    private final Product.StockListener stockListener = changeFeed::record;
+    // Κρατήσεις αποθέματος με χρόνο λήξης (π.χ. όσο ο πελάτης επιβεβαιώνει την παραγγελία του)
+    private final ReservationHolds reservationHolds = new ReservationHolds(this);
 
     public InventoryManager() {
-        this.products = new ArrayList<>();
+        this.products = new IntKeyMap<>();
     }
 
     public boolean addNewProduct(int code, String name, double price, int quantity) {
+        try (Journal.Op op = Journal.begin(journal)) {
+            return addNewProduct(code, name, price, quantity, op);
+        }
+    }
+
+    private synchronized boolean addNewProduct(int code, String name, double price, int quantity, Journal.Op op) {
         if (getProductByCode(code) != null) { // Ελέγχουμε αν υπάρχει ήδη με αναζήτηση στη λίστα
             System.out.println("Προϊόν με κωδικό " + code + " υπάρχει ήδη. Δεν είναι δυνατή η προσθήκη.");
             return false;
         }
         try {
             Product newProduct = new Product(code, name, price, quantity);
-            products.add(newProduct);
+            register(newProduct);
+            op.append(new Journal.Entry().product(newProduct));
             System.out.println("Προϊόν προστέθηκε: " + name + " (Κωδ: " + code + ", Απόθεμα: " + quantity + ").");
             return true;
         } catch (IllegalArgumentException e) {
@@ -28,41 +53,61 @@ public class InventoryManager {
         }
     }
 
-    public Product getProductByCode(int code) {
-        for (Product p : products) {
-            if (p.getCode() == code) {
-                return p;
+    // Μαζική προσθήκη (π.χ. εισαγωγή αρχείου): ένα κλείδωμα για όλη τη λίστα, χωρίς μήνυμα ανά προϊόν.
+    // Επιστρέφει τις θέσεις της λίστας που απορρίφθηκαν επειδή ο κωδικός υπήρχε ήδη (ή εμφανίστηκε νωρίτερα στη λίστα).
+    public synchronized BitSet addProducts(List<Product> batch) {
+        BitSet rejected = new BitSet(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Product product = batch.get(i);
+            if (!register(product)) {
+                rejected.set(i);
             }
         }
-        return null;
+        System.out.println("Μαζική προσθήκη προϊόντων: " + (batch.size() - rejected.cardinality()) + " προστέθηκαν, " +
+                           rejected.cardinality() + " υπήρχαν ήδη.");
+        return rejected;
+    }
+
+    public synchronized Product getProductByCode(int code) {
+        return products.get(code);
     }
 
-    public List<Product> searchByNameOrCode(String query) {
+    public synchronized List<Product> searchByNameOrCode(String query) {
         List<Product> results = new ArrayList<>();
         if (query == null || query.trim().isEmpty()) {
             return results;
         }
 
-        String lowerCaseQuery = query.toLowerCase();
-
-        for (Product p : products) {
-            // Ελέγχουμε αν ταιριάζει με τον κωδικό (ακριβής αριθμητική σύγκριση)
-            if (String.valueOf(p.getCode()).equals(query)) { // Χρησιμοποιούμε equals για ακριβή σύγκριση κωδικού
-                results.add(p);
-            } else if (p.getName().toLowerCase().contains(lowerCaseQuery)) {
-                // Ελέγχουμε αν το όνομα περιέχει το query (case-insensitive)
+        // Ακριβής αντιστοιχία κωδικού πρώτα (O(1) από το ευρετήριο κωδικών)
+        Product byCode = null;
+        try {
+            byCode = products.get(Integer.parseInt(query.trim()));
+        } catch (NumberFormatException e) {
+            // Δεν είναι κωδικός· μόνο αναζήτηση ονόματος
+        }
+        if (byCode != null) {
+            results.add(byCode);
+        }
+        // Όνομα που περιέχει το query (χωρίς διάκριση πεζών/κεφαλαίων και τόνων), από το ευρετήριο τριγραμμάτων
+        for (Product p : nameIndex.findContaining(query)) {
+            if (p != byCode) {
                 results.add(p);
             }
         }
         return results;
     }
 
-    public void displayInventory() {
+    // Έως limit προϊόντα κατά συνάφεια ονόματος (πρώτα όσα αρχίζουν με το query), για αναζήτηση κατά την πληκτρολόγηση
+    public synchronized List<Product> searchByName(String query, int limit) {
+        return nameIndex.search(query, limit);
+    }
+
+    public synchronized void displayInventory() {
         if (products.isEmpty()) {
             System.out.println("Δεν υπάρχουν προϊόντα στο απόθεμα.");
         } else {
             System.out.println("--- Τρέχον Απόθεμα ---");
-            for (Product p : products) {
+            for (Product p : products.values()) {
                 p.displayInfo();
             }
             System.out.println("---------------------");
@@ -72,35 +117,50 @@ public class InventoryManager {
     public boolean increaseProductStock(int code, int quantityToAdd) {
         Product product = getProductByCode(code);
         if (product != null && quantityToAdd > 0) {
-            product.setQuantity(product.getQuantity() + quantityToAdd); // Αυξάνουμε το συνολικό stock
-            System.out.println("Απόθεμα αυξήθηκε για " + product.getName() + " κατά " + quantityToAdd + ". Νέο συνολικό απόθεμα: " + product.getQuantity());
+            try (Journal.Op op = Journal.begin(journal)) {
+                product.increaseQuantity(quantityToAdd); // Αυξάνουμε ατομικά το συνολικό stock
+                op.append(new Journal.Entry().stock(product, quantityToAdd, 0));
+            }
+            EventLog.log(EventLog.Event.STOCK_INCREASED, product.getName(), quantityToAdd, product.getQuantity());
             return true;
         }
-        System.out.println("Αποτυχία αύξησης αποθέματος για κωδικό προϊόντος " + code + ". Το προϊόν δεν βρέθηκε ή η ποσότητα είναι άκυρη.");
+        EventLog.log(EventLog.Event.STOCK_INCREASE_FAILED, code);
         return false;
     }
 
     public boolean decreaseProductStock(int code, int quantityToSubtract) {
         Product product = getProductByCode(code);
         if (product != null && quantityToSubtract > 0) {
-            if (product.getQuantity() >= quantityToSubtract) {
-                product.setQuantity(product.getQuantity() - quantityToSubtract); // Μειώνουμε το συνολικό stock
-                System.out.println("Απόθεμα μειώθηκε για " + product.getName() + " κατά " + quantityToSubtract + ". Νέο συνολικό απόθεμα: " + product.getQuantity());
+            // Έλεγχος και μείωση γίνονται ατομικά και μόνο από το διαθέσιμο (μη δεσμευμένο) απόθεμα
+            boolean removed;
+            try (Journal.Op op = Journal.begin(journal)) {
+                removed = product.removeStock(quantityToSubtract);
+                if (removed) {
+                    op.append(new Journal.Entry().stock(product, -quantityToSubtract, 0));
+                }
+            }
+            if (removed) {
+                EventLog.log(EventLog.Event.STOCK_DECREASED, product.getName(), quantityToSubtract, product.getQuantity());
                 return true;
             } else {
-                System.out.println("Αποτυχία μείωσης αποθέματος για " + product.getName() + ". Ανεπαρκές απόθεμα. Διαθέσιμο: " + product.getQuantity() + ", Ζητούμενο: " + quantityToSubtract);
+                EventLog.log(EventLog.Event.STOCK_DECREASE_SHORT, product.getName(), product.getAvailableQuantity(), quantityToSubtract);
             }
         }
-        System.out.println("Αποτυχία μείωσης αποθέματος για κωδικό προϊόντος " + code + ". Το προϊόν δεν βρέθηκε ή η ποσότητα είναι άκυρη.");
+        EventLog.log(EventLog.Event.STOCK_DECREASE_FAILED, code);
         return false;
     }
 
-    public boolean productExists(int productCode) {
-        return getProductByCode(productCode) != null; // Απλά ελέγχουμε αν η μέθοδος βρήκε το προϊόν
+    public synchronized boolean productExists(int productCode) {
+        return products.containsKey(productCode);
     }
 
-    public List<Product> getAllProducts() {
-        return Collections.unmodifiableList(new ArrayList<>(products)); // Επιστρέφουμε ένα αντίγραφο
+    public synchronized List<Product> getAllProducts() {
+        return Collections.unmodifiableList(products.values()); // Αντίγραφο με τη σειρά εισαγωγής
+    }
+
+    // Τα πρώτα (έως limit) προϊόντα με τη σειρά εισαγωγής, χωρίς αντιγραφή όλου του καταλόγου
+    public synchronized List<Product> getFirstProducts(int limit) {
+        return products.firstValues(limit);
     }
 
     public int getProductAvailableQuantity(int productCode) {
@@ -112,17 +172,15 @@ public class InventoryManager {
     }
 
     public boolean deleteProduct(int productCode) {
-        // Ελέγχουμε αν υπάρχει το προϊόν και το αφαιρούμε από τη λίστα
-        Product productToRemove = null;
-        for (Product p : products) {
-            if (p.getCode() == productCode) {
-                productToRemove = p;
-                break;
-            }
+        try (Journal.Op op = Journal.begin(journal)) {
+            return deleteProduct(productCode, op);
         }
+    }
 
-        if (productToRemove != null) {
-            products.remove(productToRemove);
+    private synchronized boolean deleteProduct(int productCode, Journal.Op op) {
+        // Αφαιρούμε το προϊόν απευθείας από το ευρετήριο
+        if (unregister(productCode) != null) {
+            op.append(new Journal.Entry().productRemoved(productCode));
             System.out.println("Προϊόν με κωδικό " + productCode + " διαγράφηκε.");
             return true;
         }
@@ -130,7 +188,173 @@ public class InventoryManager {
         return false;
     }
 
-	public void addStockToExisting(int code, int qty) {
-		
-	}
-}
\ No newline at end of file
+    // Μετονομασία μέσω του καταλόγου, ώστε να ενημερωθεί και το ευρετήριο ονομάτων
+    // (το Product.setName απευθείας δεν το ενημερώνει)
+    public boolean renameProduct(int productCode, String newName) {
+        try (Journal.Op op = Journal.begin(journal)) {
+            return renameProduct(productCode, newName, op);
+        }
+    }
+
+    private synchronized boolean renameProduct(int productCode, String newName, Journal.Op op) {
+        Product product = products.get(productCode);
+        if (product == null) {
+            System.out.println("Προϊόν με κωδικό " + productCode + " δεν βρέθηκε για μετονομασία.");
+            return false;
+        }
+        try {
+            product.setName(newName);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Σφάλμα κατά τη μετονομασία προϊόντος: " + e.getMessage());
+            return false;
+        }
+        nameIndex.add(product); // Αντικαθιστά την παλιά καταχώριση του κωδικού
+        op.append(new Journal.Entry().product(product));
+        System.out.println("Προϊόν με κωδικό " + productCode + " μετονομάστηκε σε " + newName + ".");
+        return true;
+    }
+
+    // Επανάληψη ημερολογίου (βλ. Journal): η εικόνα του προϊόντος όπως γράφτηκε, χωρίς μηνύματα και χωρίς νέα εγγραφή.
+    // Νέο προϊόν μπαίνει με το απόθεμα και τη δέσμευση της εικόνας· σε υπάρχον αλλάζουν μόνο όνομα και τιμή
+    // (το απόθεμά του διορθώνεται από τις δικές του εγγραφές).
+    synchronized void replayProduct(int code, String name, long priceCents, int quantity, int reserved) {
+        Product existing = products.get(code);
+        if (existing == null) {
+            Product product = new Product(code, name, 0, quantity);
+            product.setPriceCents(priceCents);
+            product.setReservedQuantity(reserved);
+            register(product);
+            return;
+        }
+        if (!existing.getName().equals(name)) {
+            existing.setName(name);
+            nameIndex.add(existing); // Αντικαθιστά την παλιά καταχώριση του κωδικού
+        }
+        existing.setPriceCents(priceCents);
+    }
+
+    synchronized void replayProductRemoved(int productCode) {
+        unregister(productCode);
+    }
+
+    public InventoryChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+
+    public ReservationHolds getReservationHolds() {
+        return reservationHolds;
+    }
+
+    void setBackorderAllocator(IntUnaryOperator backorderAllocator) {
+        this.backorderAllocator = backorderAllocator;
+    }
+
+    // Τεμάχια που γύρισαν στο διαθέσιμο απόθεμα (κράτηση που έληξε ή αποδεσμεύτηκε) κατανέμονται στα backorders,
+    // εφόσον το προϊόν είναι ακόμη στον κατάλογο
+    int allocateReleasedStock(Product product) {
+        IntUnaryOperator allocator = backorderAllocator;
+        if (allocator == null || product.getAvailableQuantity() <= 0 || getProductByCode(product.getCode()) != product) {
+            return 0;
+        }
+        return allocator.applyAsInt(product.getCode());
+    }
+
+    void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    Journal getJournal() {
+        return journal;
+    }
+
+    // Καταχώριση στον κατάλογο και στα ευρετήριά του (καλείται στο κλείδωμα). false αν ο κωδικός υπάρχει ήδη.
+    private boolean register(Product product) {
+        if (products.putIfAbsent(product.getCode(), product) != null) {
+            return false;
+        }
+        nameIndex.add(product);
+        product.setStockListener(stockListener);
+        return true;
+    }
+
+    // Αφαίρεση από τον κατάλογο και τα ευρετήριά του (καλείται στο κλείδωμα). null αν δεν υπήρχε.
+    private Product unregister(int productCode) {
+        Product removed = products.remove(productCode);
+        if (removed != null) {
+            nameIndex.remove(productCode);
+            removed.setStockListener(null); // Οι μεταβολές του (π.χ. ακύρωση παλιών παραγγελιών) δεν αφορούν πια τον κατάλογο
+        }
+        return removed;
+    }
+
+    // Αναπλήρωση ενός προϊόντος: παραλαβή μίας γραμμής
+    public RestockResult addStockToExisting(int code, int qty) {
+        return restock(new int[]{code}, new int[]{qty}).get(0);
+    }
+
+    // Αναπλήρωση από παραλαβή πολλών γραμμών (codes[i], quantities[i]).
+    // Οι γραμμές του ίδιου κωδικού αθροίζονται, το απόθεμα κάθε προϊόντος αυξάνεται με μία ατομική πράξη
+    // και η κατανομή backorder τρέχει μία φορά ανά προϊόν (όχι ανά γραμμή).
+    // Επιστρέφει μία σύνοψη ανά κωδικό, με τη σειρά που εμφανίστηκε πρώτη φορά στην παραλαβή.
+    public List<RestockResult> restock(int[] codes, int[] quantities) {
+        if (codes == null || quantities == null || codes.length != quantities.length) {
+            throw new IllegalArgumentException("Οι κωδικοί και οι ποσότητες της παραλαβής πρέπει να έχουν το ίδιο πλήθος.");
+        }
+
+        // 1. Ομαδοποίηση γραμμών ανά κωδικό (μόνο αυτό διαβάζει τον κατάλογο· η κατανομή τρέχει έξω από το κλείδωμα)
+        IntKeyMap<RestockResult> byCode = new IntKeyMap<>(Math.min(codes.length, 1 << 16));
+        synchronized (this) {
+            for (int i = 0; i < codes.length; i++) {
+                int code = codes[i];
+                RestockResult result = byCode.get(code);
+                if (result == null) {
+                    result = new RestockResult(code, products.get(code));
+                    byCode.put(code, result);
+                }
+                if (result.getProduct() == null || quantities[i] <= 0) {
+                    result.rejectLine();
+                } else {
+                    result.addLine(quantities[i]);
+                }
+            }
+        }
+
+        // 2. Εφαρμογή στο απόθεμα: μία αύξηση ανά προϊόν, όλη η παραλαβή μία εγγραφή στο ημερολόγιο.
+        // Η εγγραφή έχει μόνο όσες αυξήσεις έγιναν και γράφεται και όταν κάποια αποτύχει στη μέση
+        // (υπερχείλιση αποθέματος), ώστε το ημερολόγιο να μη μείνει πίσω από το απόθεμα.
+        List<RestockResult> results = byCode.values();
+        long totalUnits = 0;
+        int rejectedLines = 0;
+        try (Journal.Op op = Journal.begin(journal)) {
+            Journal.Entry entry = new Journal.Entry();
+            try {
+                for (RestockResult result : results) {
+                    rejectedLines += result.getRejectedLines();
+                    if (result.isApplied()) {
+                        result.getProduct().increaseQuantity(result.getQuantityAdded());
+                        entry.stock(result.getProduct(), result.getQuantityAdded(), 0);
+                        totalUnits += result.getQuantityAdded();
+                    }
+                }
+            } finally {
+                op.append(entry);
+            }
+        }
+
+        // 3. Κατανομή του νέου αποθέματος σε backorders, μία φορά ανά προϊόν που αναπληρώθηκε
+        int totalAllocated = 0;
+        if (backorderAllocator != null) {
+            for (RestockResult result : results) {
+                if (result.isApplied()) {
+                    result.setAllocatedToBackorders(backorderAllocator.applyAsInt(result.getProductCode()));
+                    totalAllocated += result.getAllocatedToBackorders();
+                }
+            }
+        }
+
+        System.out.println("Αναπλήρωση: " + codes.length + " γραμμές, " + results.size() + " προϊόντα, +" + totalUnits + " τεμάχια" +
+                           (rejectedLines > 0 ? ", απορρίφθηκαν " + rejectedLines + " γραμμές" : "") +
+                           ", κατανεμήθηκαν σε backorders: " + totalAllocated + ".");
+        return results;
+    }
+}
@@ -5,18 +5,26 @@ import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Collections; 
 import java.util.Date;
 import java.time.ZoneId;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.chrono.ChronoLocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Iterator;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.Vector;
-import java.util.stream.Collectors;
 
 
 public class InventoryOrderGUI extends JFrame {
@@ -25,7 +33,17 @@ public class InventoryOrderGUI extends JFrame {
     private InventoryManager inventoryManager;
     private CustomerManager customerManager;
     private OrderManager orderManager;
-    private List<Sale> salesHistory;
+    private SalesLedger salesLedger;
+    private SalesRollup salesRollup;
+    private BulkImporter bulkImporter;
+    private SnapshotStore snapshotStore;
+    /** Where the whole state is saved on exit and restored from on startup. */
+    private static final Path SNAPSHOT_FILE = Path.of("retailhub.snapshot");
+    /** Records every change made after the snapshot, so a crash loses nothing that was confirmed. */
+    private Journal journal;
+    private static final Path JOURNAL_FILE = Path.of("retailhub.journal");
+    // Off if the snapshot or its journal could not be read, so they are not overwritten
+    private boolean saveSnapshotOnExit = true;
 
     // GUI Components
     private JTabbedPane tabbedPane;
@@ -35,6 +53,26 @@ public class InventoryOrderGUI extends JFrame {
     private JTable orderTable; 
     private JTable currentOrderItemsTable; 
     private JTable salesHistoryTable; 
+    private JLabel salesTotalsLabel;
+
+    // Live table models: rows are the entities themselves and only changed rows are repainted
+    private static final DateTimeFormatter TABLE_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    /** Most matches a search chooser shows, best matches first. */
+    private static final int CHOOSER_MATCH_LIMIT = 50;
+    private EntityTableModel<Product> productTableModel;
+    private EntityTableModel<Customer> customerTableModel;
+    private PagedTableModel<Order> orderTableModel;   // Orders and sales can run into millions: paged, not copied
+    private PagedTableModel<Sale> salesTableModel;
+    private boolean salesTableShowsAll = true;
+
+    // Backend operations that take product locks or scan data run here, off the Event Dispatch Thread
+    private BackgroundTasks backgroundTasks;
+
+    // Changes reported by the backend listeners; applied to the tables by applyChanges()
+    private final Set<Integer> changedOrderIds = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> changedProductCodes = ConcurrentHashMap.newKeySet();
+    // Only whether sales were recorded matters (they are read from the ledger); a bulk import records millions
+    private final AtomicBoolean salesRecorded = new AtomicBoolean();
 
     // Fields for New Product Panel
     private JTextField newProductCodeField;
@@ -58,10 +96,14 @@ public class InventoryOrderGUI extends JFrame {
     private JComboBox<String> customerOrderProductChooser;
     private JTextField customerOrderProductCodeField; 
     private JTextField customerOrderQuantityField;
-    private JCheckBox allowBackorderCheckbox; 
+    private JComboBox<ReservationPolicy> reservationPolicyChooser; 
     private List<OrderItem> currentOrderItems; 
     private JTextField orderIdField;
     private JComboBox<String> backorderProductChooser;
+    // Keep the choosers above filled with the top matches of their search fields
+    private SearchChooser<Customer> orderCustomerSearch;
+    private SearchChooser<Product> orderProductSearch;
+    private SearchChooser<Product> backorderProductSearch;
     private JTextField salesCustomerSearchField;
 	private BorderFactory BorderBorderFactory;
 	private Component selectedProductLabel;
@@ -71,18 +113,31 @@ public class InventoryOrderGUI extends JFrame {
 
     public InventoryOrderGUI() {
         super("Inventory and Order Management System"); 
-        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE); 
+        setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE); // See exitSavingSnapshot()
         setSize(1200, 800); 
         setLocationRelativeTo(null); 
 
         // Initialize backend managers
         inventoryManager = new InventoryManager();
         customerManager = new CustomerManager();
-        orderManager = new OrderManager(inventoryManager);
-        salesHistory = new ArrayList<>(); 
-
-        // Add some initial data for demonstration
-        addInitialData();
+        salesLedger = new SalesLedger();
+        orderManager = new OrderManager(inventoryManager, salesLedger);
+        salesRollup = SalesRollup.attachTo(salesLedger);
+        orderManager.addOrderListener(order -> changedOrderIds.add(order.getId()));
+        salesLedger.addListener(sale -> salesRecorded.set(true));
+        bulkImporter = new BulkImporter(inventoryManager, customerManager, salesLedger);
+
+        snapshotStore = new SnapshotStore(inventoryManager, customerManager, orderManager, salesLedger);
+        journal = new Journal(JOURNAL_FILE, inventoryManager, customerManager, orderManager, salesLedger);
+
+        // Continue from the last saved state; the demonstration data is only added on a first run
+        boolean restored = loadSnapshot();
+        if (!restored) {
+            addInitialData();
+        }
+        if (saveSnapshotOnExit) {
+            openJournal(restored);
+        }
 
         // Initialize GUI components
         tabbedPane = new JTabbedPane();
@@ -90,6 +145,8 @@ public class InventoryOrderGUI extends JFrame {
         outputArea.setEditable(false);
         outputArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
         JScrollPane outputScrollPane = new JScrollPane(outputArea);
+        backgroundTasks = new BackgroundTasks(message -> outputArea.append(message + "\n"));
+        setJMenuBar(createMenuBar());
 
         // Add tabs 
         tabbedPane.addTab("Inventory Management", createInventoryPanel());
@@ -103,19 +160,239 @@ public class InventoryOrderGUI extends JFrame {
         Container contentPane = getContentPane();
         contentPane.setLayout(new BorderLayout());
         contentPane.add(tabbedPane, BorderLayout.CENTER);
-        contentPane.add(outputScrollPane, BorderLayout.SOUTH);
+        JPanel southPanel = new JPanel(new BorderLayout());
+        southPanel.add(outputScrollPane, BorderLayout.CENTER);
+        southPanel.add(backgroundTasks.getStatusBar(), BorderLayout.SOUTH);
+        contentPane.add(southPanel, BorderLayout.SOUTH);
+
+        loadAllTables();
+        // Stock changes from any source (background tasks, automatic backorder allocation) arrive coalesced,
+        // one per product per feed batch, and repaint their rows on the EDT
+        inventoryManager.getChangeFeed().subscribe(changes -> {
+            for (InventoryChangeFeed.StockChange change : changes) {
+                changedProductCodes.add(change.getProductCode());
+            }
+            SwingUtilities.invokeLater(this::applyChanges);
+        });
+        orderManager.setAutoAllocation(true);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                exitSavingSnapshot();
+            }
+        });
+    }
+
+    /**
+     * Restores the state saved in {@link #SNAPSHOT_FILE}, if there is one.
+     * A snapshot that cannot be read is left in place (and not overwritten on exit) and the application starts
+     * with the demonstration data.
+     */
+    private boolean loadSnapshot() {
+        try {
+            return snapshotStore.load(SNAPSHOT_FILE);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Snapshot " + SNAPSHOT_FILE + " was not loaded: " + e.getMessage());
+            saveSnapshotOnExit = false;
+            return false;
+        }
+    }
+
+    /**
+     * Replays the journal written since the restored snapshot, or starts one with a fresh snapshot
+     * (first run, or a snapshot saved without a journal). If that fails the application runs without a journal.
+     */
+    private void openJournal(boolean restored) {
+        try {
+            long generation = snapshotStore.getJournalGeneration();
+            if (restored && generation > 0) {
+                journal.recover(generation);
+            } else {
+                journal.checkpoint(snapshotStore, SNAPSHOT_FILE);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Journal " + JOURNAL_FILE + " was not opened: " + e.getMessage());
+            saveSnapshotOnExit = false;
+        }
+    }
+
+    /**
+     * Saves the snapshot after the queued backend operations (so it sees their results) and exits.
+     * If saving fails the user decides whether to exit anyway.
+     */
+    private void exitSavingSnapshot() {
+        if (!saveSnapshotOnExit) {
+            System.exit(0);
+        }
+        backgroundTasks.submit("Saving snapshot",
+                control -> {
+                    try {
+                        journal.checkpoint(snapshotStore, SNAPSHOT_FILE);
+                        return null;
+                    } catch (IOException e) {
+                        return e.getMessage();
+                    }
+                },
+                error -> {
+                    if (error != null && JOptionPane.showConfirmDialog(this,
+                            "The snapshot could not be saved (" + error + "). Exit anyway?",
+                            "Save Snapshot", JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+                        return;
+                    }
+                    System.exit(0);
+                });
+    }
+
+    /** Bulk loads a product, customer or sales file; implemented by {@link BulkImporter}. */
+    private interface ImportAction {
+        ImportReport run(Path file, TaskControl control) throws Exception;
+    }
+
+    /**
+     * File menu with the bulk imports of legacy data (delimited text files, see {@link BulkImporter})
+     * and saving the snapshot on demand (see {@link SnapshotStore}).
+     */
+    private JMenuBar createMenuBar() {
+        JMenu fileMenu = new JMenu("File");
+        fileMenu.add(importMenuItem("Import Products...", bulkImporter::importProducts));
+        fileMenu.add(importMenuItem("Import Customers...", bulkImporter::importCustomers));
+        fileMenu.add(importMenuItem("Import Sales History...", bulkImporter::importSales));
+        fileMenu.addSeparator();
+        JMenuItem saveItem = new JMenuItem("Save Snapshot");
+        saveItem.addActionListener(e -> backgroundTasks.submit("Saving snapshot",
+                control -> {
+                    journal.checkpoint(snapshotStore, SNAPSHOT_FILE);
+                    return null;
+                },
+                done -> {
+                    outputArea.append("Snapshot saved to " + SNAPSHOT_FILE.toAbsolutePath() + ".\n");
+                    saveSnapshotOnExit = true;
+                }));
+        fileMenu.add(saveItem);
+        JMenuBar menuBar = new JMenuBar();
+        menuBar.add(fileMenu);
+        return menuBar;
+    }
+
+    private JMenuItem importMenuItem(String title, ImportAction action) {
+        JMenuItem item = new JMenuItem(title);
+        item.addActionListener(e -> importFile(title.replace("...", ""), action));
+        return item;
+    }
+
+    /**
+     * Asks for a file and imports it in the background (with progress and Cancel in the status bar).
+     * Rejected lines are listed in the output area; the tables and choosers are reloaded afterwards.
+     */
+    private void importFile(String title, ImportAction action) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle(title);
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        backgroundTasks.submit(title + " from " + file.getFileName(),
+                control -> {
+                    ImportReport report = action.run(file, control);
+                    // Imports are not journaled: a new snapshot makes them durable
+                    if (!report.isCancelled() && journal.isOpen()) {
+                        journal.checkpoint(snapshotStore, SNAPSHOT_FILE);
+                    }
+                    return report;
+                },
+                report -> {
+                    if (report.isCancelled()) {
+                        outputArea.append(title + " cancelled; nothing was imported from " + file.getFileName() + ".\n");
+                        return;
+                    }
+                    outputArea.append(title + " from " + file.getFileName() + ": " + report.getImported() + " of " +
+                            report.getRowsRead() + " record(s) imported, " + report.getRejected() + " line(s) rejected.\n");
+                    List<ImportReport.RowError> errors = report.getErrors();
+                    int shown = Math.min(errors.size(), 20);
+                    for (ImportReport.RowError error : errors.subList(0, shown)) {
+                        outputArea.append("  Line " + error.getLineNumber() + ": " + error.getMessage() + "\n");
+                    }
+                    if (report.getRejected() > shown) {
+                        outputArea.append("  ... and " + (report.getRejected() - shown) + " more rejected line(s).\n");
+                    }
+                    reloadAfterImport();
+                });
+    }
 
-        populateCustomerProductChoosers();
-        refreshAllTables();
+    /** An import may touch any number of rows (and sales anywhere in the history): reload instead of patching. */
+    private void reloadAfterImport() {
+        updateProductTable();
+        updateCustomerTable();
+        updateSalesHistoryTable(null);
+        salesRecorded.set(false);
+        orderCustomerSearch.refresh();
+        orderProductSearch.refresh();
+        backorderProductSearch.refresh();
     }
 
-    private void refreshAllTables() {
+    /**
+     * Creates the live table models and fills them once. After this, actions only touch the rows they changed.
+     */
+    private void loadAllTables() {
+        productTableModel = new EntityTableModel<>(
+                new String[]{"Code", "Name", "Price", "Total Qty", "Reserved Qty", "Available Qty"},
+                Product::getCode, this::productCell);
+        customerTableModel = new EntityTableModel<>(
+                new String[]{"ID", "Name", "Email", "Phone", "Address", "Age"},
+                Customer::getId, this::customerCell);
+        orderTableModel = new PagedTableModel<>(
+                new String[]{"Order ID", "Customer", "Date", "Total Value", "Status", "Backordered Items"},
+                Order::getId, this::orderCell);
+        salesTableModel = new PagedTableModel<>(
+                new String[]{"Sale ID", "Order ID", "Customer", "Sale Date", "Total Value", "Items Sold"},
+                Sale::getSaleId, this::saleCell);
+
+        productTable.setModel(productTableModel);
+        customerTable.setModel(customerTableModel);
+        orderTable.setModel(orderTableModel);
+        salesHistoryTable.setModel(salesTableModel);
+        styleTable(productTable);
+        styleTable(customerTable);
+        styleTable(orderTable);
+        styleTable(salesHistoryTable);
+
         updateProductTable();
         updateCustomerTable();
         updateOrderTable();
-        updateCurrentOrderItemsTable(); 
-        updateSalesHistoryTable(null); 
-        populateCustomerProductChoosers(); 
+        updateCurrentOrderItemsTable();
+        updateSalesHistoryTable(null);
+        salesRecorded.set(false); // Already included in the full load
+    }
+
+    /**
+     * Applies the changes reported by the backend since the last call: repaints the rows of orders whose
+     * status changed (and of their products), the products marked by the action, and appends new sales.
+     */
+    private void applyChanges() {
+        orderTableModel.rowsAppended(); // New orders are registered at the end
+        for (Iterator<Integer> it = changedOrderIds.iterator(); it.hasNext(); ) {
+            int orderId = it.next();
+            it.remove();
+            Order order = orderManager.findById(orderId);
+            if (order == null) {
+                continue;
+            }
+            orderTableModel.update(orderId); // Repaints the row if it is on a loaded page
+            for (OrderItem item : order.getItems()) {
+                changedProductCodes.add(item.getProduct().getCode());
+            }
+        }
+        for (Iterator<Integer> it = changedProductCodes.iterator(); it.hasNext(); ) {
+            productTableModel.update(it.next());
+            it.remove();
+        }
+        if (salesRecorded.getAndSet(false)) {
+            // New sales are timestamped "now", so they are appended at the end of the ledger order
+            if (salesTableShowsAll) {
+                salesTableModel.rowsAppended();
+            }
+            updateSalesTotalsLabel();
+        }
     }
 
     private void addInitialData() {
@@ -153,12 +430,17 @@ public class InventoryOrderGUI extends JFrame {
                     "Confirm Deletion", JOptionPane.YES_NO_OPTION);
 
             if (confirm == JOptionPane.YES_OPTION) {
-                if (customerManager.deleteCustomer(customerId)) {
-                    outputArea.append("Customer with ID " + customerId + " deleted successfully.\n");
-                    refreshAllTables();
-                } else {
-                    outputArea.append("Failed to delete customer with ID " + customerId + ". They may have existing orders.\n");
-                }
+                Customer customer = customerManager.getCustomerById(customerId);
+                backgroundTasks.submit("Deleting customer " + customerId,
+                        control -> customer != null && customerManager.deleteCustomer(customerId),
+                        deleted -> {
+                            if (deleted) {
+                                outputArea.append("Customer with ID " + customerId + " deleted successfully.\n");
+                                customerRemoved(customer);
+                            } else {
+                                outputArea.append("Failed to delete customer with ID " + customerId + ". They may have existing orders.\n");
+                            }
+                        });
             }
         } catch (Exception ex) {
             JOptionPane.showMessageDialog(this, "Error deleting customer: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
@@ -168,59 +450,85 @@ public class InventoryOrderGUI extends JFrame {
 
     
     private void updateProductTable() {
-        String[] columns = {"Code", "Name", "Price", "Total Qty", "Reserved Qty", "Available Qty"};
-        DefaultTableModel model = new DefaultTableModel(columns, 0);
-        for (Product p : inventoryManager.getAllProducts()) {
-            model.addRow(new Object[]{
-                p.getCode(),
-                p.getName(),
-                String.format("%.2f€", p.getPrice()),
-                p.getQuantity(),       // Συνολική ποσότητα
-                p.getReservedQuantity(), // Δεσμευμένη ποσότητα
-                p.getAvailableQuantity() // Διαθέσιμη ποσότητα
-            });
-        }
-        productTable.setModel(model);
-        styleTable(productTable);
+        productTableModel.setRows(inventoryManager.getAllProducts());
     }
 
     private void updateCustomerTable() {
-        String[] columns = {"ID", "Name", "Email", "Phone", "Address", "Age"};
-        DefaultTableModel model = new DefaultTableModel(columns, 0);
-        for (Customer c : customerManager.getAllCustomers()) {
-            model.addRow(new Object[]{c.getId(), c.getName(), c.getEmail(),
-                                     c.getPhone(), c.getAddress(), c.getAge()});
-        }
-        customerTable.setModel(model);
-        styleTable(customerTable);
+        customerTableModel.setRows(customerManager.getAllCustomers());
     }
 
     private void updateOrderTable() {
-        String[] columns = {"Order ID", "Customer", "Date", "Total Value", "Status", "Backordered Items"};
-        DefaultTableModel model = new DefaultTableModel(columns, 0);
+        orderTableModel.setSource(new PagedTableModel.RowSource<Order>() {
+            @Override
+            public int size() {
+                return orderManager.getOrderCount();
+            }
+
+            @Override
+            public List<Order> range(int from, int count) {
+                return orderManager.getOrdersRange(from, count);
+            }
+        });
+    }
 
-        // Χρησιμοποιούμε getAllOrders()
-        for (Order order : orderManager.getAllOrders()) {
-            String status = order.getStatus().toString();
-            String backorderedStatus = order.hasBackorderedItems() ? "YES" : "NO";
+    // --- Cell readers: values are computed only for the rows the table actually paints
 
+    private Object productCell(Product p, int column) {
+        switch (column) {
+            case 0: return p.getCode();
+            case 1: return p.getName();
+            case 2: return Money.format(p.getPriceCents());
+            case 3: return p.getQuantity();          // Συνολική ποσότητα
+            case 4: return p.getReservedQuantity();  // Δεσμευμένη ποσότητα
+            default: return p.getAvailableQuantity(); // Διαθέσιμη ποσότητα
+        }
+    }
 
-            Date oldDate = order.getTimestamp();
-            LocalDateTime localDateTime = oldDate.toInstant()
-                                                 .atZone(ZoneId.systemDefault())
-                                                 .toLocalDateTime();
+    private Object customerCell(Customer c, int column) {
+        switch (column) {
+            case 0: return c.getId();
+            case 1: return c.getName();
+            case 2: return c.getEmail();
+            case 3: return c.getPhone();
+            case 4: return c.getAddress();
+            default: return c.getAge();
+        }
+    }
 
-            model.addRow(new Object[]{
-                order.getId(),
-                order.getCustomer().getName() + " (ID: " + order.getCustomer().getId() + ")",
-                localDateTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")),
-                String.format("%.2f€", order.getTotalValue()).replace('.', ','),
-                status,
-                backorderedStatus
-            });
+    private Object orderCell(Order order, int column) {
+        switch (column) {
+            case 0: return order.getId();
+            case 1: return order.getCustomer().getName() + " (ID: " + order.getCustomer().getId() + ")";
+            case 2: return formatTableDate(order.getTimestamp());
+            case 3: return Money.format(order.getTotalValueCents()).replace('.', ',');
+            case 4: return order.getStatus().toString();
+            default: return order.hasBackorderedItems() ? "YES" : "NO";
         }
-        orderTable.setModel(model);
-        styleTable(orderTable);
+    }
+
+    private Object saleCell(Sale sale, int column) {
+        switch (column) {
+            case 0: return sale.getSaleId();
+            case 1: return sale.getOrderId();
+            case 2: return sale.getCustomer().getName() + " (ID: " + sale.getCustomer().getId() + ")";
+            case 3: return formatTableDate(sale.getSaleDate());
+            case 4: return Money.format(sale.getTotalSaleValueCents()).replace('.', ',');
+            default: {
+                StringBuilder details = new StringBuilder();
+                for (OrderItem item : sale.getSoldItems()) {
+                    details.append(item.getProduct().getName())
+                           .append(" x")
+                           .append(item.getRequestedQty())
+                           .append("; ");
+                }
+                if (details.length() >= 2) details.setLength(details.length() - 2);
+                return details.toString();
+            }
+        }
+    }
+
+    private static String formatTableDate(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime().format(TABLE_DATE_FORMAT);
     }
 
     private void updateCurrentOrderItemsTable() {
@@ -239,65 +547,105 @@ public class InventoryOrderGUI extends JFrame {
     }
 
     private void updateSalesHistoryTable(List<Sale> filteredSales) {
-        String[] columns = {"Sale ID", "Order ID", "Customer", "Sale Date", "Total Value", "Items Sold"};
-        DefaultTableModel model = new DefaultTableModel(columns, 0);
-        List<Sale> list = (filteredSales != null) ? filteredSales : salesHistory;
-
-        for (Sale sale : list) {
-            StringBuilder details = new StringBuilder();
-            for (OrderItem item : sale.getSoldItems()) {
-                details.append(item.getProduct().getName())
-                       .append(" x")
-                       .append(item.getRequestedQty())
-                       .append("; ");
-            }
-            if (details.length() >= 2) details.setLength(details.length() - 2);
-
-            String dt = sale.getSaleDate().toInstant()
-                           .atZone(ZoneId.systemDefault())
-                           .toLocalDateTime()
-                           .format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        // While a search result is shown, new sales are not appended to it
+        salesTableShowsAll = (filteredSales == null);
+        if (salesTableShowsAll) {
+            salesTableModel.setSource(new PagedTableModel.RowSource<Sale>() {
+                @Override
+                public int size() {
+                    return salesLedger.size();
+                }
 
-            model.addRow(new Object[]{
-                sale.getSaleId(),
-                sale.getOrderId(),
-                sale.getCustomer().getName() + " (ID: " + sale.getCustomer().getId() + ")",
-                dt,
-                String.format("%.2f€", sale.getTotalSaleValue()).replace('.', ','),
-                details.toString()
+                @Override
+                public List<Sale> range(int from, int count) {
+                    return salesLedger.getRange(from, count);
+                }
             });
+        } else {
+            salesTableModel.setSource(PagedTableModel.of(filteredSales));
         }
+        updateSalesTotalsLabel();
+    }
 
-        salesHistoryTable.setModel(model);
-        styleTable(salesHistoryTable);
+    /**
+     * Shows today's, this month's and all-time sales totals from the rollups (no scan of the sales).
+     */
+    private void updateSalesTotalsLabel() {
+        LocalDate today = LocalDate.now(salesLedger.getZone());
+        SalesTotals day = salesRollup.getDayTotals(today);
+        SalesTotals month = salesRollup.getMonthTotals(YearMonth.from(today));
+        SalesTotals all = salesRollup.getGrandTotals();
+        salesTotalsLabel.setText("Today: " + Money.format(day.getRevenueCents()) + " (" + day.getOrders() + " sales)   " +
+                "This month: " + Money.format(month.getRevenueCents()) + " (" + month.getOrders() + " sales)   " +
+                "All time: " + Money.format(all.getRevenueCents()) + " (" + all.getOrders() + " sales)");
     }
 
-    private void populateCustomerProductChoosers() {
-        // --- Customers ---
-        customerOrderCustomerChooser.removeAllItems();
-        allCustomerItems.clear();
-        for (Customer c : customerManager.getAllCustomers()) {
-            String display = c.getName() + " (ID: " + c.getId() + ")";
-            customerOrderCustomerChooser.addItem(display);
-            allCustomerItems.add(display);
-        }
+    // Targeted updates for a single added/removed entity (no full repopulation)
 
-        // Ensure searchable behavior is attached
-        customerOrderCustomerChooser.setEditable(false);
+    private static String customerChooserText(Customer c) {
+        return c.getName() + " (ID: " + c.getId() + ")";
+    }
 
-        // --- Products ---
-        customerOrderProductChooser.removeAllItems();
-        backorderProductChooser.removeAllItems();
-        allProductItems.clear();
-        for (Product p : inventoryManager.getAllProducts()) {
-            String display = p.getName() + " (Code: " + p.getCode() + ")";
-            customerOrderProductChooser.addItem(display);
-            backorderProductChooser.addItem(display);
-            allProductItems.add(display);
+    private static String productChooserText(Product p) {
+        return p.getName() + " (Code: " + p.getCode() + ")";
+    }
+
+    private void customerAdded(Customer c) {
+        customerTableModel.add(c);
+        orderCustomerSearch.refresh();
+    }
+
+    private void customerRemoved(Customer c) {
+        customerTableModel.remove(c.getId());
+        orderCustomerSearch.refresh();
+    }
+
+    private void productAdded(Product p) {
+        productTableModel.add(p);
+        orderProductSearch.refresh();
+        backorderProductSearch.refresh();
+    }
+
+    private void productRemoved(Product p) {
+        productTableModel.remove(p.getCode());
+        orderProductSearch.refresh();
+        backorderProductSearch.refresh();
+    }
+
+    /** Chooser query: exact ID first, then ranked name matches; the first customers when the text is empty. Runs off the EDT. */
+    private List<Customer> findCustomers(String text, int limit) {
+        if (text.isEmpty()) {
+            return customerManager.getFirstCustomers(limit);
         }
+        List<Customer> matches = new ArrayList<>();
+        try {
+            Customer byId = customerManager.getCustomerById(Integer.parseInt(text));
+            if (byId != null) matches.add(byId);
+        } catch (NumberFormatException e) {
+            // Not an ID; search by name only
+        }
+        for (Customer c : customerManager.searchByName(text, limit)) {
+            if (matches.size() < limit && !matches.contains(c)) matches.add(c);
+        }
+        return matches;
+    }
 
-        // Ensure searchable behavior is attached
-        customerOrderProductChooser.setEditable(false);
+    /** Chooser query: exact code first, then ranked name matches; the first products when the text is empty. Runs off the EDT. */
+    private List<Product> findProducts(String text, int limit) {
+        if (text.isEmpty()) {
+            return inventoryManager.getFirstProducts(limit);
+        }
+        List<Product> matches = new ArrayList<>();
+        try {
+            Product byCode = inventoryManager.getProductByCode(Integer.parseInt(text));
+            if (byCode != null) matches.add(byCode);
+        } catch (NumberFormatException e) {
+            // Not a code; search by name only
+        }
+        for (Product p : inventoryManager.searchByName(text, limit)) {
+            if (matches.size() < limit && !matches.contains(p)) matches.add(p);
+        }
+        return matches;
     }
 
     // --- GUI Panel Creation Methods ---
@@ -399,16 +747,21 @@ public class InventoryOrderGUI extends JFrame {
         try {
             int code = Integer.parseInt(newProductCodeField.getText());
             String name = newProductNameField.getText();
-            double price = Double.parseDouble(newProductPriceField.getText());
+            double price = Money.toDouble(Money.parse(newProductPriceField.getText())); // rounded to whole cents
             int quantity = Integer.parseInt(newProductQuantityField.getText());
 
-            if (inventoryManager.addNewProduct(code, name, price, quantity)) {
-                outputArea.append("Product added: " + name + "\n");
-                clearNewProductFields();
-                refreshAllTables();
-            } else {
-                outputArea.append("Failed to add product (code might exist or invalid data).\n");
-            }
+            // The new product is written to the journal, so the call stays off the EDT
+            backgroundTasks.submit("Adding product " + code,
+                    control -> inventoryManager.addNewProduct(code, name, price, quantity),
+                    added -> {
+                        if (added) {
+                            outputArea.append("Product added: " + name + "\n");
+                            clearNewProductFields();
+                            productAdded(inventoryManager.getProductByCode(code));
+                        } else {
+                            outputArea.append("Failed to add product (code might exist or invalid data).\n");
+                        }
+                    });
         } catch (NumberFormatException ex) {
             outputArea.append("Invalid input for product code, price, or quantity.\n");
         }
@@ -419,13 +772,22 @@ public class InventoryOrderGUI extends JFrame {
             int code = Integer.parseInt(stockCodeField.getText());
             int quantity = Integer.parseInt(stockQuantityField.getText());
 
-            if (inventoryManager.increaseProductStock(code, quantity)) {
-                outputArea.append("Stock added for product code " + code + ": " + quantity + "\n");
-                clearStockFields();
-                refreshAllTables();
-            } else {
-                outputArea.append("Failed to add stock (product not found or invalid quantity).\n");
-            }
+            // Restocking also allocates to waiting backorders, which takes the product lock
+            backgroundTasks.submit("Adding stock to product " + code,
+                    control -> inventoryManager.addStockToExisting(code, quantity),
+                    result -> {
+                        if (result.isApplied()) {
+                            outputArea.append("Stock added for product code " + code + ": " + quantity + "\n");
+                            if (result.getAllocatedToBackorders() > 0) {
+                                outputArea.append(result.getAllocatedToBackorders() + " unit(s) allocated to waiting backorders.\n");
+                            }
+                            clearStockFields();
+                            changedProductCodes.add(code);
+                            applyChanges();
+                        } else {
+                            outputArea.append("Failed to add stock (product not found or invalid quantity).\n");
+                        }
+                    });
         } catch (NumberFormatException ex) {
             outputArea.append("Invalid input for product code or quantity.\n");
         }
@@ -436,13 +798,18 @@ public class InventoryOrderGUI extends JFrame {
             int code = Integer.parseInt(stockCodeField.getText());
             int quantity = Integer.parseInt(stockQuantityField.getText());
 
-            if (inventoryManager.decreaseProductStock(code, quantity)) {
-                outputArea.append("Stock removed for product code " + code + ": " + quantity + "\n");
-                clearStockFields();
-                refreshAllTables();
-            } else {
-                outputArea.append("Failed to remove stock (product not found, insufficient stock, or invalid quantity).\n");
-            }
+            backgroundTasks.submit("Removing stock from product " + code,
+                    control -> inventoryManager.decreaseProductStock(code, quantity),
+                    removed -> {
+                        if (removed) {
+                            outputArea.append("Stock removed for product code " + code + ": " + quantity + "\n");
+                            clearStockFields();
+                            changedProductCodes.add(code);
+                            applyChanges();
+                        } else {
+                            outputArea.append("Failed to remove stock (product not found, insufficient stock, or invalid quantity).\n");
+                        }
+                    });
         } catch (NumberFormatException ex) {
             outputArea.append("Invalid input for product code or quantity.\n");
         }
@@ -467,13 +834,18 @@ public class InventoryOrderGUI extends JFrame {
                     "Confirm Deletion", JOptionPane.YES_NO_OPTION);
 
             if (confirm == JOptionPane.YES_OPTION) {
-                if (inventoryManager.deleteProduct(productCode)) {
-                    outputArea.append("Product with Code " + productCode + " deleted successfully.\n");
-                    refreshAllTables(); 
-                } else {
-                    JOptionPane.showMessageDialog(this, "Failed to delete product with Code: " + productCode + ".\nIt might be associated with existing orders or not found.", "Deletion Failed", JOptionPane.ERROR_MESSAGE);
-                    outputArea.append("Failed to delete product with Code " + productCode + ". Product not found or associated with orders.\n");
-                }
+                Product product = inventoryManager.getProductByCode(productCode);
+                backgroundTasks.submit("Deleting product " + productCode,
+                        control -> product != null && inventoryManager.deleteProduct(productCode),
+                        deleted -> {
+                            if (deleted) {
+                                outputArea.append("Product with Code " + productCode + " deleted successfully.\n");
+                                productRemoved(product);
+                            } else {
+                                JOptionPane.showMessageDialog(this, "Failed to delete product with Code: " + productCode + ".\nIt might be associated with existing orders or not found.", "Deletion Failed", JOptionPane.ERROR_MESSAGE);
+                                outputArea.append("Failed to delete product with Code " + productCode + ". Product not found or associated with orders.\n");
+                            }
+                        });
             }
         } catch (Exception ex) {
             JOptionPane.showMessageDialog(this, "An error occurred during product deletion: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
@@ -488,25 +860,16 @@ public class InventoryOrderGUI extends JFrame {
             return;
         }
 
-        List<Product> searchResults = inventoryManager.searchByNameOrCode(query);
-
-        String[] columns = {"Code", "Name", "Price", "Total Qty", "Reserved Qty", "Available Qty"};
-        DefaultTableModel model = new DefaultTableModel(columns, 0);
-        if (searchResults.isEmpty()) {
-            outputArea.append("No products found for query: " + query + "\n");
-        } else {
-            for (Product p : searchResults) {
-                model.addRow(new Object[]{p.getCode(), p.getName(),
-                                         String.format("%.2f€", p.getPrice()),
-                                         p.getQuantity(),
-                                         p.getReservedQuantity(),
-                                         p.getAvailableQuantity()
-                                        });
-            }
-            outputArea.append(searchResults.size() + " products found for query: " + query + "\n");
-        }
-        productTable.setModel(model);
-        styleTable(productTable);
+        backgroundTasks.submit("Searching products for \"" + query + "\"",
+                control -> inventoryManager.searchByNameOrCode(query),
+                searchResults -> {
+                    if (searchResults.isEmpty()) {
+                        outputArea.append("No products found for query: " + query + "\n");
+                    } else {
+                        outputArea.append(searchResults.size() + " products found for query: " + query + "\n");
+                    }
+                    productTableModel.setRows(searchResults);
+                });
     }
 
     /**
@@ -568,28 +931,20 @@ public class InventoryOrderGUI extends JFrame {
                 return;
             }
 
-            // Create an OrderItem for the direct sale
-            OrderItem directSaleItem = new OrderItem(product, quantity);
-            directSaleItem.setReservedQuantity(quantity);
-            directSaleItem.setBackorderedQuantity(0);
-
-            // Create a temporary list containing only this one saleItem
-            List<OrderItem> directSaleItemsList = new ArrayList<>();
-            directSaleItemsList.add(directSaleItem);
-
-            // Create a temporary Order object for the direct sale
-            Order directSaleOrder = new Order(customer, directSaleItemsList);
-            directSaleOrder.setStatus(OrderStatus.FULFILLED); // Mark as fulfilled immediately for direct sale
-
-            // Add the "sale" to sales history
-            salesHistory.add(new Sale(directSaleOrder.getId(), directSaleOrder.getCustomer(),
-                                      directSaleOrder.getTotalValue(), new Date(), directSaleOrder.getItems()));
-
-
-            inventoryManager.decreaseProductStock(productCode, quantity); // Decrement physical stock
-
-            outputArea.append("Direct sale of " + quantity + " " + product.getName() + " recorded successfully.\n");
-            refreshAllTables();
+            // Stock is removed and the sale is recorded in the ledger in one step;
+            // fails if another order reserved the stock after the check above
+            Customer buyer = customer;
+            backgroundTasks.submit("Recording direct sale of product " + productCode,
+                    control -> orderManager.recordDirectSale(buyer, product, quantity),
+                    sale -> {
+                        if (sale == null) {
+                            JOptionPane.showMessageDialog(this, "Insufficient available stock for direct sale. Available: " + product.getAvailableQuantity(), "Error", JOptionPane.ERROR_MESSAGE);
+                            return;
+                        }
+                        outputArea.append("Direct sale of " + quantity + " " + product.getName() + " recorded successfully.\n");
+                        changedProductCodes.add(productCode);
+                        applyChanges();
+                    });
 
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this, "Invalid input for product code, quantity, or customer ID.", "Error", JOptionPane.ERROR_MESSAGE);
@@ -677,13 +1032,17 @@ public class InventoryOrderGUI extends JFrame {
                 int age = Integer.parseInt(newCustomerAgeField.getText());
 
                 Customer newCustomer = new Customer(id, name, email, phone, address, age);
-                if (customerManager.addCustomer(newCustomer)) {
-                    outputArea.append("Customer added: " + name + "\n");
-                    clearNewCustomerFields();
-                    refreshAllTables();
-                } else {
-                    outputArea.append("Failed to add customer (ID might exist or invalid data).\n");
-                }
+                backgroundTasks.submit("Adding customer " + id,
+                        control -> customerManager.addCustomer(newCustomer),
+                        added -> {
+                            if (added) {
+                                outputArea.append("Customer added: " + name + "\n");
+                                clearNewCustomerFields();
+                                customerAdded(newCustomer);
+                            } else {
+                                outputArea.append("Failed to add customer (ID might exist or invalid data).\n");
+                            }
+                        });
             } catch (NumberFormatException ex) {
                 outputArea.append("Invalid input for customer ID or age.\n");
             } catch (IllegalArgumentException ex) {
@@ -699,8 +1058,6 @@ public class InventoryOrderGUI extends JFrame {
         return panel;
     }
 
-    private List<String> allCustomerItems = new ArrayList<>();
-    private List<String> allProductItems = new ArrayList<>();
     private JPanel createCustomerOrderPanel() {
         JPanel panel = new JPanel(new BorderLayout(10, 10));
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
@@ -720,8 +1077,10 @@ public class InventoryOrderGUI extends JFrame {
         customerOrderProductChooser.setEditable(false);
 
         customerOrderQuantityField = new JTextField(5);
-        allowBackorderCheckbox = new JCheckBox("Allow Backorder (if not enough stock)");
-        allowBackorderCheckbox.setSelected(true);
+        // BACKORDER: backorder the shortfall, PARTIAL: reserve what exists only, ALL_OR_NOTHING: every line or none
+        reservationPolicyChooser = new JComboBox<>(ReservationPolicy.values());
+        reservationPolicyChooser.setSelectedItem(ReservationPolicy.BACKORDER);
+        reservationPolicyChooser.setToolTipText("How to reserve stock when there is not enough for the whole order");
 
         // --- Customer row (Row 0) ---
         gbc.gridx = 0; gbc.gridy = 0;
@@ -755,7 +1114,7 @@ public class InventoryOrderGUI extends JFrame {
         topPanel.add(customerOrderQuantityField, gbc);
 
         gbc.gridx = 4;
-        topPanel.add(allowBackorderCheckbox, gbc);
+        topPanel.add(reservationPolicyChooser, gbc);
 
         // --- Product search (Row 2) ---
         gbc.gridx = 0; gbc.gridy = 2;
@@ -798,73 +1157,22 @@ public class InventoryOrderGUI extends JFrame {
         placeOrderButton.addActionListener(e -> placeOrder());
         panel.add(bottomPanel, BorderLayout.SOUTH);
 
-        // --- Customer Search Logic ---
-        customerSearchButton.addActionListener(e -> {
-            String query = customerSearchField.getText().trim();
-            if (query.isEmpty()) {
-                outputArea.append("Enter a name or ID to search for a customer.\n");
-                return;
-            }
-
-            List<Customer> matches;
-            try {
-                int id = Integer.parseInt(query);
-                Customer c = customerManager.getCustomerById(id);
-                matches = (c != null) ? List.of(c) : new ArrayList<>();
-            } catch (NumberFormatException ex) {
-                matches = customerManager.getAllCustomers().stream()
-                        .filter(c -> c.getName().toLowerCase().contains(query.toLowerCase()))
-                        .collect(Collectors.toList());
-            }
-
-            if (matches.isEmpty()) {
-                outputArea.append("No customers found for: " + query + "\n");
-            } else {
-                customerOrderCustomerChooser.removeAllItems();
-                for (Customer c : matches) {
-                    customerOrderCustomerChooser.addItem(c.getName() + " (ID: " + c.getId() + ")");
-                }
-                outputArea.append(matches.size() + " customer(s) found for: " + query + "\n");
-            }
-        });
+        // --- Customer / product search: the choosers follow their search fields as the user types ---
+        orderCustomerSearch = new SearchChooser<>(customerOrderCustomerChooser, customerSearchField,
+                this::findCustomers, InventoryOrderGUI::customerChooserText, CHOOSER_MATCH_LIMIT,
+                "customer", message -> outputArea.append(message + "\n"));
+        orderProductSearch = new SearchChooser<>(customerOrderProductChooser, productSearchField,
+                this::findProducts, InventoryOrderGUI::productChooserText, CHOOSER_MATCH_LIMIT,
+                "product", message -> outputArea.append(message + "\n"));
 
+        customerSearchButton.addActionListener(e -> orderCustomerSearch.searchNow());
         resetCustomerListButton.addActionListener(e -> {
-            populateCustomerProductChoosers();
+            orderCustomerSearch.reset();
             outputArea.append("Customer list reset.\n");
         });
-
-        // --- Product Search Logic ---
-        productSearchButton.addActionListener(e -> {
-            String query = productSearchField.getText().trim();
-            if (query.isEmpty()) {
-                outputArea.append("Enter a product code or name to search.\n");
-                return;
-            }
-
-            List<Product> matches;
-            try {
-                int code = Integer.parseInt(query);
-                Product p = inventoryManager.getProductByCode(code);
-                matches = (p != null) ? List.of(p) : new ArrayList<>();
-            } catch (NumberFormatException ex) {
-                matches = inventoryManager.getAllProducts().stream()
-                        .filter(p -> p.getName().toLowerCase().contains(query.toLowerCase()))
-                        .collect(Collectors.toList());
-            }
-
-            if (matches.isEmpty()) {
-                outputArea.append("No products found for: " + query + "\n");
-            } else {
-                customerOrderProductChooser.removeAllItems();
-                for (Product p : matches) {
-                    customerOrderProductChooser.addItem(p.getName() + " (Code: " + p.getCode() + ")");
-                }
-                outputArea.append(matches.size() + " product(s) found for: " + query + "\n");
-            }
-        });
-
+        productSearchButton.addActionListener(e -> orderProductSearch.searchNow());
         resetProductListButton.addActionListener(e -> {
-            populateCustomerProductChoosers();
+            orderProductSearch.reset();
             outputArea.append("Product list reset.\n");
         });
 
@@ -949,31 +1257,42 @@ public class InventoryOrderGUI extends JFrame {
             return;
         }
 
-        boolean allowBackorder = allowBackorderCheckbox.isSelected();
-
-        // Καλούμε τον OrderManager να δημιουργήσει την παραγγελία.
-  
-        Order newOrder = orderManager.createOrder(customer, currentOrderItems, allowBackorder);
-
-        if (newOrder != null) {
-            outputArea.append("Παραγγελία #" + newOrder.getId() + " δημιουργήθηκε επιτυχώς.\n");
+        ReservationPolicy policy = (ReservationPolicy) reservationPolicyChooser.getSelectedItem();
 
-            // Η πώληση θα καταχωρείται από το κουμπί "Fulfill Order" όταν η κατάσταση είναι READY_TO_BE_DELIVERED.
-
-            // Εμφανίζουμε την αρχική κατάσταση της παραγγελίας
-            if (newOrder.getStatus() == OrderStatus.READY_TO_BE_DELIVERED) {
-                outputArea.append("Η παραγγελία #" + newOrder.getId() + " είναι άμεσα Έτοιμη για Παράδοση.\n");
-            } else if (newOrder.getStatus() == OrderStatus.PARTIALLY_FULFILLED) {
-                outputArea.append("Η παραγγελία #" + newOrder.getId() + " είναι Μερικώς Εκπληρωμένη.\n");
-            } else {
-                outputArea.append("Η παραγγελία #" + newOrder.getId() + " εκκρεμεί.\n");
-            }
+        // Τα είδη περνούν στην παραγγελία: η τρέχουσα λίστα αδειάζει αμέσως, ώστε όσα προστεθούν
+        // όσο τρέχει η καταχώρηση να μην αλλάξουν τα είδη που δεσμεύονται.
+        List<OrderItem> items = new ArrayList<>(currentOrderItems);
+        currentOrderItems.clear();
+        updateCurrentOrderItemsTable();
 
-            clearCurrentOrder(); // Καθαρίζουμε τα τρέχοντα στοιχεία παραγγελίας
-            refreshAllTables();  // Ανανεώνουμε όλους τους πίνακες
-        } else {
-            outputArea.append("Αποτυχία δημιουργίας παραγγελίας.\n");
-        }
+        // Καλούμε τον OrderManager να δημιουργήσει την παραγγελία (στο παρασκήνιο).
+        backgroundTasks.submit("Placing order for " + customer.getName(),
+                control -> orderManager.createOrder(customer, items, policy),
+                newOrder -> {
+                    if (newOrder != null) {
+                        outputArea.append("Παραγγελία #" + newOrder.getId() + " δημιουργήθηκε επιτυχώς.\n");
+
+                        // Η πώληση θα καταχωρείται από το κουμπί "Fulfill Order" όταν η κατάσταση είναι READY_TO_BE_DELIVERED.
+
+                        // Εμφανίζουμε την αρχική κατάσταση της παραγγελίας
+                        if (newOrder.getStatus() == OrderStatus.READY_TO_BE_DELIVERED) {
+                            outputArea.append("Η παραγγελία #" + newOrder.getId() + " είναι άμεσα Έτοιμη για Παράδοση.\n");
+                        } else if (newOrder.getStatus() == OrderStatus.PARTIALLY_FULFILLED) {
+                            outputArea.append("Η παραγγελία #" + newOrder.getId() + " είναι Μερικώς Εκπληρωμένη.\n");
+                        } else {
+                            outputArea.append("Η παραγγελία #" + newOrder.getId() + " εκκρεμεί.\n");
+                        }
+                        outputArea.append("Η τρέχουσα παραγγελία εκκαθαρίστηκε.\n");
+                        applyChanges(); // Νέα γραμμή παραγγελίας και ενημέρωση των προϊόντων της
+                    } else {
+                        outputArea.append("Αποτυχία δημιουργίας παραγγελίας.\n");
+                        // Επαναφορά των ειδών για διόρθωση, αν δεν ξεκίνησε ήδη νέα παραγγελία
+                        if (currentOrderItems.isEmpty()) {
+                            currentOrderItems.addAll(items);
+                            updateCurrentOrderItemsTable();
+                        }
+                    }
+                });
     }
 
 
@@ -1006,6 +1325,11 @@ public class InventoryOrderGUI extends JFrame {
         controlsPanel.add(cancelOrderButton);
         cancelOrderButton.addActionListener(e -> cancelOrder());
 
+        // Wait and hold times of the per-product locks taken by order operations (see ProductLocks)
+        JButton lockStatsButton = createStyledButton("Lock Stats");
+        controlsPanel.add(lockStatsButton);
+        lockStatsButton.addActionListener(e -> outputArea.append(orderManager.getLockStats() + "\n"));
+
         panel.add(controlsPanel, BorderLayout.NORTH);
 
         return panel;
@@ -1027,45 +1351,47 @@ public class InventoryOrderGUI extends JFrame {
                 return;
             }
 
+            clearOrderIdField();
+
             // Αν η παραγγελία είναι READY_TO_BE_DELIVERED, τότε κάνουμε την "παράδοση" και καταγραφή πώλησης
             if (order.getStatus() == OrderStatus.READY_TO_BE_DELIVERED) {
                 outputArea.append("Η παραγγελία " + order.getId() + " είναι ήδη Έτοιμη για Παράδοση. Ολοκλήρωση πώλησης...\n");
 
-                // Καταγραφή Πώλησης
-                salesHistory.add(new Sale(order.getId(), order.getCustomer(),
-                                          order.getTotalValue(), new Date(), order.getItems()));
-                outputArea.append("Πώληση για παραγγελία " + order.getId() + " καταχωρήθηκε επιτυχώς.\n");
+                // Παράδοση μέσω του OrderManager (αποδέσμευση αποθέματος, κατάσταση FULFILLED και καταγραφή πώλησης)
+                backgroundTasks.submit("Delivering order " + order.getId(),
+                        control -> orderManager.deliverOrder(order),
+                        delivered -> {
+                            if (delivered) {
+                                outputArea.append("Παραγγελία " + order.getId() + " παραδόθηκε επιτυχώς.\n");
+                                outputArea.append("Πώληση για παραγγελία " + order.getId() + " καταχωρήθηκε επιτυχώς.\n");
+                            } else {
+                                outputArea.append("Αποτυχία παράδοσης παραγγελίας " + order.getId() + ".\n");
+                            }
+                            applyChanges();
+                        });
 
-                // Τελική αλλαγή κατάστασης σε FULFILLED (Παραδόθηκε)
-                order.setStatus(OrderStatus.FULFILLED);
-                outputArea.append("Παραγγελία " + order.getId() + " παραδόθηκε επιτυχώς.\n");
-
-                for (OrderItem item : order.getItems()) {
-                    Product product = item.getProduct();
-                    if (product != null) {
-                        product.fulfillAndRelease(item.getRequestedQty());
-                    }
-                }
-    
             } else {
                 // Αν η παραγγελία δεν είναι READY_TO_BE_DELIVERED (είναι PENDING ή PARTIALLY_FULFILLED)
                 outputArea.append("Προσπάθεια εκπλήρωσης παραγγελίας " + order.getId() + "...\n");
-                if (orderManager.fulfillOrder(order)) { 
-                    outputArea.append("Παραγγελία " + order.getId() + " εκπληρώθηκε επιτυχώς.\n");
-                    if (order.getStatus() == OrderStatus.READY_TO_BE_DELIVERED) {
-                        outputArea.append("Η παραγγελία " + order.getId() + " είναι τώρα Έτοιμη για Παράδοση.\n");
-                    } else if (order.getStatus() == OrderStatus.PARTIALLY_FULFILLED) {
-                        outputArea.append("Η παραγγελία " + order.getId() + " εκπληρώθηκε μερικώς.\n");
-                    } else {
-                        outputArea.append("Η παραγγελία " + order.getId() + " παραμένει σε εκκρεμότητα.\n");
-                    }
-                } else {
-                    outputArea.append("Αποτυχία εκπλήρωσης παραγγελίας " + order.getId() + ". Ελέγξτε την κατάσταση ή το απόθεμα.\n");
-                }
+                backgroundTasks.submit("Fulfilling order " + order.getId(),
+                        control -> orderManager.fulfillOrder(order),
+                        fulfilled -> {
+                            if (fulfilled) {
+                                outputArea.append("Παραγγελία " + order.getId() + " εκπληρώθηκε επιτυχώς.\n");
+                                if (order.getStatus() == OrderStatus.READY_TO_BE_DELIVERED) {
+                                    outputArea.append("Η παραγγελία " + order.getId() + " είναι τώρα Έτοιμη για Παράδοση.\n");
+                                } else if (order.getStatus() == OrderStatus.PARTIALLY_FULFILLED) {
+                                    outputArea.append("Η παραγγελία " + order.getId() + " εκπληρώθηκε μερικώς.\n");
+                                } else {
+                                    outputArea.append("Η παραγγελία " + order.getId() + " παραμένει σε εκκρεμότητα.\n");
+                                }
+                            } else {
+                                outputArea.append("Αποτυχία εκπλήρωσης παραγγελίας " + order.getId() + ". Ελέγξτε την κατάσταση ή το απόθεμα.\n");
+                            }
+                            changedOrderIds.add(order.getId()); // Η δέσμευση μπορεί να άλλαξε χωρίς αλλαγή κατάστασης
+                            applyChanges();
+                        });
             }
-
-            clearOrderIdField();
-            refreshAllTables();
         } catch (NumberFormatException ex) {
             outputArea.append("Μη έγκυρο Order ID.\n");
         }
@@ -1092,25 +1418,18 @@ public class InventoryOrderGUI extends JFrame {
 
             if (confirm == JOptionPane.YES_OPTION) {
 
-                // Release reserved stock (make it available again)
-                for (OrderItem item : order.getItems()) {
-                    int reservedQty = item.getReservedQuantity();
-                    Product product = item.getProduct();
-
-                    if (reservedQty > 0 && product != null) {
-                        // Reduce product's reserved quantity
-                        product.setReservedQuantity(product.getReservedQuantity() - reservedQty);
-                        item.setReservedQuantity(0);
-                    }
-
-                    item.setBackorderedQuantity(0); // Clear backorders
-                }
-
-                order.setStatus(OrderStatus.CANCELED);
-
-                outputArea.append("Παραγγελία " + order.getId() + " ακυρώθηκε επιτυχώς και το απόθεμα αποδεσμεύτηκε.\n");
-                clearOrderIdField();
-                refreshAllTables();
+                // Release reserved stock and clear backorders through the OrderManager (takes the product locks)
+                backgroundTasks.submit("Cancelling order " + order.getId(),
+                        control -> orderManager.cancelOrder(order),
+                        cancelled -> {
+                            if (!cancelled) {
+                                outputArea.append("Η παραγγελία " + order.getId() + " δεν μπορεί να ακυρωθεί (Κατάσταση: " + order.getStatus() + ").\n");
+                                return;
+                            }
+                            outputArea.append("Παραγγελία " + order.getId() + " ακυρώθηκε επιτυχώς και το απόθεμα αποδεσμεύτηκε.\n");
+                            clearOrderIdField();
+                            applyChanges();
+                        });
 
             } else {
                 outputArea.append("Ακύρωση παραγγελίας " + order.getId() + " ανακλήθηκε από τον χρήστη.\n");
@@ -1134,13 +1453,32 @@ public class InventoryOrderGUI extends JFrame {
         panel.setBorder(BorderFactory.createTitledBorder("Allocate Stock to Backorders"));
 
         backorderProductChooser = new JComboBox<>();
+        JTextField backorderSearchField = new JTextField(10);
+        backorderProductSearch = new SearchChooser<>(backorderProductChooser, backorderSearchField,
+                this::findProducts, InventoryOrderGUI::productChooserText, CHOOSER_MATCH_LIMIT,
+                "product", message -> outputArea.append(message + "\n"));
         JButton allocateButton = createStyledButton("Allocate Stock to Backorders");
-        
+        JButton allocateAllButton = createStyledButton("Allocate All Products");
+        JComboBox<AllocationPolicy> policyChooser = new JComboBox<>(AllocationPolicy.values());
+        policyChooser.setSelectedItem(orderManager.getAllocationPolicy());
+        JSpinner orderHoldMinutes = new JSpinner(new SpinnerNumberModel(
+                (int) (orderManager.getOrderHoldMillis() / 60000), 0, 7 * 24 * 60, 5));
+
+        panel.add(new JLabel("Search Product (Code or Name):"));
+        panel.add(backorderSearchField);
         panel.add(new JLabel("Select Product:"));
         panel.add(backorderProductChooser);
         panel.add(allocateButton);
+        panel.add(allocateAllButton);
+        panel.add(new JLabel("Allocation Policy:"));
+        panel.add(policyChooser);
+        panel.add(new JLabel("Order Hold (minutes, 0 = none):"));
+        panel.add(orderHoldMinutes);
 
         allocateButton.addActionListener(e -> allocateBackorders());
+        allocateAllButton.addActionListener(e -> allocateAllBackorders());
+        policyChooser.addActionListener(e -> changeAllocationPolicy((AllocationPolicy) policyChooser.getSelectedItem()));
+        orderHoldMinutes.addChangeListener(e -> changeOrderHold((Integer) orderHoldMinutes.getValue()));
 
         return panel;
     }
@@ -1154,14 +1492,58 @@ public class InventoryOrderGUI extends JFrame {
 
         int productCode = extractCodeFromChooser(selectedProductString);
 
-        int allocatedQty = orderManager.allocateBackorderedItems(productCode);
+        // Μπορεί να διατρέξει μεγάλη ουρά backorder: τρέχει στο παρασκήνιο με πρόοδο και δυνατότητα ακύρωσης
+        backgroundTasks.submit("Allocating stock of product " + productCode + " to backorders",
+                control -> orderManager.allocateBackorderedItems(productCode, control),
+                allocatedQty -> {
+                    if (allocatedQty > 0) {
+                        outputArea.append("Συνολικά κατανεμήθηκαν " + allocatedQty + " τεμάχια για το προϊόν " + productCode + " από backorders.\n");
+                    } else {
+                        outputArea.append("Δεν κατανεμήθηκε απόθεμα για το προϊόν " + productCode + ". Είτε δεν υπάρχουν backorders, είτε δεν υπάρχει διαθέσιμο απόθεμα.\n");
+                    }
+                    changedProductCodes.add(productCode);
+                    applyChanges(); // Ενημέρωση μόνο του προϊόντος και των παραγγελιών που άλλαξαν
+                });
+    }
 
-        if (allocatedQty > 0) {
-            outputArea.append("Συνολικά κατανεμήθηκαν " + allocatedQty + " τεμάχια για το προϊόν " + productCode + " από backorders.\n");
-        } else {
-            outputArea.append("Δεν κατανεμήθηκε απόθεμα για το προϊόν " + productCode + ". Είτε δεν υπάρχουν backorders, είτε δεν υπάρχει διαθέσιμο απόθεμα.\n");
-        }
-        refreshAllTables(); // Ενημέρωση όλων των πινάκων μετά την κατανομή
+    private void changeAllocationPolicy(AllocationPolicy policy) {
+        // Every backorder queue is rebuilt in the new order, so this runs in the background as well
+        backgroundTasks.submit("Switching backorder allocation policy to " + policy,
+                control -> {
+                    orderManager.setAllocationPolicy(policy);
+                    return policy;
+                },
+                applied -> outputArea.append("Πολιτική κατανομής backorder: " + applied + ".\n"));
+    }
+
+    /**
+     * Sets how long orders waiting for stock (PENDING, PARTIALLY_FULFILLED) keep their reservations.
+     * Orders older than this are cancelled and their stock goes to the next backorders.
+     * Every waiting order gets a new expiry, so this runs in the background.
+     */
+    private void changeOrderHold(int minutes) {
+        backgroundTasks.submit("Setting the order hold to " + minutes + " minutes",
+                control -> {
+                    orderManager.setOrderHoldMillis(minutes * 60_000L);
+                    return minutes;
+                },
+                applied -> outputArea.append(applied > 0
+                        ? "Οι παραγγελίες σε αναμονή ακυρώνονται μετά από " + applied + " λεπτά.\n"
+                        : "Οι παραγγελίες σε αναμονή κρατούν το απόθεμά τους χωρίς χρόνο λήξης.\n"));
+    }
+
+    private void allocateAllBackorders() {
+        // One pass over every backorder queue; product groups without shared orders are allocated in parallel
+        backgroundTasks.submit("Allocating stock of all products to backorders",
+                orderManager::allocateAll,
+                allocatedQty -> {
+                    if (allocatedQty > 0) {
+                        outputArea.append("Συνολικά κατανεμήθηκαν " + allocatedQty + " τεμάχια από backorders σε όλα τα προϊόντα.\n");
+                    } else {
+                        outputArea.append("Δεν κατανεμήθηκε απόθεμα. Είτε δεν υπάρχουν backorders, είτε δεν υπάρχει διαθέσιμο απόθεμα.\n");
+                    }
+                    applyChanges(); // Product rows also arrive through the inventory change feed
+                });
     }
 
     private JPanel createSalesHistoryPanel() {
@@ -1171,6 +1553,9 @@ public class InventoryOrderGUI extends JFrame {
         salesHistoryTable = new JTable();
         panel.add(new JScrollPane(salesHistoryTable), BorderLayout.CENTER);
 
+        salesTotalsLabel = new JLabel(" ");
+        panel.add(salesTotalsLabel, BorderLayout.SOUTH);
+
         JPanel ctrls = new JPanel(new FlowLayout(FlowLayout.LEFT,10,10));
         ctrls.setBorder(BorderFactory.createTitledBorder("Search Sales History"));
 
@@ -1189,22 +1574,20 @@ public class InventoryOrderGUI extends JFrame {
                 outputArea.append("Enter a customer name or ID to search sales.\n");
                 return;
             }
-            List<Sale> filtered;
-            try {
-                int cid = Integer.parseInt(q);
-                filtered = salesHistory.stream()
-                    .filter(s -> s.getCustomer() != null && s.getCustomer().getId() == cid)
-                    .collect(Collectors.toList());
-            } catch (NumberFormatException ex) {
-                filtered = salesHistory.stream()
-                    .filter(s -> s.getCustomer() != null &&
-                        s.getCustomer().getName().toLowerCase().contains(q.toLowerCase()))
-                    .collect(Collectors.toList());
-            }
-            outputArea.append(filtered.isEmpty()
-                ? "No sales found for: " + q + "\n"
-                : "Displaying " + filtered.size() + " sale(s) for: " + q + "\n");
-            updateSalesHistoryTable(filtered);
+            backgroundTasks.submit("Searching sales for \"" + q + "\"",
+                control -> {
+                    try {
+                        return salesLedger.findByCustomerId(Integer.parseInt(q));
+                    } catch (NumberFormatException ex) {
+                        return salesLedger.findByCustomerName(q);
+                    }
+                },
+                filtered -> {
+                    outputArea.append(filtered.isEmpty()
+                        ? "No sales found for: " + q + "\n"
+                        : "Displaying " + filtered.size() + " sale(s) for: " + q + "\n");
+                    updateSalesHistoryTable(filtered);
+                });
         });
 
         resetBtn.addActionListener(e -> {
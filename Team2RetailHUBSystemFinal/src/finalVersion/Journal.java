@@ -0,0 +1,715 @@
+package finalVersion;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+// Ημερολόγιο (write-ahead journal) των αλλαγών ανάμεσα σε δύο στιγμιότυπα (βλ. SnapshotStore), ώστε
+// μετά από διακοπή να χάνεται μόνο ό,τι δεν είχε επιστρέψει ακόμα στον καλούντα.
+// Κάθε λειτουργία των managers γράφει μία εγγραφή: μήκος (int), CRC32 (int) και οι αλλαγές της με τη σειρά.
+// Οι μεταβολές αποθέματος γράφονται ως διαφορές, που αθροίζονται ανεξάρτητα από τη σειρά, οπότε οι ατομικές
+// αλλαγές του Product δεν χρειάζονται επιπλέον κλείδωμα. Παραγγελίες, προϊόντα και πελάτες γράφονται ως πλήρης
+// εικόνα, ενώ κρατάμε τα κλειδώματα που σειριοποιούν τις αλλαγές τους.
+// Group commit: η εγγραφή μπαίνει σε κοινό buffer και ο καλών περιμένει να γίνει μόνιμη πριν επιστρέψει.
+// Όποιος βρει τον δίσκο ελεύθερο γράφει όλο τον buffer με ένα force, και όσοι προσθέτουν εγγραφές στο μεταξύ
+// περιμένουν το επόμενο, οπότε οι ταυτόχρονοι καλούντες μοιράζονται τα fsync.
+// Αρχεία: <base>.<γενιά>. Το checkpoint γράφει στιγμιότυπο που δείχνει στη νέα γενιά και σβήνει τις παλιές·
+// η ανάκτηση εφαρμόζει στο στιγμιότυπο τις γενιές από τη δική του και μετά. Μια μισογραμμένη εγγραφή στο τέλος
+// (διακοπή πάνω στο γράψιμο) αποκόπτεται.
+// Δεν γράφονται εδώ οι μαζικές εισαγωγές (BulkImporter) και οι αλλαγές απευθείας σε Product/Customer χωρίς
+// τους managers· μετά από εισαγωγή χρειάζεται checkpoint.
+public class Journal implements AutoCloseable {
+    private static final int MAGIC = 0x52484a4c; // "RHJL"
+    static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = Integer.BYTES * 2 + Long.BYTES;
+    private static final int MAX_RECORD_BYTES = 64 << 20;
+
+    // Είδη αλλαγών μέσα σε μια εγγραφή
+    private static final int STOCK = 1;
+    private static final int ORDER = 2;
+    private static final int SALE = 3;
+    private static final int PRODUCT = 4;
+    private static final int PRODUCT_REMOVED = 5;
+    private static final int CUSTOMER = 6;
+    private static final int CUSTOMER_REMOVED = 7;
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private final Path baseFile;
+    private final InventoryManager inventoryManager;
+    private final CustomerManager customerManager;
+    private final OrderManager orderManager;
+    private final SalesLedger salesLedger;
+
+    // Κάθε λειτουργία κρατάει το κοινό κλείδωμα από την αλλαγή ως την προσθήκη της εγγραφής της.
+    // Το checkpoint παίρνει το αποκλειστικό, ώστε το στιγμιότυπο και η νέα γενιά να χωρίζουν ακριβώς.
+    private final ReentrantReadWriteLock gate = new ReentrantReadWriteLock();
+
+    // Κατάσταση εγγραφής (με το κλείδωμα του Journal)
+    private FileChannel channel;                        // null όσο το ημερολόγιο είναι κλειστό
+    private long generation;
+    private BinaryEncoder pending = new BinaryEncoder(); // Εγγραφές που περιμένουν το επόμενο force
+    private BinaryEncoder spare = new BinaryEncoder();
+    private long appended;                              // Αύξων αριθμός της τελευταίας εγγραφής που προστέθηκε
+    private long durable;                               // ... και της τελευταίας που έγινε μόνιμη
+    private boolean flushing;
+    private IOException failure;
+    private long syncs;
+
+    public Journal(Path baseFile, InventoryManager inventoryManager, CustomerManager customerManager,
+                   OrderManager orderManager, SalesLedger salesLedger) {
+        if (baseFile == null || inventoryManager == null || customerManager == null || orderManager == null
+                || salesLedger == null) {
+            throw new IllegalArgumentException("Το αρχείο και οι managers του ημερολογίου δεν μπορούν να είναι null.");
+        }
+        this.baseFile = baseFile;
+        this.inventoryManager = inventoryManager;
+        this.customerManager = customerManager;
+        this.orderManager = orderManager;
+        this.salesLedger = salesLedger;
+    }
+
+    // ------------------------------------------------------------------------------------------------------
+    // Εγγραφές των managers
+    // ------------------------------------------------------------------------------------------------------
+
+    // Οι αλλαγές μιας λειτουργίας, κωδικοποιημένες με τη σειρά που έγιναν
+    static final class Entry {
+        private final BinaryEncoder out = new BinaryEncoder();
+
+        // Μεταβολή αποθέματος ενός προϊόντος του καταλόγου (όχι μέσω παραγγελίας)
+        Entry stock(Product product, int quantityDelta, int reservedDelta) {
+            if (quantityDelta != 0 || reservedDelta != 0) {
+                out.varInt(STOCK).varInt(product.getCode()).varLong(quantityDelta).varLong(reservedDelta);
+            }
+            return this;
+        }
+
+        // Εικόνα της παραγγελίας, με τη μεταβολή αποθέματος που έκανε η λειτουργία στο προϊόν κάθε είδους
+        // (null: καμία). Στην επανάληψη οι μεταβολές πάνε στα προϊόντα των ειδών, ακόμα κι αν διαγράφηκαν από τον κατάλογο.
+        Entry order(Order order, int[] quantityDeltas, int[] reservedDeltas) {
+            List<OrderItem> items = order.getItems();
+            out.varInt(ORDER).varInt(order.getId()).varInt(order.getCustomer().getId())
+                    .varLong(order.getTimestamp().getTime()).varInt(order.getStatus().ordinal());
+            items(items);
+            for (int i = 0; i < items.size(); i++) {
+                out.varLong(quantityDeltas == null ? 0 : quantityDeltas[i]).varLong(reservedDeltas == null ? 0 : reservedDeltas[i]);
+            }
+            return this;
+        }
+
+        // Νέα πώληση. Αν μοιράζεται τα είδη της παραγγελίας της (παράδοση), γράφεται μόνο το ID της παραγγελίας.
+        Entry sale(Sale sale, boolean sharesOrderItems) {
+            out.varInt(SALE).varInt(sale.getSaleId()).varInt(sale.getOrderId()).varInt(sale.getCustomer().getId())
+                    .varLong(sale.getSaleTime()).varLong(sale.getTotalSaleValueCents()).varInt(sharesOrderItems ? 1 : 0);
+            if (!sharesOrderItems) {
+                items(sale.getSoldItems());
+            }
+            return this;
+        }
+
+        // Νέο προϊόν ή αλλαγή ονόματος/τιμής (το απόθεμα ενός υπάρχοντος αλλάζει μόνο με διαφορές)
+        Entry product(Product product) {
+            out.varInt(PRODUCT).varInt(product.getCode()).string(product.getName()).varLong(product.getPriceCents())
+                    .varInt(product.getQuantity()).varInt(product.getReservedQuantity());
+            return this;
+        }
+
+        Entry productRemoved(int code) {
+            out.varInt(PRODUCT_REMOVED).varInt(code);
+            return this;
+        }
+
+        // Νέος πελάτης ή νέα στοιχεία υπάρχοντος
+        Entry customer(Customer customer) {
+            out.varInt(CUSTOMER).varInt(customer.getId()).string(customer.getName()).string(customer.getEmail())
+                    .string(customer.getPhone()).string(customer.getAddress()).varInt(customer.getAge());
+            return this;
+        }
+
+        Entry customerRemoved(int id) {
+            out.varInt(CUSTOMER_REMOVED).varInt(id);
+            return this;
+        }
+
+        private void items(List<OrderItem> items) {
+            out.varInt(items.size());
+            for (OrderItem item : items) {
+                out.varInt(item.getProduct().getCode()).varInt(item.getRequestedQty()).varInt(item.getReservedQuantity())
+                        .varInt(item.getBackorderedQuantity()).varLong(item.getPriceAtSaleCents());
+            }
+        }
+
+        boolean isEmpty() {
+            return out.size() == 0;
+        }
+    }
+
+    // Μία λειτουργία ενός manager. Από το begin ως το close κρατάει το κοινό κλείδωμα της πύλης, οπότε ένα checkpoint
+    // δεν βρίσκεται ποτέ στη μέση της. Στο close αφήνει την πύλη και περιμένει να γίνουν μόνιμες οι εγγραφές της.
+    // Το begin γίνεται πριν από κάθε άλλο κλείδωμα (προϊόντων ή manager) και το close αφού αφεθούν.
+    static final class Op implements AutoCloseable {
+        private static final Op NONE = new Op(null);
+
+        private final Journal journal;
+        private long sequence;
+        private boolean closed;
+
+        private Op(Journal journal) {
+            this.journal = journal;
+        }
+
+        // Προσθέτει την εγγραφή (καλείται ενώ κρατάμε τα κλειδώματα της αλλαγής)
+        void append(Entry entry) {
+            if (journal != null && !entry.isEmpty()) {
+                sequence = journal.append(entry);
+            }
+        }
+
+        // false για Op.NONE: όποιος χτίζει μεγάλες εγγραφές σε βρόχο μπορεί να τις παραλείψει
+        boolean isRecording() {
+            return journal != null;
+        }
+
+        @Override
+        public void close() {
+            if (journal == null || closed) {
+                return;
+            }
+            closed = true;
+            journal.gate.readLock().unlock();
+            journal.awaitDurable(sequence);
+        }
+    }
+
+    // null: οι managers δεν έχουν ημερολόγιο και η λειτουργία δεν γράφεται πουθενά
+    static Op begin(Journal journal) {
+        if (journal == null) {
+            return Op.NONE;
+        }
+        journal.gate.readLock().lock();
+        return new Op(journal);
+    }
+
+    private long append(Entry entry) {
+        BinaryEncoder payload = entry.out;
+        CRC32 crc = new CRC32();
+        crc.update(payload.bytes, 0, payload.size());
+        synchronized (this) {
+            if (channel == null) {
+                return 0;
+            }
+            pending.fixedInt(payload.size()).fixedInt((int) crc.getValue()).append(payload);
+            return ++appended;
+        }
+    }
+
+    // Επιστρέφει όταν η εγγραφή sequence (και όλες οι προηγούμενες) είναι στον δίσκο.
+    // Αν δεν γράφει άλλος, γράφει ο ίδιος ό,τι έχει μαζευτεί· αλλιώς περιμένει και ξαναελέγχει.
+    private void awaitDurable(long sequence) {
+        if (sequence == 0) {
+            return;
+        }
+        BinaryEncoder batch;
+        long batchEnd;
+        FileChannel target;
+        synchronized (this) {
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    if (durable >= sequence) {
+                        return;
+                    }
+                    if (failure != null) {
+                        throw new UncheckedIOException("Το ημερολόγιο δεν είναι διαθέσιμο: " + failure.getMessage(), failure);
+                    }
+                    if (!flushing) {
+                        break;
+                    }
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true; // Η εγγραφή πρέπει να ολοκληρωθεί· η διακοπή επανέρχεται στο τέλος
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            flushing = true;
+            batch = pending;
+            pending = spare;
+            spare = null;
+            batchEnd = appended;
+            target = channel;
+        }
+
+        IOException error = null;
+        try {
+            ByteBuffer bytes = ByteBuffer.wrap(batch.bytes, 0, batch.size());
+            while (bytes.hasRemaining()) {
+                target.write(bytes);
+            }
+            target.force(false);
+        } catch (IOException e) {
+            error = e;
+        }
+
+        synchronized (this) {
+            flushing = false;
+            batch.reset();
+            spare = batch;
+            if (error == null) {
+                durable = batchEnd;
+                syncs++;
+            } else {
+                failure = error;
+                System.err.println("Σφάλμα εγγραφής στο ημερολόγιο " + fileOf(generation) + ": " + error.getMessage());
+            }
+            notifyAll();
+        }
+        if (error != null) {
+            throw new UncheckedIOException("Το ημερολόγιο δεν είναι διαθέσιμο: " + error.getMessage(), error);
+        }
+    }
+
+    private void flushAll() {
+        long last;
+        synchronized (this) {
+            last = appended;
+        }
+        awaitDurable(last);
+    }
+
+    // ------------------------------------------------------------------------------------------------------
+    // Checkpoint, ανάκτηση, κλείσιμο
+    // ------------------------------------------------------------------------------------------------------
+
+    // Γράφει στιγμιότυπο και συνεχίζει σε νέα γενιά ημερολογίου, σβήνοντας τις παλιές. Οι λειτουργίες
+    // περιμένουν όσο γράφεται το στιγμιότυπο. Ανοίγει το ημερολόγιο αν ήταν κλειστό (π.χ. πρώτη εκκίνηση).
+    public void checkpoint(SnapshotStore store, Path snapshotFile) throws IOException {
+        gate.writeLock().lock();
+        try {
+            try {
+                flushAll();
+            } catch (UncheckedIOException e) {
+                // Ό,τι δεν γράφτηκε στο ημερολόγιο είναι στη μνήμη και μπαίνει στο στιγμιότυπο
+            }
+            long next;
+            synchronized (this) {
+                next = generation + 1;
+            }
+            FileChannel created = create(next);
+            try {
+                store.save(snapshotFile, next);
+            } catch (IOException | RuntimeException e) {
+                created.close();
+                Files.deleteIfExists(fileOf(next));
+                throw e;
+            }
+            switchTo(created, next);
+            for (long old : existingGenerations()) {
+                if (old < next) {
+                    Files.deleteIfExists(fileOf(old));
+                }
+            }
+            attach(this);
+        } finally {
+            gate.writeLock().unlock();
+        }
+    }
+
+    // Εφαρμόζει στους managers (με το στιγμιότυπο ήδη φορτωμένο) τις γενιές από snapshotGeneration και μετά,
+    // και συνεχίζει να γράφει στην τελευταία. Επιστρέφει πόσες εγγραφές εφαρμόστηκαν.
+    // Αν κάποια εγγραφή δεν εφαρμόζεται πετάει IOException και το ημερολόγιο μένει κλειστό.
+    public int recover(long snapshotGeneration) throws IOException {
+        if (snapshotGeneration <= 0) {
+            throw new IllegalArgumentException("Η γενιά ημερολογίου του στιγμιότυπου πρέπει να είναι θετική.");
+        }
+        gate.writeLock().lock();
+        try {
+            int replayed = 0;
+            long last = snapshotGeneration;
+            for (long gen : existingGenerations()) {
+                if (gen < snapshotGeneration) {
+                    Files.deleteIfExists(fileOf(gen)); // Περιέχεται ήδη στο στιγμιότυπο
+                } else {
+                    replayed += replay(gen);
+                    last = gen;
+                }
+            }
+            for (Product product : inventoryManager.getAllProducts()) {
+                if (!product.hasValidStock()) {
+                    throw new IOException("Μετά την επανάληψη του ημερολογίου " + baseFile + " το απόθεμα του προϊόντος " +
+                                          product.getCode() + " δεν είναι έγκυρο (" + product.getQuantity() + " τεμάχια, " +
+                                          product.getReservedQuantity() + " δεσμευμένα).");
+                }
+            }
+            Path file = fileOf(last);
+            if (Files.exists(file) && Files.size(file) >= HEADER_BYTES) {
+                FileChannel existing = FileChannel.open(file, StandardOpenOption.WRITE);
+                existing.position(existing.size());
+                switchTo(existing, last);
+            } else {
+                switchTo(create(last), last);
+            }
+            attach(this);
+            System.out.println("Ανάκτηση από το ημερολόγιο " + baseFile + ": εφαρμόστηκαν " + replayed +
+                               " εγγραφές (γενιές " + snapshotGeneration + "-" + last + ").");
+            return replayed;
+        } finally {
+            gate.writeLock().unlock();
+        }
+    }
+
+    // Γράφει ό,τι εκκρεμεί και κλείνει το ημερολόγιο· οι επόμενες λειτουργίες δεν γράφονται
+    @Override
+    public void close() throws IOException {
+        gate.writeLock().lock();
+        try {
+            attach(null);
+            try {
+                flushAll();
+            } finally {
+                FileChannel open;
+                synchronized (this) {
+                    open = channel;
+                    channel = null;
+                }
+                if (open != null) {
+                    open.close();
+                }
+            }
+        } finally {
+            gate.writeLock().unlock();
+        }
+    }
+
+    private void attach(Journal journal) {
+        inventoryManager.setJournal(journal);
+        customerManager.setJournal(journal);
+        orderManager.setJournal(journal);
+    }
+
+    private void switchTo(FileChannel created, long newGeneration) throws IOException {
+        FileChannel old;
+        synchronized (this) {
+            old = channel;
+            channel = created;
+            generation = newGeneration;
+            failure = null;
+            // Ό,τι δεν γράφτηκε (μετά από σφάλμα) περιέχεται ήδη στο στιγμιότυπο και δεν ανήκει στη νέα γενιά
+            pending.reset();
+            durable = appended;
+        }
+        if (old != null) {
+            old.close();
+        }
+    }
+
+    private FileChannel create(long gen) throws IOException {
+        FileChannel created = FileChannel.open(fileOf(gen), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                               StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(FORMAT_VERSION).putLong(gen);
+        header.flip();
+        while (header.hasRemaining()) {
+            created.write(header);
+        }
+        created.force(true);
+        return created;
+    }
+
+    private Path fileOf(long gen) {
+        return baseFile.resolveSibling(baseFile.getFileName() + "." + gen);
+    }
+
+    // Οι γενιές που υπάρχουν στον δίσκο, σε αύξουσα σειρά
+    private List<Long> existingGenerations() throws IOException {
+        Path directory = baseFile.toAbsolutePath().getParent();
+        String prefix = baseFile.getFileName() + ".";
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path file : files) {
+                String suffix = file.getFileName().toString().substring(prefix.length());
+                if (!suffix.isEmpty() && suffix.length() < 19 && suffix.chars().allMatch(Character::isDigit)) {
+                    generations.add(Long.parseLong(suffix));
+                }
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+
+    // true όσο οι αλλαγές των managers γράφονται στο ημερολόγιο
+    public synchronized boolean isOpen() {
+        return channel != null;
+    }
+
+    public synchronized long getSyncCount() {
+        return syncs;
+    }
+
+    public synchronized long getRecordCount() {
+        return durable;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Ημερολόγιο: γενιά %d, %d εγγραφές σε %d fsync (%.1f ανά fsync)",
+                generation, durable, syncs, syncs == 0 ? 0.0 : (double) durable / syncs);
+    }
+
+    // ------------------------------------------------------------------------------------------------------
+    // Επανάληψη
+    // ------------------------------------------------------------------------------------------------------
+
+    // Εφαρμόζει τις εγγραφές ενός αρχείου ως την πρώτη μισογραμμένη ή με λάθος CRC, και αποκόπτει ό,τι ακολουθεί
+    private int replay(long gen) throws IOException {
+        Path file = fileOf(gen);
+        long validEnd = 0;
+        int records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            int magic, version;
+            long fileGeneration;
+            try {
+                magic = in.readInt();
+                version = in.readInt();
+                fileGeneration = in.readLong();
+            } catch (EOFException e) {
+                magic = 0;
+                version = 0;
+                fileGeneration = gen; // Δημιουργήθηκε αλλά δεν πρόλαβε να γραφτεί η κεφαλίδα: κενό
+            }
+            if (magic != 0 || version != 0) {
+                if (magic != MAGIC || fileGeneration != gen) {
+                    throw new IOException("Το αρχείο " + file + " δεν είναι ημερολόγιο της γενιάς " + gen + ".");
+                }
+                if (version > FORMAT_VERSION) {
+                    throw new IOException("Το ημερολόγιο " + file + " είναι νεότερης έκδοσης (" + version + ").");
+                }
+                validEnd = HEADER_BYTES;
+                while (true) {
+                    byte[] payload;
+                    int storedCrc;
+                    try {
+                        int length = in.readInt();
+                        storedCrc = in.readInt();
+                        if (length <= 0 || length > MAX_RECORD_BYTES) {
+                            break;
+                        }
+                        payload = new byte[length];
+                        in.readFully(payload);
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    CRC32 crc = new CRC32();
+                    crc.update(payload, 0, payload.length);
+                    if ((int) crc.getValue() != storedCrc) {
+                        break;
+                    }
+                    try {
+                        apply(payload);
+                    } catch (RuntimeException e) {
+                        throw new IOException("Η εγγραφή " + (records + 1) + " του ημερολογίου " + file +
+                                              " δεν εφαρμόζεται: " + e.getMessage(), e);
+                    }
+                    records++;
+                    validEnd += 2 * Integer.BYTES + payload.length;
+                }
+            }
+        }
+        long size = Files.size(file);
+        if (validEnd < size) {
+            System.err.println("Το ημερολόγιο " + file + " τελειώνει με μισογραμμένη ή κατεστραμμένη εγγραφή: " +
+                               "αποκόπτονται " + (size - validEnd) + " bytes.");
+            try (FileChannel truncated = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                truncated.truncate(validEnd);
+                truncated.force(true);
+            }
+        }
+        return records;
+    }
+
+    private void apply(byte[] payload) {
+        BinaryDecoder in = new BinaryDecoder(payload);
+        while (in.hasRemaining()) {
+            int kind = in.varInt();
+            switch (kind) {
+                case STOCK: {
+                    Product product = inventoryManager.getProductByCode(in.varInt());
+                    int quantityDelta = (int) in.varLong();
+                    int reservedDelta = (int) in.varLong();
+                    if (product != null) {
+                        product.adjustStock(quantityDelta, reservedDelta);
+                    }
+                    break;
+                }
+                case ORDER:
+                    replayOrder(in);
+                    break;
+                case SALE:
+                    replaySale(in);
+                    break;
+                case PRODUCT:
+                    replayProduct(in);
+                    break;
+                case PRODUCT_REMOVED:
+                    inventoryManager.replayProductRemoved(in.varInt());
+                    break;
+                case CUSTOMER:
+                    replayCustomer(in);
+                    break;
+                case CUSTOMER_REMOVED:
+                    customerManager.replayCustomerRemoved(in.varInt());
+                    break;
+                default:
+                    throw new IllegalArgumentException("Άγνωστο είδος αλλαγής " + kind + ".");
+            }
+        }
+    }
+
+    // Τα είδη όπως τα γράφει το Entry.items: κωδικός, ζητούμενα, δεσμευμένα, backordered, τιμή
+    private static final class ItemImage {
+        int code;
+        int requested;
+        int reserved;
+        int backordered;
+        long priceCents;
+
+        static ItemImage[] read(BinaryDecoder in) {
+            ItemImage[] items = new ItemImage[in.varInt()];
+            for (int i = 0; i < items.length; i++) {
+                ItemImage item = new ItemImage();
+                item.code = in.varInt();
+                item.requested = in.varInt();
+                item.reserved = in.varInt();
+                item.backordered = in.varInt();
+                item.priceCents = in.varLong();
+                items[i] = item;
+            }
+            return items;
+        }
+
+        // Νέο OrderItem για το προϊόν του καταλόγου με αυτόν τον κωδικό
+        OrderItem create(InventoryManager inventoryManager) {
+            Product product = inventoryManager.getProductByCode(code);
+            if (product == null) {
+                throw new IllegalArgumentException("Το προϊόν " + code + " δεν υπάρχει.");
+            }
+            OrderItem item = new OrderItem(product, requested);
+            item.setReservation(reserved, backordered);
+            item.setPriceAtSaleCents(priceCents);
+            return item;
+        }
+    }
+
+    private void replayOrder(BinaryDecoder in) {
+        int id = in.varInt();
+        int customerId = in.varInt();
+        Date timestamp = new Date(in.varLong());
+        OrderStatus status = STATUSES[in.varInt()];
+        ItemImage[] images = ItemImage.read(in);
+        int[] quantityDeltas = new int[images.length];
+        int[] reservedDeltas = new int[images.length];
+        for (int i = 0; i < images.length; i++) {
+            quantityDeltas[i] = (int) in.varLong();
+            reservedDeltas[i] = (int) in.varLong();
+        }
+
+        Order order = orderManager.findById(id);
+        if (order == null) {
+            Customer customer = customerManager.findById(customerId);
+            if (customer == null) {
+                throw new IllegalArgumentException("Ο πελάτης " + customerId + " της παραγγελίας " + id + " δεν υπάρχει.");
+            }
+            List<OrderItem> items = new ArrayList<>(images.length);
+            for (ItemImage image : images) {
+                items.add(image.create(inventoryManager));
+            }
+            order = new Order(id, customer, items, timestamp, status);
+            adjustItemStock(order, quantityDeltas, reservedDeltas);
+            orderManager.replayNewOrder(order);
+        } else {
+            if (order.getItems().size() != images.length) {
+                throw new IllegalArgumentException("Η παραγγελία " + id + " έχει διαφορετικά είδη από την εγγραφή.");
+            }
+            int[] reserved = new int[images.length];
+            int[] backordered = new int[images.length];
+            for (int i = 0; i < images.length; i++) {
+                reserved[i] = images[i].reserved;
+                backordered[i] = images[i].backordered;
+            }
+            adjustItemStock(order, quantityDeltas, reservedDeltas);
+            orderManager.replayOrderUpdate(order, status, reserved, backordered);
+        }
+    }
+
+    private static void adjustItemStock(Order order, int[] quantityDeltas, int[] reservedDeltas) {
+        List<OrderItem> items = order.getItems();
+        for (int i = 0; i < items.size(); i++) {
+            if (quantityDeltas[i] != 0 || reservedDeltas[i] != 0) {
+                items.get(i).getProduct().adjustStock(quantityDeltas[i], reservedDeltas[i]);
+            }
+        }
+    }
+
+    private void replaySale(BinaryDecoder in) {
+        int saleId = in.varInt();
+        int orderId = in.varInt();
+        int customerId = in.varInt();
+        Date saleDate = new Date(in.varLong());
+        long totalCents = in.varLong();
+        boolean sharesOrderItems = in.varInt() != 0;
+
+        Customer customer = customerManager.findById(customerId);
+        List<OrderItem> items;
+        if (sharesOrderItems) {
+            Order order = orderManager.findById(orderId);
+            if (order == null) {
+                throw new IllegalArgumentException("Η παραγγελία " + orderId + " της πώλησης " + saleId + " δεν υπάρχει.");
+            }
+            items = order.getItems();
+            if (customer == null) {
+                customer = order.getCustomer();
+            }
+        } else {
+            ItemImage[] images = ItemImage.read(in);
+            items = new ArrayList<>(images.length);
+            for (ItemImage image : images) {
+                items.add(image.create(inventoryManager));
+            }
+        }
+        if (customer == null) {
+            throw new IllegalArgumentException("Ο πελάτης " + customerId + " της πώλησης " + saleId + " δεν υπάρχει.");
+        }
+        Order.reserveIdsThrough(orderId); // Οι απευθείας πωλήσεις παίρνουν ID παραγγελίας χωρίς να καταχωρούνται
+        salesLedger.record(new Sale(saleId, orderId, customer, totalCents, saleDate, items));
+    }
+
+    private void replayProduct(BinaryDecoder in) {
+        int code = in.varInt();
+        String name = in.string();
+        long priceCents = in.varLong();
+        int quantity = in.varInt();
+        int reserved = in.varInt();
+        inventoryManager.replayProduct(code, name, priceCents, quantity, reserved);
+    }
+
+    private void replayCustomer(BinaryDecoder in) {
+        customerManager.replayCustomer(new Customer(in.varInt(), in.string(), in.string(), in.string(), in.string(), in.varInt()));
+    }
+}
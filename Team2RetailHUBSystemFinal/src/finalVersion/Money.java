@@ -0,0 +1,102 @@
+package finalVersion;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Χρηματικά ποσά ως long σε λεπτά (1€ = 100). Οι πράξεις στα ποσά είναι απλές πράξεις σε long,
+// χωρίς αντικείμενα και χωρίς σφάλματα στρογγυλοποίησης κατά την άθροιση.
+// Η μετατροπή από/προς double και κείμενο γίνεται μόνο στα άκρα (είσοδος χρήστη, εμφάνιση).
+public final class Money {
+    public static final long CENTS_PER_UNIT = 100;
+
+    private Money() {
+    }
+
+    // Από ποσό σε ευρώ (π.χ. 12.345) σε λεπτά, με στρογγυλοποίηση στο πλησιέστερο λεπτό (μισό προς τα πάνω)
+    public static long toCents(double amount) {
+        if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+            throw new IllegalArgumentException("Μη έγκυρο ποσό: " + amount);
+        }
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+    }
+
+    // Ανάγνωση ποσού από κείμενο (δέχεται και κόμμα ως υποδιαστολή).
+    // Πετάει NumberFormatException όπως το Double.parseDouble, ώστε να ταιριάζει με τον υπάρχοντα χειρισμό εισόδου.
+    public static long parse(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            throw new NumberFormatException("Το ποσό δεν μπορεί να είναι κενό.");
+        }
+        String trimmed = text.trim();
+        long cents = parsePlain(trimmed);
+        if (cents >= 0) {
+            return cents;
+        }
+        try {
+            return new BigDecimal(trimmed.replace(',', '.')).setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Μη έγκυρο ποσό: " + text);
+        }
+    }
+
+    // Γρήγορος δρόμος για τη συνηθισμένη μορφή "123", "123.4" ή "123,45" (π.χ. μαζική εισαγωγή αρχείων):
+    // χωρίς BigDecimal. Επιστρέφει -1 για οτιδήποτε άλλο (πρόσημο, εκθέτης, >2 δεκαδικά, πολλά ψηφία),
+    // οπότε το ποσό περνά από τη γενική ανάγνωση.
+    private static long parsePlain(String text) {
+        int length = text.length();
+        if (length == 0 || length > 15) {
+            return -1;
+        }
+        long units = 0;
+        int i = 0;
+        while (i < length && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+            units = units * 10 + (text.charAt(i++) - '0');
+        }
+        if (i == 0) {
+            return -1;
+        }
+        if (i == length) {
+            return units * CENTS_PER_UNIT;
+        }
+        char separator = text.charAt(i++);
+        int decimals = length - i;
+        if ((separator != '.' && separator != ',') || decimals < 1 || decimals > 2) {
+            return -1;
+        }
+        long fraction = 0;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            fraction = fraction * 10 + (c - '0');
+        }
+        return units * CENTS_PER_UNIT + (decimals == 1 ? fraction * 10 : fraction);
+    }
+
+    public static double toDouble(long cents) {
+        return cents / (double) CENTS_PER_UNIT;
+    }
+
+    // Αξία γραμμής: τιμή μονάδας επί ποσότητα (με έλεγχο υπερχείλισης)
+    public static long times(long unitCents, int quantity) {
+        return Math.multiplyExact(unitCents, (long) quantity);
+    }
+
+    // Μορφή "12.34€"
+    public static String format(long cents) {
+        return appendTo(new StringBuilder(12), cents).toString();
+    }
+
+    public static StringBuilder appendTo(StringBuilder sb, long cents) {
+        long units = cents / CENTS_PER_UNIT;
+        long rest = Math.abs(cents % CENTS_PER_UNIT);
+        if (cents < 0 && units == 0) {
+            sb.append('-');
+        }
+        sb.append(units).append('.');
+        if (rest < 10) {
+            sb.append('0');
+        }
+        return sb.append(rest).append('€');
+    }
+}
@@ -0,0 +1,291 @@
+package finalVersion;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.regex.Pattern;
+
+// Ευρετήριο ονομάτων (προϊόντων, πελατών) για αναζήτηση κειμένου χωρίς σάρωση όλου του καταλόγου.
+// Οι εγγραφές αναγνωρίζονται από ένα ακέραιο κλειδί (κωδικός προϊόντος, ID πελάτη).
+// Τα ονόματα κανονικοποιούνται (πεζά, χωρίς τόνους/διαλυτικά, ς -> σ), ώστε "καφές", "ΚΑΦΕΣ" και "καφεσ" να ταιριάζουν.
+// - Υποσυμβολοσειρά: λίστες εμφάνισης (posting lists) ανά τριγράμματο· οι υποψήφιοι είναι η τομή των λιστών
+//   όλων των τριγραμμάτων του ερωτήματος και επιβεβαιώνονται με contains στο κανονικοποιημένο όνομα.
+// - Πρόθεμα: ταξινομημένοι χάρτες ονομάτων και λέξεων, ώστε τα καλύτερα αποτελέσματα της αναζήτησης κατά την
+//   πληκτρολόγηση να βγαίνουν πρώτα και η αναζήτηση να σταματά μόλις βρει όσα ζητήθηκαν.
+// Κάθε εγγραφή παίρνει εσωτερικό αύξοντα αριθμό (doc) με την εισαγωγή, οπότε οι λίστες μένουν ταξινομημένες
+// απλώς με προσθήκη στο τέλος. Δεν είναι thread-safe· το προστατεύει ο manager που το κατέχει.
+class NameIndex<T> {
+
+    // Ταξινομημένη λίστα docs (int χωρίς boxing)
+    private static final class Postings {
+        private int[] docs = new int[1]; // Οι περισσότερες λέξεις/ονόματα εμφανίζονται σε μία μόνο εγγραφή
+        private int size;
+
+        void add(int doc) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc; // Τα docs δίνονται αύξοντα, άρα η λίστα μένει ταξινομημένη
+        }
+
+        void remove(int doc) {
+            int pos = Arrays.binarySearch(docs, 0, size, doc);
+            if (pos >= 0) {
+                System.arraycopy(docs, pos + 1, docs, pos, size - pos - 1);
+                size--;
+            }
+        }
+
+        boolean contains(int doc) {
+            return Arrays.binarySearch(docs, 0, size, doc) >= 0;
+        }
+    }
+
+    private static final Pattern WORD_SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final Map<Long, Postings> trigrams = new HashMap<>();
+    private final NavigableMap<String, Postings> fullNames = new TreeMap<>();
+    private final NavigableMap<String, Postings> words = new TreeMap<>();
+    private final ToIntFunction<T> keyOf;
+    private final Function<T, String> nameOf;
+    private final IntKeyMap<Integer> docByKey = new IntKeyMap<>();
+    private Object[] entries = new Object[16];
+    private String[] names = new String[16]; // Κανονικοποιημένο όνομα ανά doc (null αν διαγράφηκε)
+    private int nextDoc;
+
+    NameIndex(ToIntFunction<T> keyOf, Function<T, String> nameOf) {
+        this.keyOf = keyOf;
+        this.nameOf = nameOf;
+    }
+
+    // Προσθήκη ή (για κλειδί που υπάρχει ήδη) αντικατάσταση της καταχώρισης, π.χ. μετά από μετονομασία
+    void add(T entry) {
+        int key = keyOf.applyAsInt(entry);
+        remove(key);
+        int doc = nextDoc++;
+        if (doc == entries.length) {
+            entries = Arrays.copyOf(entries, doc * 2);
+            names = Arrays.copyOf(names, doc * 2);
+        }
+        String name = normalize(nameOf.apply(entry));
+        entries[doc] = entry;
+        names[doc] = name;
+        docByKey.put(key, doc);
+        for (long trigram : trigramsOf(name)) {
+            trigrams.computeIfAbsent(trigram, k -> new Postings()).add(doc);
+        }
+        fullNames.computeIfAbsent(name, n -> new Postings()).add(doc);
+        for (String word : wordsOf(name)) {
+            words.computeIfAbsent(word, w -> new Postings()).add(doc);
+        }
+    }
+
+    void remove(int key) {
+        Integer doc = docByKey.remove(key);
+        if (doc == null) {
+            return;
+        }
+        String name = names[doc];
+        for (long trigram : trigramsOf(name)) {
+            Postings postings = trigrams.get(trigram);
+            postings.remove(doc);
+            if (postings.size == 0) trigrams.remove(trigram);
+        }
+        removeFrom(fullNames, name, doc);
+        for (String word : wordsOf(name)) {
+            removeFrom(words, word, doc);
+        }
+        entries[doc] = null;
+        names[doc] = null;
+    }
+
+    // Όλες οι εγγραφές που το όνομά τους περιέχει το κείμενο, με σειρά εισαγωγής στο ευρετήριο
+    List<T> findContaining(String query) {
+        List<T> result = new ArrayList<>();
+        String q = normalize(query);
+        if (q.isEmpty()) {
+            return result;
+        }
+        if (q.length() < 3) {
+            // Χωρίς τριγράμματα στο ερώτημα: σάρωση των (ήδη κανονικοποιημένων) ονομάτων
+            for (int doc = 0; doc < nextDoc; doc++) {
+                if (names[doc] != null && names[doc].contains(q)) {
+                    result.add(entry(doc));
+                }
+            }
+            return result;
+        }
+        for (int doc : candidates(q)) {
+            if (names[doc].contains(q)) {
+                result.add(entry(doc));
+            }
+        }
+        return result;
+    }
+
+    // Έως limit εγγραφές κατά συνάφεια, σε τρεις ομάδες: (1) όσα το όνομα αρχίζει με το κείμενο, αλφαβητικά,
+    // (2) όσα έχουν λέξη που αρχίζει με αυτό, αλφαβητικά κατά τη λέξη, (3) όσα απλώς το περιέχουν, με σειρά εισαγωγής.
+    // Κάθε ομάδα διαβάζεται ήδη ταξινομημένη από το ευρετήριο και η αναζήτηση σταματά στα limit αποτελέσματα,
+    // οπότε το κόστος δεν εξαρτάται από το πόσα προϊόντα ταιριάζουν συνολικά.
+    List<T> search(String query, int limit) {
+        List<T> result = new ArrayList<>();
+        String q = normalize(query);
+        if (q.isEmpty() || limit <= 0) {
+            return result;
+        }
+        Set<Integer> chosen = new HashSet<>();
+        collectPrefixed(fullNames, q, limit, chosen, result);
+        collectPrefixed(words, q, limit, chosen, result);
+        if (result.size() >= limit || q.length() < 3) {
+            return result;
+        }
+        // Διάσχιση της μικρότερης λίστας και έλεγχος μέλους στις υπόλοιπες, μέχρι να συμπληρωθεί το limit
+        Postings[] lists = postingsOf(q);
+        if (lists == null) {
+            return result;
+        }
+        Postings smallest = lists[0];
+        for (int i = 0; i < smallest.size && result.size() < limit; i++) {
+            int doc = smallest.docs[i];
+            if (inAll(lists, doc) && names[doc].contains(q) && chosen.add(doc)) {
+                result.add(entry(doc));
+            }
+        }
+        return result;
+    }
+
+    int size() {
+        return docByKey.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private T entry(int doc) {
+        return (T) entries[doc];
+    }
+
+    // Πεζά, χωρίς διακριτικά (τόνοι, διαλυτικά), τελικό σίγμα ως σ, μονά κενά
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text.trim().toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        boolean space = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            int type = Character.getType(c);
+            if (type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK || type == Character.ENCLOSING_MARK) {
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+            if (space && sb.length() > 0) {
+                sb.append(' ');
+            }
+            space = false;
+            sb.append(c == 'ς' ? 'σ' : c);
+        }
+        return sb.toString();
+    }
+
+    private void collectPrefixed(NavigableMap<String, Postings> map, String prefix, int limit, Set<Integer> chosen, List<T> result) {
+        for (Postings postings : map.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            for (int i = 0; i < postings.size; i++) {
+                if (result.size() >= limit) {
+                    return;
+                }
+                if (chosen.add(postings.docs[i])) {
+                    result.add(entry(postings.docs[i]));
+                }
+            }
+        }
+    }
+
+    private static void removeFrom(Map<String, Postings> map, String key, int doc) {
+        Postings postings = map.get(key);
+        postings.remove(doc);
+        if (postings.size == 0) map.remove(key);
+    }
+
+    // Οι λίστες των τριγραμμάτων του q, η μικρότερη πρώτη· null αν κάποιο τριγράμματο δεν εμφανίζεται πουθενά
+    private Postings[] postingsOf(String q) {
+        long[] keys = trigramsOf(q);
+        Postings[] lists = new Postings[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            lists[i] = trigrams.get(keys[i]);
+            if (lists[i] == null) {
+                return null;
+            }
+        }
+        Arrays.sort(lists, Comparator.comparingInt(p -> p.size));
+        return lists;
+    }
+
+    private static boolean inAll(Postings[] lists, int doc) {
+        for (int i = 1; i < lists.length; i++) {
+            if (!lists[i].contains(doc)) return false;
+        }
+        return true;
+    }
+
+    // Docs που περιέχουν όλα τα τριγράμματα του q (τομή, ξεκινώντας από τη μικρότερη λίστα)
+    private int[] candidates(String q) {
+        Postings[] lists = postingsOf(q);
+        if (lists == null) {
+            return new int[0];
+        }
+        int[] result = Arrays.copyOf(lists[0].docs, lists[0].size);
+        int n = result.length;
+        for (int i = 1; i < lists.length && n > 0; i++) {
+            int kept = 0;
+            for (int j = 0; j < n; j++) {
+                if (lists[i].contains(result[j])) {
+                    result[kept++] = result[j];
+                }
+            }
+            n = kept;
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    // Τα διακριτά τριγράμματα του κειμένου, κωδικοποιημένα σε long (3 x 16 bit).
+    // Ο πολλαπλασιασμός με περιττή σταθερά είναι αντιστρέψιμος (τα κλειδιά μένουν μοναδικά) και σκορπίζει τα bits,
+    // γιατί το Long.hashCode των απλών κωδικοποιήσεων συγκρούεται πολύ για χαρακτήρες της ίδιας περιοχής (π.χ. ελληνικά).
+    private static long[] trigramsOf(String s) {
+        if (s.length() < 3) {
+            return new long[0];
+        }
+        long[] keys = new long[s.length() - 2];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2)) * 0x9E3779B97F4A7C15L;
+        }
+        Arrays.sort(keys);
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (n == 0 || keys[n - 1] != keys[i]) keys[n++] = keys[i];
+        }
+        return Arrays.copyOf(keys, n);
+    }
+
+    private static Set<String> wordsOf(String name) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String word : WORD_SEPARATORS.split(name)) {
+            if (!word.isEmpty()) result.add(word);
+        }
+        return result;
+    }
+}
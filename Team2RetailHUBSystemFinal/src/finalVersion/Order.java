@@ -8,12 +8,21 @@ import java.util.concurrent.atomic.AtomicInteger; // Χρήση AtomicInteger γ
 
 public class Order {
 
+    // Ειδοποιείται για κάθε αλλαγή κατάστασης (τη χρησιμοποιεί ο OrderManager για το ευρετήριο ανά κατάσταση)
+    interface StatusListener {
+        void statusChanged(Order order, OrderStatus oldStatus, OrderStatus newStatus);
+    }
+
     private static final AtomicInteger idCounter = new AtomicInteger(1000);
     private final int id;
     private final Customer customer;
     private final List<OrderItem> items; // Λίστα με OrderItem objects
     private OrderStatus status;          // Κατάσταση της παραγγελίας (PENDING, FULFILLED, CANCELED)
     private final Date timestamp;        // Χρόνος δημιουργίας παραγγελίας
+    // Μετρητές ειδών που συντηρεί ο OrderManager, ώστε η κατάσταση να ενημερώνεται σταδιακά κατά την κατανομή
+    private int unreservedLines;         // Είδη που δεν έχουν δεσμευτεί πλήρως
+    private int backorderedLines;        // Είδη με εκκρεμή (backordered) ποσότητα
+    private StatusListener statusListener;
 
     public Order(Customer customer, List<OrderItem> items) {
         if (customer == null) {
@@ -31,8 +40,32 @@ public class Order {
         this.status = OrderStatus.PENDING;
     }
 
+    // Επαναφορά αποθηκευμένης παραγγελίας (βλ. SnapshotStore): με το αρχικό ID, χρόνο και κατάσταση.
+    // Τα είδη έχουν ήδη τις δεσμευμένες/εκκρεμείς ποσότητές τους· δεν δεσμεύεται απόθεμα.
+    Order(int id, Customer customer, List<OrderItem> items, Date timestamp, OrderStatus status) {
+        if (customer == null || items == null || items.isEmpty() || timestamp == null || status == null) {
+            throw new IllegalArgumentException("Ελλιπή στοιχεία αποθηκευμένης παραγγελίας " + id + ".");
+        }
+        this.id = id;
+        this.customer = customer;
+        this.items = new ArrayList<>(items);
+        this.timestamp = new Date(timestamp.getTime());
+        this.status = status;
+        reserveIdsThrough(id);
+    }
+
     // --- Getters ---
     public int getId() { return id; }
+
+    // Το τελευταίο ID που δόθηκε (οι νέες παραγγελίες παίρνουν μεγαλύτερο)
+    static int getLastIssuedId() {
+        return idCounter.get();
+    }
+
+    // Οι επόμενες παραγγελίες θα πάρουν ID μεγαλύτερο από lastUsedId (π.χ. μετά από εισαγωγή ιστορικών πωλήσεων)
+    static void reserveIdsThrough(int lastUsedId) {
+        idCounter.accumulateAndGet(lastUsedId, Math::max);
+    }
     public Customer getCustomer() { return customer; }
     public OrderStatus getStatus() { return status; }
     public Date getTimestamp() { return new Date(timestamp.getTime()); } // Επιστρέφουμε αντίγραφο για ασφάλεια
@@ -47,7 +80,15 @@ public class Order {
         if (status == null) {
             throw new IllegalArgumentException("Η κατάσταση της παραγγελίας δεν μπορεί να είναι null.");
         }
+        OrderStatus oldStatus = this.status;
         this.status = status;
+        if (statusListener != null && oldStatus != status) {
+            statusListener.statusChanged(this, oldStatus, status);
+        }
+    }
+
+    void setStatusListener(StatusListener statusListener) {
+        this.statusListener = statusListener;
     }
 
     // --- Βοηθητικές Μέθοδοι για την Κατάσταση και τους Υπολογισμούς ---
@@ -61,11 +102,38 @@ public class Order {
     }
 
     public double getTotalValue() {
-        return items.stream()
-                    .mapToDouble(item -> item.getRequestedQty() * item.getPriceAtSale())
-                    .sum();
+        return Money.toDouble(getTotalValueCents());
+    }
+
+    public long getTotalValueCents() {
+        long total = 0;
+        for (int i = 0; i < items.size(); i++) {
+            total = Math.addExact(total, items.get(i).getTotalValueCents());
+        }
+        return total;
     }
 
+    // Ξαναμετρά τα είδη της παραγγελίας (μετά από δημιουργία, εκπλήρωση ή ακύρωση)
+    void recountLines() {
+        int unreserved = 0;
+        int backordered = 0;
+        for (OrderItem item : items) {
+            if (!item.isFullyReserved()) unreserved++;
+            if (item.getBackorderedQuantity() > 0) backordered++;
+        }
+        this.unreservedLines = unreserved;
+        this.backorderedLines = backordered;
+    }
+
+    // Σταδιακή ενημέρωση των μετρητών όταν ένα είδος πήρε απόθεμα από την κατανομή backorder
+    void lineAllocated(OrderItem item, boolean wasFullyReserved, boolean wasBackordered) {
+        if (!wasFullyReserved && item.isFullyReserved()) unreservedLines--;
+        if (wasBackordered && item.getBackorderedQuantity() == 0) backorderedLines--;
+    }
+
+    boolean hasUnreservedLines() { return unreservedLines > 0; }
+    boolean hasBackorderedLines() { return backorderedLines > 0; }
+
     public boolean isCancelled() {
         return status == OrderStatus.CANCELED;
     }
@@ -85,7 +153,8 @@ public class Order {
                                      it.getReservedQuantity(),
                                      it.getBackorderedQuantity()))
         );
-        sb.append(String.format("Συνολική Αξία Παραγγελίας: %.2f€%n", getTotalValue()));
+        sb.append("Συνολική Αξία Παραγγελίας: ");
+        Money.appendTo(sb, getTotalValueCents()).append(System.lineSeparator());
         return sb.toString();
     }
 }
@@ -7,7 +7,7 @@ public class OrderItem implements Serializable {
     private int requestedQty;     // Η αρχικά ζητούμενη ποσότητα από τον χρήστη
     private int reservedQty;      // Η ποσότητα που έχει δεσμευτεί επιτυχώς από το απόθεμα
     private int backorderedQty;   // Η ποσότητα που εκκρεμεί (backorder) και αναμένει απόθεμα
-    private double priceAtSale;   // Η τιμή του προϊόντος τη στιγμή της προσθήκης στην παραγγελία
+    private long priceAtSaleCents; // Η τιμή του προϊόντος (σε λεπτά) τη στιγμή της προσθήκης στην παραγγελία
 
     public OrderItem(Product product, int requestedQty) {
         if (product == null) {
@@ -20,7 +20,7 @@ public class OrderItem implements Serializable {
         this.requestedQty = requestedQty;
         this.reservedQty = 0;
         this.backorderedQty = 0;
-        this.priceAtSale = product.getPrice(); // Αποθηκεύουμε την τρέχουσα τιμή του προϊόντος
+        this.priceAtSaleCents = product.getPriceCents(); // Αποθηκεύουμε την τρέχουσα τιμή του προϊόντος
     }
 
     // --- Getters ---
@@ -45,7 +45,11 @@ public class OrderItem implements Serializable {
     }
 
     public double getPriceAtSale() {
-        return priceAtSale;
+        return Money.toDouble(priceAtSaleCents);
+    }
+
+    public long getPriceAtSaleCents() {
+        return priceAtSaleCents;
     }
 
     // Το pending status εξαρτάται από το backorderedQty
@@ -82,6 +86,16 @@ public class OrderItem implements Serializable {
         this.reservedQty = this.requestedQty - this.backorderedQty;
     }
 
+    // Ορίζει μαζί δεσμευμένη και εκκρεμή ποσότητα, χωρίς να υποθέτει ότι το άθροισμά τους είναι η ζητούμενη
+    // (π.χ. μερική δέσμευση χωρίς backorder, όπου ένα μέρος της ζήτησης μένει ακάλυπτο).
+    public void setReservation(int reservedQty, int backorderedQty) {
+        if (reservedQty < 0 || backorderedQty < 0 || reservedQty + backorderedQty > this.requestedQty) {
+            throw new IllegalArgumentException("Μη έγκυρη δέσμευση: " + reservedQty + " δεσμευμένα, " + backorderedQty + " σε εκκρεμότητα. Ζητήθηκε: " + this.requestedQty);
+        }
+        this.reservedQty = reservedQty;
+        this.backorderedQty = backorderedQty;
+    }
+
     public void addQuantity(int quantity) {
         if (quantity <= 0) {
             throw new IllegalArgumentException("Η επιπλέον ποσότητα πρέπει να είναι θετική.");
@@ -111,12 +125,21 @@ public class OrderItem implements Serializable {
     }
 
     public double getTotalValue() {
-        // Η συνολική αξία του συγκεκριμένου είδους στην παραγγελία
-        return requestedQty * priceAtSale;
+        return Money.toDouble(getTotalValueCents());
+    }
+
+    // Η συνολική αξία του συγκεκριμένου είδους στην παραγγελία, σε λεπτά
+    public long getTotalValueCents() {
+        return Money.times(priceAtSaleCents, requestedQty);
+    }
+
+    public void setPriceAtSaleCents(long priceAtSaleCents) {
+        if (priceAtSaleCents < 0) throw new IllegalArgumentException("Η τιμή πώλησης δεν μπορεί να είναι αρνητική.");
+        this.priceAtSaleCents = priceAtSaleCents;
     }
 
     public void setPriceAtSale(double priceAtSale) {
         if (priceAtSale < 0) throw new IllegalArgumentException("Η τιμή πώλησης δεν μπορεί να είναι αρνητική.");
-        this.priceAtSale = priceAtSale;
+        this.priceAtSaleCents = Money.toCents(priceAtSale);
     }
 }
\ No newline at end of file
@@ -2,211 +2,801 @@ package finalVersion;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 import java.util.Date; 
 
 
 public class OrderManager {
-    private List<Order> orders = new ArrayList<>();
+
+    // Ειδοποιείται όταν καταχωρείται μια παραγγελία ή αλλάζει η κατάστασή της.
+    // Καλείται ενώ κρατάμε κλειδώματα, οπότε πρέπει να είναι σύντομος (π.χ. να σημειώνει μόνο το ID).
+    public interface OrderListener {
+        void orderChanged(Order order);
+    }
+
+    private List<Order> orders = new ArrayList<>();                         // Όλες οι παραγγελίες με σειρά καταχώρησης
+    private final IntKeyMap<Order> ordersById = new IntKeyMap<>();           // ID παραγγελίας -> παραγγελία
+    private final IntKeyMap<List<Order>> ordersByCustomerId = new IntKeyMap<>(); // ID πελάτη -> οι παραγγελίες του
     private InventoryManager inventoryManager;
+    private final ProductLocks productLocks = new ProductLocks();
+    private final SalesLedger salesLedger;                                   // Οι πωλήσεις από παραδόσεις και απευθείας πωλήσεις
+    // Ευρετήριο backorder: κωδικός προϊόντος -> ουρά προτεραιότητας με τα είδη παραγγελιών που περιμένουν απόθεμα.
+    // Κάθε ουρά αλλάζει μόνο ενώ κρατάμε το κλείδωμα του προϊόντος της.
+    private final IntKeyMap<BackorderQueue> backorderQueues = new IntKeyMap<>();
+    // Πολιτική κατανομής και η προτεραιότητα που δίνει σε κάθε εγγραφή της ουράς (βλ. setAllocationPolicy)
+    private volatile AllocationPolicy allocationPolicy = AllocationPolicy.FIFO;
+    private volatile ToLongFunction<BackorderEntry> backorderRank = entry -> 0;
+    private volatile ToIntFunction<Customer> customerPriority = customer -> 0;
+    private final Object policyLock = new Object();
+    // Ευρετήριο ανά κατάσταση για τις ανοιχτές παραγγελίες (PENDING, PARTIALLY_FULFILLED, READY_TO_BE_DELIVERED).
+    // Για τις τελικές καταστάσεις (FULFILLED, CANCELED), που θα είναι η μεγάλη πλειονότητα του ιστορικού,
+    // κρατάμε μόνο πλήθος, ώστε τα ερωτήματα για ανοιχτές παραγγελίες να μην τις αγγίζουν ποτέ.
+    private final EnumMap<OrderStatus, Set<Order>> openOrdersByStatus = new EnumMap<>(OrderStatus.class);
+    private final EnumMap<OrderStatus, Integer> statusCounts = new EnumMap<>(OrderStatus.class);
+    private final List<OrderListener> orderListeners = new CopyOnWriteArrayList<>();
+    // Ημερολόγιο των αλλαγών (null: δεν γράφονται). Το Journal.Op κάθε λειτουργίας ανοίγει πριν από τα
+    // κλειδώματα των προϊόντων και κλείνει (περιμένοντας το fsync) αφού αφεθούν.
+    private volatile Journal journal;
+    // Συνδρομητής της ροής αλλαγών αποθέματος όταν είναι ενεργή η αυτόματη κατανομή (null: ανενεργή)
+    private InventoryChangeFeed.Listener autoAllocator;
+    // Χρόνος κράτησης των παραγγελιών που περιμένουν (PENDING, PARTIALLY_FULFILLED) από τη δημιουργία τους.
+    // Όταν λήξει, η παραγγελία ακυρώνεται και το απόθεμά της πηγαίνει σε άλλα backorders (0: χωρίς λήξη).
+    private volatile long orderHoldMillis;
+    private final IntKeyMap<ReservationHolds.Hold> orderHolds = new IntKeyMap<>(); // ID παραγγελίας -> κράτηση
 
     public OrderManager(InventoryManager inventoryManager) {
+        this(inventoryManager, new SalesLedger());
+    }
+
+    public OrderManager(InventoryManager inventoryManager, SalesLedger salesLedger) {
         if (inventoryManager == null) {
             throw new IllegalArgumentException("Ο InventoryManager δεν μπορεί να είναι null.");
         }
+        if (salesLedger == null) {
+            throw new IllegalArgumentException("Το βιβλίο πωλήσεων δεν μπορεί να είναι null.");
+        }
         this.inventoryManager = inventoryManager;
+        this.salesLedger = salesLedger;
+        // Μετά από κάθε αναπλήρωση το νέο απόθεμα κατανέμεται αυτόματα στα backorders του προϊόντος
+        inventoryManager.setBackorderAllocator(this::allocateBackorderedItems);
+        for (OrderStatus status : OrderStatus.values()) {
+            statusCounts.put(status, 0);
+            if (!isTerminal(status)) {
+                openOrdersByStatus.put(status, new LinkedHashSet<>());
+            }
+        }
     }
 
+    @SuppressWarnings("try")
     public void addOrder(Order order) {
-        if (order != null && !orders.contains(order)) { // Αποφυγή διπλοτύπων
-            orders.add(order);
+        if (order == null) {
+            return;
+        }
+        try (Journal.Op op = Journal.begin(journal);
+             ProductLocks.Held held = productLocks.lockItems(order.getItems())) {
+            if (registerOrder(order, op, new Journal.Entry().order(order, null, null))) {
+                order.recountLines();
+                enqueueBackorders(order);
+                holdOrder(order);
+            }
+        }
+    }
+
+    private boolean registerOrder(Order order) {
+        return registerOrder(order, null, null);
+    }
+
+    // Η εγγραφή ημερολογίου (αν υπάρχει) προστίθεται στο ίδιο κλείδωμα, ώστε η επανάληψη να καταχωρεί
+    // τις παραγγελίες με την ίδια σειρά
+    private synchronized boolean registerOrder(Order order, Journal.Op op, Journal.Entry entry) {
+        if (ordersById.containsKey(order.getId())) { // Αποφυγή διπλοτύπων
+            return false;
+        }
+        if (op != null) {
+            op.append(entry);
+        }
+        orders.add(order);
+        ordersById.put(order.getId(), order);
+        ordersByCustomerId.computeIfAbsent(order.getCustomer().getId(), id -> new ArrayList<>()).add(order);
+        indexStatus(order, null, order.getStatus());
+        // Κάθε μεταγενέστερη αλλαγή κατάστασης (από οποιονδήποτε) ενημερώνει το ευρετήριο
+        order.setStatusListener(this::statusChanged);
+        notifyOrderChanged(order);
+        return true;
+    }
+
+    public void addOrderListener(OrderListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Ο listener δεν μπορεί να είναι null.");
+        }
+        orderListeners.add(listener);
+    }
+
+    public void removeOrderListener(OrderListener listener) {
+        orderListeners.remove(listener);
+    }
+
+    private void notifyOrderChanged(Order order) {
+        for (OrderListener listener : orderListeners) {
+            listener.orderChanged(order);
+        }
+    }
+
+    // --- Ευρετήριο ανά κατάσταση
+
+    private synchronized void statusChanged(Order order, OrderStatus oldStatus, OrderStatus newStatus) {
+        indexStatus(order, oldStatus, newStatus);
+        if (!isWaiting(newStatus)) {
+            releaseOrderHold(order);
         }
+        notifyOrderChanged(order);
     }
 
-    public Order findById(int id) {
+    private void indexStatus(Order order, OrderStatus oldStatus, OrderStatus newStatus) {
+        if (oldStatus != null) {
+            statusCounts.merge(oldStatus, -1, Integer::sum);
+            if (!isTerminal(oldStatus)) {
+                openOrdersByStatus.get(oldStatus).remove(order);
+            }
+        }
+        statusCounts.merge(newStatus, 1, Integer::sum);
+        if (!isTerminal(newStatus)) {
+            openOrdersByStatus.get(newStatus).add(order);
+        }
+    }
+
+    private static boolean isWaiting(OrderStatus status) {
+        return status == OrderStatus.PENDING || status == OrderStatus.PARTIALLY_FULFILLED;
+    }
+
+    private static boolean isTerminal(OrderStatus status) {
+        return status == OrderStatus.FULFILLED || status == OrderStatus.CANCELED;
+    }
+
+    // Οι παραγγελίες σε μια κατάσταση. Για τις ανοιχτές καταστάσεις διαβάζεται απευθείας από το ευρετήριο·
+    // για τις τελικές απαιτείται σάρωση του ιστορικού.
+    public synchronized List<Order> getOrdersByStatus(OrderStatus status) {
+        if (status == null) {
+            return new ArrayList<>();
+        }
+        if (!isTerminal(status)) {
+            return new ArrayList<>(openOrdersByStatus.get(status));
+        }
+        List<Order> result = new ArrayList<>(statusCounts.get(status));
         for (Order order : orders) {
-            if (order.getId() == id) {
-                return order;
+            if (order.getStatus() == status) {
+                result.add(order);
             }
         }
-        return null;
+        return result;
+    }
+
+    // Όλες οι μη τελικές παραγγελίες (PENDING, PARTIALLY_FULFILLED, READY_TO_BE_DELIVERED)
+    public synchronized List<Order> getOpenOrders() {
+        List<Order> result = new ArrayList<>();
+        for (Set<Order> bucket : openOrdersByStatus.values()) {
+            result.addAll(bucket);
+        }
+        return result;
+    }
+
+    public synchronized int countByStatus(OrderStatus status) {
+        return status == null ? 0 : statusCounts.get(status);
+    }
+
+    public synchronized EnumMap<OrderStatus, Integer> countByStatus() {
+        return new EnumMap<>(statusCounts);
+    }
+
+    public synchronized Order findById(int id) {
+        return ordersById.get(id);
     }
 
-    public List<Order> getAllOrders() { 
+    public synchronized List<Order> getAllOrders() { 
         return Collections.unmodifiableList(new ArrayList<>(orders));
     }
 
+    // Θεσιακή πρόσβαση με τη σειρά καταχώρησης, για σελιδοποιημένη εμφάνιση χωρίς αντίγραφο όλων των παραγγελιών
+    public synchronized int getOrderCount() {
+        return orders.size();
+    }
+
+    public synchronized List<Order> getOrdersRange(int from, int count) {
+        int start = Math.max(0, Math.min(from, orders.size()));
+        int end = Math.min(orders.size(), start + Math.max(0, count));
+        return new ArrayList<>(orders.subList(start, end));
+    }
+
     public List<Order> getOrdersForCustomer(Customer customer) {
         if (customer == null) {
             return new ArrayList<>();
         }
-        List<Order> customerOrders = new ArrayList<>();
-        for (Order order : orders) {
-            // Ελέγχουμε αν ο πελάτης της παραγγελίας είναι ο ίδιος
-            if (order.getCustomer() != null && order.getCustomer().equals(customer)) {
-                customerOrders.add(order);
-            }
-        }
-        return customerOrders;
+        return getOrdersForCustomer(customer.getId());
+    }
+
+    public synchronized List<Order> getOrdersForCustomer(int customerId) {
+        List<Order> customerOrders = ordersByCustomerId.get(customerId);
+        return customerOrders == null ? new ArrayList<>() : new ArrayList<>(customerOrders);
     }
 
     public Order createOrder(Customer customer, List<OrderItem> itemsToOrder, boolean allowBackorder) {
-        if (customer == null || itemsToOrder == null || itemsToOrder.isEmpty()) {
-            System.err.println("Σφάλμα: Δεν μπορεί να δημιουργηθεί η παραγγελία. Ελλιπή στοιχεία (πελάτης ή είδη).");
+        return createOrder(customer, itemsToOrder, allowBackorder ? ReservationPolicy.BACKORDER : ReservationPolicy.PARTIAL);
+    }
+
+    @SuppressWarnings("try")
+    public Order createOrder(Customer customer, List<OrderItem> itemsToOrder, ReservationPolicy policy) {
+        if (customer == null || itemsToOrder == null || itemsToOrder.isEmpty() || policy == null) {
+            System.err.println("Σφάλμα: Δεν μπορεί να δημιουργηθεί η παραγγελία. Ελλιπή στοιχεία (πελάτης, είδη ή πολιτική δέσμευσης).");
             return null;
         }
 
         // Δημιουργούμε την παραγγελία με τα αρχικά OrderItems
         Order newOrder = new Order(customer, itemsToOrder);
 
-        boolean allItemsFullyReserved = true; // Για να ελέγξουμε την κατάσταση της παραγγελίας
+        boolean allItemsFullyReserved; // Για να ελέγξουμε την κατάσταση της παραγγελίας
+
+        // Όλα τα είδη δεσμεύονται ενώ κρατάμε τα κλειδώματα όλων των προϊόντων της παραγγελίας,
+        // ώστε μια ταυτόχρονη ακύρωση ή κατανομή να μη βλέπει ποτέ μισοδεσμευμένη παραγγελία.
+        try (Journal.Op op = Journal.begin(journal);
+             ProductLocks.Held held = productLocks.lockItems(newOrder.getItems())) {
+            if (policy == ReservationPolicy.ALL_OR_NOTHING) {
+                if (!reserveAllOrNothing(newOrder)) {
+                    EventLog.log(EventLog.Event.ORDER_NOT_CREATED, customer.getName());
+                    return null;
+                }
+                allItemsFullyReserved = true;
+            } else {
+                allItemsFullyReserved = reserveEachItem(newOrder, policy == ReservationPolicy.BACKORDER);
+            }
+
+            // Καθορισμός της τελικής κατάστασης της παραγγελίας
+            if (allItemsFullyReserved) {
+                newOrder.setStatus(OrderStatus.READY_TO_BE_DELIVERED);
+                EventLog.log(EventLog.Event.ORDER_CREATED_AS, newOrder.getId(), OrderStatus.READY_TO_BE_DELIVERED);
+            } else if (newOrder.hasBackorderedItems()) { // Αν έχει backorders, αλλά δεν έχει καλυφθεί πλήρως
+                newOrder.setStatus(OrderStatus.PARTIALLY_FULFILLED);
+                EventLog.log(EventLog.Event.ORDER_CREATED_AS, newOrder.getId(), OrderStatus.PARTIALLY_FULFILLED);
+            } else {
+                newOrder.setStatus(OrderStatus.PENDING);
+                EventLog.log(EventLog.Event.ORDER_CREATED_AS, newOrder.getId(), OrderStatus.PENDING);
+            }
+
+            // Η καταχώρηση και η εισαγωγή στις ουρές backorder γίνονται πριν αφήσουμε τα κλειδώματα,
+            // ώστε μια κατανομή να μη βρει την παραγγελία πριν πάρει την αρχική της κατάσταση.
+            registerOrder(newOrder, op, orderEntry(newOrder, null));
+            newOrder.recountLines();
+            enqueueBackorders(newOrder);
+            holdOrder(newOrder);
+        }
+
+        EventLog.log(EventLog.Event.ORDER_CREATED, newOrder.getId(), customer.getName(), newOrder.getStatus());
+        return newOrder;
+    }
+
+    // Δεσμεύει κάθε είδος πλήρως ή, αν κάποιο δεν επαρκεί, αναιρεί όσα δεσμεύτηκαν και επιστρέφει false.
+    // Καλείται κρατώντας τα κλειδώματα των προϊόντων της παραγγελίας.
+    private boolean reserveAllOrNothing(Order order) {
+        List<OrderItem> reservedItems = new ArrayList<>();
+        for (OrderItem item : order.getItems()) {
+            Product product = item.getProduct();
+            if (!product.tryReserve(item.getRequestedQty())) {
+                EventLog.log(EventLog.Event.ITEM_SHORT, product.getName(), product.getAvailableQuantity(), item.getRequestedQty());
+                for (OrderItem done : reservedItems) {
+                    done.getProduct().unreserve(done.getReservedQuantity());
+                    done.setReservation(0, 0);
+                }
+                return false;
+            }
+            item.setReservation(item.getRequestedQty(), 0);
+            reservedItems.add(item);
+            EventLog.log(EventLog.Event.ITEM_RESERVED_FULLY, product.getName(), item.getRequestedQty());
+        }
+        return true;
+    }
+
+    // Δεσμεύει ό,τι υπάρχει για κάθε είδος. Το υπόλοιπο γίνεται backorder μόνο αν επιτρέπεται.
+    // Επιστρέφει true αν όλα τα είδη δεσμεύτηκαν πλήρως.
+    private boolean reserveEachItem(Order order, boolean allowBackorder) {
+        boolean allItemsFullyReserved = true;
 
         // Περνάμε από κάθε OrderItem για να δεσμεύσουμε απόθεμα
-        for (OrderItem item : newOrder.getItems()) { // Χρησιμοποιούμε τα OrderItems της νέας παραγγελίας
+        for (OrderItem item : order.getItems()) { // Χρησιμοποιούμε τα OrderItems της νέας παραγγελίας
             Product product = item.getProduct();
             if (product == null) {
                 System.err.println("Προσοχή: Το προϊόν για το OrderItem δεν βρέθηκε.");
                 continue;
             }
 
-            int availableForReservation = product.getAvailableQuantity();
             int requestedQty = item.getRequestedQty();
 
-            int reservedNow = 0;
-            int backorderedNow = 0;
+            // Ο έλεγχος διαθεσιμότητας και η δέσμευση γίνονται σε ένα ατομικό βήμα μέσα στο reserve,
+            // που δεσμεύει όσα υπάρχουν (έως requestedQty) και επιστρέφει πόσα δεσμεύτηκαν.
+            int reservedNow = product.reserve(requestedQty);
+
+            if (reservedNow == requestedQty) {
+                // Υπήρχε αρκετό απόθεμα για πλήρη δέσμευση
+                item.setReservation(reservedNow, 0);
+                EventLog.log(EventLog.Event.ITEM_RESERVED_FULLY, product.getName(), reservedNow);
+                continue;
+            }
 
-            if (availableForReservation >= requestedQty) {
-                // Υπάρχει αρκετό απόθεμα για πλήρη δέσμευση
-                reservedNow = product.reserve(requestedQty); // Δεσμεύουμε την ποσότητα
-                item.setReservedQuantity(reservedNow);
-                item.setBackorderedQuantity(0);
-                System.out.println("Προϊόν " + product.getName() + ": Δεσμεύτηκαν πλήρως " + reservedNow + " τεμάχια.");
+            // Δεν υπάρχει αρκετό απόθεμα
+            allItemsFullyReserved = false; // Τουλάχιστον ένα είδος δεν καλύφθηκε πλήρως
+            if (reservedNow > 0) {
+                EventLog.log(EventLog.Event.ITEM_RESERVED, product.getName(), reservedNow);
             } else {
-                // Δεν υπάρχει αρκετό απόθεμα
-                allItemsFullyReserved = false; // Τουλάχιστον ένα είδος δεν καλύφθηκε πλήρως
+                EventLog.log(EventLog.Event.ITEM_NONE_AVAILABLE, product.getName());
+            }
 
-                if (availableForReservation > 0) {
-                    reservedNow = product.reserve(availableForReservation); // Δεσμεύουμε ό,τι υπάρχει
-                    item.setReservedQuantity(reservedNow);
-                    System.out.println("Προϊόν " + product.getName() + ": Δεσμεύτηκαν " + reservedNow + " τεμάχια.");
-                } else {
-                    item.setReservedQuantity(0); // Τίποτα δεν δεσμεύτηκε
-                    System.out.println("Προϊόν " + product.getName() + ": Δεν υπάρχει διαθέσιμο απόθεμα για δέσμευση.");
-                }
+            if (allowBackorder) {
+                int backorderedNow = requestedQty - reservedNow;
+                item.setReservation(reservedNow, backorderedNow);
+                EventLog.log(EventLog.Event.ITEM_BACKORDERED, product.getName(), backorderedNow);
+            } else {
+                item.setReservation(reservedNow, 0); // Δεν επιτρέπεται backorder
+                EventLog.log(EventLog.Event.ITEM_NO_BACKORDER, product.getName(), reservedNow);
+            }
+        }
+        return allItemsFullyReserved;
+    }
 
-                if (allowBackorder) {
-                    backorderedNow = requestedQty - reservedNow;
-                    item.setBackorderedQuantity(backorderedNow);
-                    System.out.println("Προσοχή: Για το προϊόν " + product.getName() + " δημιουργήθηκε backorder " + backorderedNow + " τεμαχίων.");
-                } else {
-                    item.setBackorderedQuantity(0); // Δεν επιτρέπεται backorder
-                    System.out.println("Προσοχή: Για το προϊόν " + product.getName() + " διατέθηκαν μόνο " + reservedNow + " τεμάχια (backorder δεν επιτράπηκε).");
+    // --- Ευρετήριο backorder
+
+    private BackorderQueue backorderQueue(int productCode) {
+        synchronized (backorderQueues) {
+            return backorderQueues.computeIfAbsent(productCode, code -> new BackorderQueue());
+        }
+    }
+
+    // Βάζει το είδος στην ουρά του προϊόντος του, με την προτεραιότητα της τρέχουσας πολιτικής
+    private void enqueueBackorder(Order order, OrderItem item) {
+        BackorderEntry entry = new BackorderEntry(order, item);
+        backorderQueue(item.getProduct().getCode()).add(entry, backorderRank.applyAsLong(entry));
+    }
+
+    // Γρήγορος έλεγχος χωρίς το κλείδωμα του προϊόντος: μπορεί να δει λίγο παλιά εικόνα της ουράς,
+    // οπότε η κατανομή που ακολουθεί ξαναελέγχει την ουρά με το κλείδωμα
+    private boolean hasBackorders(int productCode) {
+        synchronized (backorderQueues) {
+            BackorderQueue queue = backorderQueues.get(productCode);
+            return queue != null && !queue.isEmpty();
+        }
+    }
+
+    // Βάζει στο τέλος της ουράς του προϊόντος του κάθε είδος της παραγγελίας που έχει εκκρεμή ποσότητα
+    private void enqueueBackorders(Order order) {
+        for (OrderItem item : order.getItems()) {
+            if (item.getBackorderedQuantity() > 0) {
+                enqueueBackorder(order, item);
+            }
+        }
+    }
+
+    // Αφαιρεί από τις ουρές τα είδη της παραγγελίας (αγγίζει μόνο τις ουρές των δικών της προϊόντων)
+    private void dequeueBackorders(Order order) {
+        for (OrderItem item : order.getItems()) {
+            if (item.getBackorderedQuantity() > 0) {
+                backorderQueue(item.getProduct().getCode()).removeIf(entry -> entry.getItem() == item);
+            }
+        }
+    }
+
+    // --- Αποθήκευση/επαναφορά (βλ. SnapshotStore)
+
+    // Αντίγραφο των ουρών backorder (κωδικός προϊόντος -> εγγραφές με τη σειρά της ουράς), χωρίς τις άκυρες εγγραφές.
+    // Πρέπει να καλείται χωρίς ταυτόχρονες αλλαγές παραγγελιών (οι ουρές αλλάζουν με τα κλειδώματα των προϊόντων).
+    IntKeyMap<List<BackorderEntry>> copyBackorderQueues() {
+        IntKeyMap<List<BackorderEntry>> copy = new IntKeyMap<>();
+        synchronized (backorderQueues) {
+            backorderQueues.forEach((code, queue) -> {
+                List<BackorderEntry> entries = new ArrayList<>(queue.size());
+                for (BackorderEntry entry : queue.inArrivalOrder()) {
+                    if (!entry.isStale()) {
+                        entries.add(entry);
+                    }
+                }
+                if (!entries.isEmpty()) {
+                    copy.put(code, entries);
                 }
+            });
+        }
+        return copy;
+    }
+
+    // Καταχωρεί αποθηκευμένες παραγγελίες όπως είναι (χωρίς δέσμευση αποθέματος και χωρίς ουρές backorder,
+    // που επαναφέρονται χωριστά με τη σειρά τους). Επιστρέφει πόσες απορρίφθηκαν ως διπλότυπα ID.
+    int restoreOrders(List<Order> restored) {
+        int duplicates = 0;
+        for (Order order : restored) {
+            if (registerOrder(order)) {
+                order.recountLines();
+            } else {
+                duplicates++;
             }
         }
+        return duplicates;
+    }
 
-        // Καθορισμός της τελικής κατάστασης της παραγγελίας
-        if (allItemsFullyReserved) {
-            newOrder.setStatus(OrderStatus.READY_TO_BE_DELIVERED);
-            System.out.println("Νέα παραγγελία " + newOrder.getId() + " δημιουργήθηκε ως: READY_TO_BE_DELIVERED.");
-        } else if (newOrder.hasBackorderedItems()) { // Αν έχει backorders, αλλά δεν έχει καλυφθεί πλήρως
-            newOrder.setStatus(OrderStatus.PARTIALLY_FULFILLED);
-            System.out.println("Νέα παραγγελία " + newOrder.getId() + " δημιουργήθηκε ως: PARTIALLY_FULFILLED."); 
-        } else {
-            newOrder.setStatus(OrderStatus.PENDING);
-            System.out.println("Νέα παραγγελία " + newOrder.getId() + " δημιουργήθηκε ως: PENDING.");
+    void restoreBackorderQueue(int productCode, List<BackorderEntry> entries) {
+        BackorderQueue queue = backorderQueue(productCode);
+        ToLongFunction<BackorderEntry> rank = backorderRank;
+        for (BackorderEntry entry : entries) {
+            queue.add(entry, rank.applyAsLong(entry));
         }
+    }
 
-        orders.add(newOrder);
-        System.out.println("Η παραγγελία " + newOrder.getId() + " δημιουργήθηκε επιτυχώς για τον πελάτη " + customer.getName() + ". Κατάσταση: " + newOrder.getStatus());
-        return newOrder;
+    void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    // Εγγραφή ημερολογίου για την παραγγελία: η εικόνα της και η μεταβολή δέσμευσης κάθε είδους
+    // από reservedBefore (null: η παραγγελία είναι νέα και όλη η δέσμευση έγινε τώρα)
+    private static Journal.Entry orderEntry(Order order, int[] reservedBefore) {
+        List<OrderItem> items = order.getItems();
+        int[] reservedDeltas = new int[items.size()];
+        for (int i = 0; i < reservedDeltas.length; i++) {
+            reservedDeltas[i] = items.get(i).getReservedQuantity() - (reservedBefore == null ? 0 : reservedBefore[i]);
+        }
+        return new Journal.Entry().order(order, null, reservedDeltas);
+    }
+
+    private static int[] reservedQuantities(Order order) {
+        List<OrderItem> items = order.getItems();
+        int[] reserved = new int[items.size()];
+        for (int i = 0; i < reserved.length; i++) {
+            reserved[i] = items.get(i).getReservedQuantity();
+        }
+        return reserved;
+    }
+
+    // Επανάληψη ημερολογίου (βλ. Journal): νέα παραγγελία με τις δεσμεύσεις της ήδη εφαρμοσμένες στα προϊόντα
+    void replayNewOrder(Order order) {
+        if (registerOrder(order)) {
+            order.recountLines();
+            enqueueBackorders(order);
+        }
+    }
+
+    // Επανάληψη ημερολογίου: νέες δεσμεύσεις και κατάσταση υπάρχουσας παραγγελίας (το απόθεμα έχει ήδη διορθωθεί).
+    // Είδη που μόλις απέκτησαν backorder μπαίνουν στο τέλος της ουράς τους, όπως στη ζωντανή λειτουργία.
+    void replayOrderUpdate(Order order, OrderStatus status, int[] reserved, int[] backordered) {
+        List<OrderItem> items = order.getItems();
+        if (status == OrderStatus.CANCELED) {
+            dequeueBackorders(order);
+        }
+        for (int i = 0; i < items.size(); i++) {
+            OrderItem item = items.get(i);
+            boolean wasBackordered = item.getBackorderedQuantity() > 0;
+            item.setReservation(reserved[i], backordered[i]);
+            if (!wasBackordered && backordered[i] > 0 && status != OrderStatus.CANCELED) {
+                enqueueBackorder(order, item);
+            }
+        }
+        order.recountLines();
+        if (order.getStatus() != status) {
+            order.setStatus(status);
+        }
     }
 
+    // Πόσα είδη παραγγελιών περιμένουν απόθεμα για το προϊόν
+    @SuppressWarnings("try")
+    public int getBackorderQueueLength(int productCode) {
+        Product product = inventoryManager.getProductByCode(productCode);
+        if (product == null) {
+            return 0;
+        }
+        try (ProductLocks.Held held = productLocks.lock(Collections.singletonList(product))) {
+            BackorderQueue queue = backorderQueue(productCode);
+            queue.removeIf(BackorderEntry::isStale);
+            return queue.size();
+        }
+    }
+
+    private synchronized boolean isManaged(Order order) {
+        return ordersById.get(order.getId()) == order;
+    }
+
+    // Στατιστικά αναμονής/κατοχής των κλειδωμάτων προϊόντων
+    public ProductLocks getLockStats() {
+        return productLocks;
+    }
+
+    public boolean fulfillOrder(int orderId) {
+        return fulfillOrder(findById(orderId));
+    }
+
+    @SuppressWarnings("try")
     public boolean fulfillOrder(Order order) {
-        if (order == null || !orders.contains(order)) {
+        if (order == null || !isManaged(order)) {
             System.err.println("Σφάλμα: Η παραγγελία δεν βρέθηκε.");
             return false;
         }
 
-        // Αν είναι ήδη "FULFILLED" ή ακυρωμένη, δεν την ξανα επεξεργαζόμαστε
-        if (order.getStatus() == OrderStatus.FULFILLED || order.getStatus() == OrderStatus.CANCELED) {
+        // Αν είναι ήδη "FULFILLED" ή ακυρωμένη, δεν την ξανα επεξεργαζόμαστε (γρήγορος έλεγχος· επαναλαμβάνεται στα κλειδώματα)
+        if (isTerminal(order.getStatus())) {
             System.err.println("Η παραγγελία " + order.getId() + " έχει ήδη παραδοθεί ή ακυρωθεί.");
             return false;
         }
         // Αν είναι ήδη "Ready to be Delivered", δεν χρειάζεται να την "εκπληρώσουμε" ξανά
         if (order.getStatus() == OrderStatus.READY_TO_BE_DELIVERED) {
-             System.out.println("Η παραγγελία " + order.getId() + " είναι ήδη Έτοιμη για Παράδοση.");
+            EventLog.log(EventLog.Event.ORDER_ALREADY_READY, order.getId());
         }
 
 
         boolean anyReservedInThisAttempt = false; 
 
-        for (OrderItem item : order.getItems()) {
-            Product product = item.getProduct();
-            if (product == null) continue;
-
-            int alreadyReserved = item.getReservedQuantity();
-            int requested = item.getRequestedQty();
-            int remainingToReserve = requested - alreadyReserved;
-
-            if (remainingToReserve > 0) {
-                int available = product.getAvailableQuantity();
-                int reserveNow = Math.min(available, remainingToReserve);
-                if (reserveNow > 0) {
-                    int actuallyReserved = product.reserve(reserveNow); // Μειώνει το διαθέσιμο απόθεμα και να αυξάνει το δεσμευμένο
-                    item.setReservedQuantity(alreadyReserved + actuallyReserved);
-                    item.setBackorderedQuantity(requested - item.getReservedQuantity());
-                    System.out.println("Προϊόν " + product.getName() + ": επιπλέον δεσμεύτηκαν " + actuallyReserved + " τεμάχια. Συνολικά δεσμευμένα: " + item.getReservedQuantity());
-                    anyReservedInThisAttempt = true; 
+        try (Journal.Op op = Journal.begin(journal);
+             ProductLocks.Held held = productLocks.lockItems(order.getItems())) {
+            // Μια παράδοση ή ακύρωση μπορεί να ολοκληρώθηκε πριν πάρουμε τα κλειδώματα
+            if (isTerminal(order.getStatus())) {
+                System.err.println("Η παραγγελία " + order.getId() + " έχει ήδη παραδοθεί ή ακυρωθεί.");
+                return false;
+            }
+            int[] reservedBefore = reservedQuantities(order);
+            for (OrderItem item : order.getItems()) {
+                Product product = item.getProduct();
+                if (product == null) continue;
+
+                int alreadyReserved = item.getReservedQuantity();
+                int requested = item.getRequestedQty();
+                int remainingToReserve = requested - alreadyReserved;
+                boolean wasBackordered = item.getBackorderedQuantity() > 0;
+
+                if (remainingToReserve > 0 && product.getAvailableQuantity() > 0) {
+                    int actuallyReserved = product.reserve(remainingToReserve); // Ατομικά: δεσμεύει έως remainingToReserve από το διαθέσιμο
+                    if (actuallyReserved > 0) {
+                        item.setReservedQuantity(alreadyReserved + actuallyReserved);
+                        item.setBackorderedQuantity(requested - item.getReservedQuantity());
+                        EventLog.log(EventLog.Event.ITEM_RESERVED_MORE, product.getName(), actuallyReserved, item.getReservedQuantity());
+                        anyReservedInThisAttempt = true;
+                        // Το υπόλοιπο του είδους έγινε τώρα backorder: μπαίνει στην ουρά του προϊόντος
+                        if (!wasBackordered && item.getBackorderedQuantity() > 0) {
+                            enqueueBackorder(order, item);
+                        }
+                    }
                 }
             }
-        }
+            order.recountLines();
 
-    
-        if (order.getItems().stream().allMatch(i -> i.getReservedQuantity() == i.getRequestedQty())) {
-            order.setStatus(OrderStatus.READY_TO_BE_DELIVERED);
-            System.out.println("DEBUG: Η παραγγελία " + order.getId() + " είναι τώρα: READY_TO_BE_DELIVERED.");
-        } else if (anyReservedInThisAttempt || order.getStatus() == OrderStatus.PARTIALLY_FULFILLED) {
-            order.setStatus(OrderStatus.PARTIALLY_FULFILLED);
-            System.out.println("DEBUG: Η παραγγελία " + order.getId() + " είναι τώρα: PARTIALLY_FULFILLED.");
-        } else {
-            order.setStatus(OrderStatus.PENDING);
-            System.err.println("DEBUG: Η παραγγελία " + order.getId() + " παραμένει: PENDING (δεν υπήρχε διαθέσιμο απόθεμα).");
-            return false; 
+            if (order.getItems().stream().allMatch(i -> i.getReservedQuantity() == i.getRequestedQty())) {
+                order.setStatus(OrderStatus.READY_TO_BE_DELIVERED);
+                EventLog.log(EventLog.Event.ORDER_STATUS, order.getId(), OrderStatus.READY_TO_BE_DELIVERED);
+            } else if (anyReservedInThisAttempt || order.getStatus() == OrderStatus.PARTIALLY_FULFILLED) {
+                order.setStatus(OrderStatus.PARTIALLY_FULFILLED);
+                EventLog.log(EventLog.Event.ORDER_STATUS, order.getId(), OrderStatus.PARTIALLY_FULFILLED);
+            } else {
+                order.setStatus(OrderStatus.PENDING);
+                op.append(orderEntry(order, reservedBefore));
+                EventLog.log(EventLog.Event.ORDER_STILL_PENDING, order.getId());
+                return false;
+            }
+            op.append(orderEntry(order, reservedBefore));
         }
 
-        System.out.println("Η παραγγελία " + order.getId() + " ολοκληρώθηκε με κατάσταση: " + order.getStatus());
+        EventLog.log(EventLog.Event.ORDER_FULFILL_DONE, order.getId(), order.getStatus());
         return true; // Επιστρέφουμε true αν η κατάσταση ενημερώθηκε (ακόμα και σε PARTIALLY)
     }
 
+    public SalesLedger getSalesLedger() {
+        return salesLedger;
+    }
+
+    // Παράδοση παραγγελίας που είναι READY_TO_BE_DELIVERED: τα δεσμευμένα τεμάχια φεύγουν από την αποθήκη,
+    // η παραγγελία γίνεται FULFILLED και η πώληση καταχωρείται στο βιβλίο πωλήσεων.
+    @SuppressWarnings("try")
+    public boolean deliverOrder(Order order) {
+        if (order == null || !isManaged(order)) {
+            System.err.println("Σφάλμα: Η παραγγελία δεν βρέθηκε.");
+            return false;
+        }
+        // Η πώληση δημιουργείται και καταχωρείται μέσα στη λειτουργία του ημερολογίου, ώστε παράδοση και πώληση
+        // να είναι μία εγγραφή
+        try (Journal.Op op = Journal.begin(journal);
+             ProductLocks.Held held = productLocks.lockItems(order.getItems())) {
+            if (order.getStatus() != OrderStatus.READY_TO_BE_DELIVERED) {
+                System.err.println("Η παραγγελία " + order.getId() + " δεν είναι Έτοιμη για Παράδοση (Κατάσταση: " + order.getStatus() + ").");
+                return false;
+            }
+            List<OrderItem> items = order.getItems();
+            int[] stockDeltas = new int[items.size()];
+            for (int i = 0; i < stockDeltas.length; i++) {
+                stockDeltas[i] = -items.get(i).getProduct().fulfillAndRelease(items.get(i).getRequestedQty());
+            }
+            order.setStatus(OrderStatus.FULFILLED);
+            Sale sale = new Sale(order.getId(), order.getCustomer(), new Date(), items);
+            synchronized (salesLedger) { // Οι πωλήσεις επαναλαμβάνονται με τη σειρά του βιβλίου
+                salesLedger.record(sale);
+                op.append(new Journal.Entry().order(order, stockDeltas, stockDeltas).sale(sale, true));
+            }
+        }
+        EventLog.log(EventLog.Event.ORDER_DELIVERED, order.getId());
+        return true;
+    }
+
+    // Απευθείας πώληση από το διαθέσιμο απόθεμα, χωρίς καταχώρηση παραγγελίας.
+    // Το απόθεμα αφαιρείται πρώτα (ατομικά, μόνο από τα μη δεσμευμένα τεμάχια) και μόνο αν πετύχει γράφεται η πώληση.
+    public Sale recordDirectSale(Customer customer, Product product, int quantity) {
+        if (customer == null || product == null || quantity <= 0) {
+            System.err.println("Σφάλμα: Μη έγκυρα στοιχεία απευθείας πώλησης.");
+            return null;
+        }
+        try (Journal.Op op = Journal.begin(journal)) {
+            if (!product.removeStock(quantity)) {
+                System.err.println("Ανεπαρκές διαθέσιμο απόθεμα για απευθείας πώληση του " + product.getName() +
+                                   ". Διαθέσιμο: " + product.getAvailableQuantity());
+                return null;
+            }
+            OrderItem item = new OrderItem(product, quantity);
+            item.setReservation(quantity, 0);
+            List<OrderItem> items = new ArrayList<>();
+            items.add(item);
+            Order directSaleOrder = new Order(customer, items);
+            directSaleOrder.setStatus(OrderStatus.FULFILLED);
+
+            Sale sale = new Sale(directSaleOrder.getId(), customer, new Date(), items);
+            synchronized (salesLedger) {
+                salesLedger.record(sale);
+                op.append(new Journal.Entry().stock(product, -quantity, 0).sale(sale, false));
+            }
+            return sale;
+        }
+    }
+
+    public boolean cancelOrder(int orderId) {
+        return cancelOrder(findById(orderId));
+    }
+
     public boolean cancelOrder(Order order) {
-        if (order == null || !orders.contains(order)) {
+        return cancelOrder(order, false);
+    }
+
+    // waitingOnly: ακύρωση μόνο αν η παραγγελία περιμένει ακόμη απόθεμα (έλεγχος μέσα στα κλειδώματα, βλ. expireOrder)
+    @SuppressWarnings("try")
+    private boolean cancelOrder(Order order, boolean waitingOnly) {
+        if (order == null || !isManaged(order)) {
             System.err.println("Σφάλμα: Η παραγγελία δεν βρέθηκε.");
             return false;
         }
-        if (order.getStatus() == OrderStatus.FULFILLED || order.getStatus() == OrderStatus.CANCELED) {
+        if (isTerminal(order.getStatus())) { // Γρήγορος έλεγχος· επαναλαμβάνεται στα κλειδώματα
             System.err.println("Η παραγγελία " + order.getId() + " έχει ήδη εκπληρωθεί ή ακυρωθεί. Δεν μπορεί να ακυρωθεί ξανά.");
             return false;
         }
 
-        // Επιστρέφουμε το δεσμευμένο απόθεμα
-        for (OrderItem item : order.getItems()) {
-            if (item.getReservedQuantity() > 0) {
-                item.getProduct().unreserve(item.getReservedQuantity()); // Αποδεσμεύουμε από το προϊόν
-                System.out.println("Επιστράφηκαν " + item.getReservedQuantity() + " δεσμευμένα τεμάχια για το προϊόν " + item.getProduct().getName() + " (Παραγγελία " + order.getId() + ").");
+        // Επιστρέφουμε το δεσμευμένο απόθεμα (με τα κλειδώματα όλων των προϊόντων, ώστε η ακύρωση να φαίνεται ενιαία)
+        try (Journal.Op op = Journal.begin(journal);
+             ProductLocks.Held held = productLocks.lockItems(order.getItems())) {
+            // Μια παράδοση ή άλλη ακύρωση μπορεί να ολοκληρώθηκε πριν πάρουμε τα κλειδώματα: τα δεσμευμένα
+            // τεμάχια των ειδών της δεν είναι πια δικά της
+            if (isTerminal(order.getStatus())) {
+                System.err.println("Η παραγγελία " + order.getId() + " έχει ήδη εκπληρωθεί ή ακυρωθεί. Δεν μπορεί να ακυρωθεί ξανά.");
+                return false;
+            }
+            if (waitingOnly && !isWaiting(order.getStatus())) {
+                return false;
+            }
+            dequeueBackorders(order);
+            List<OrderItem> items = order.getItems();
+            int[] reservedDeltas = new int[items.size()];
+            for (int i = 0; i < reservedDeltas.length; i++) {
+                OrderItem item = items.get(i);
+                if (item.getReservedQuantity() > 0) {
+                    reservedDeltas[i] = -item.getProduct().unreserve(item.getReservedQuantity()); // Αποδεσμεύουμε από το προϊόν
+                    EventLog.log(EventLog.Event.ORDER_RESERVATION_RETURNED, item.getProduct().getName(), item.getReservedQuantity(), order.getId());
+                }
+                // Μηδενίζουμε δεσμευμένες και backordered ποσότητες για το ακυρωμένο OrderItem
+                item.setReservation(0, 0);
             }
-            // Μηδενίζουμε τυχόν backordered ποσότητες για το ακυρωμένο OrderItem
-            item.setBackorderedQuantity(0); // Μηδενίζει αυτόματα και το reservedQty μέσω setter
+            order.recountLines();
+            order.setStatus(OrderStatus.CANCELED);
+            op.append(new Journal.Entry().order(order, null, reservedDeltas));
         }
 
-        order.setStatus(OrderStatus.CANCELED); 
-        System.out.println("Η παραγγελία " + order.getId() + " ακυρώθηκε επιτυχώς.");
+        EventLog.log(EventLog.Event.ORDER_CANCELED, order.getId());
         return true;
     }
 
 
+    // --- Χρόνος κράτησης παραγγελιών σε αναμονή (βλ. ReservationHolds)
+
+    public long getOrderHoldMillis() {
+        return orderHoldMillis;
+    }
+
+    // Ισχύει και για τις παραγγελίες που περιμένουν ήδη: ο χρόνος μετράει από τη δημιουργία τους,
+    // οπότε όσες τον έχουν ξεπεράσει λήγουν στο επόμενο tick.
+    public synchronized void setOrderHoldMillis(long millis) {
+        if (millis < 0) throw new IllegalArgumentException("Ο χρόνος κράτησης δεν μπορεί να είναι αρνητικός.");
+        ReservationHolds holds = inventoryManager.getReservationHolds();
+        for (ReservationHolds.Hold hold : orderHolds.values()) {
+            holds.cancel(hold);
+        }
+        orderHolds.clear();
+        orderHoldMillis = millis;
+        if (millis > 0) {
+            for (Order order : openOrdersByStatus.get(OrderStatus.PENDING)) {
+                holdOrder(order);
+            }
+            for (Order order : openOrdersByStatus.get(OrderStatus.PARTIALLY_FULFILLED)) {
+                holdOrder(order);
+            }
+        }
+        EventLog.log(EventLog.Event.ORDER_HOLD_SET, millis / 1000);
+    }
+
+    private synchronized void holdOrder(Order order) {
+        long millis = orderHoldMillis;
+        if (millis <= 0 || !isWaiting(order.getStatus()) || orderHolds.containsKey(order.getId())) {
+            return;
+        }
+        long remaining = Math.max(1, order.getTimestamp().getTime() + millis - System.currentTimeMillis());
+        orderHolds.put(order.getId(), inventoryManager.getReservationHolds().timeout(remaining, () -> expireOrder(order)));
+    }
+
+    // Καλείται στο κλείδωμα του OrderManager
+    private void releaseOrderHold(Order order) {
+        ReservationHolds.Hold hold = orderHolds.remove(order.getId());
+        if (hold != null) {
+            inventoryManager.getReservationHolds().cancel(hold);
+        }
+    }
+
+    // Έληξε ο χρόνος κράτησης: η παραγγελία ακυρώνεται (αν περιμένει ακόμη) και τα τεμάχια που είχε δεσμεύσει
+    // κατανέμονται στις παραγγελίες που περιμένουν στις ουρές backorder των προϊόντων της
+    private void expireOrder(Order order) {
+        synchronized (this) {
+            orderHolds.remove(order.getId());
+        }
+        if (!cancelOrder(order, true)) {
+            return;
+        }
+        EventLog.log(EventLog.Event.ORDER_HOLD_EXPIRED, order.getId());
+        for (OrderItem item : order.getItems()) {
+            Product product = item.getProduct();
+            if (product != null && product.getAvailableQuantity() > 0 && hasBackorders(product.getCode())) {
+                allocateBackorderedItems(product.getCode());
+            }
+        }
+    }
+
     public int allocateBackorderedItems(int productCode) {
-        int totalAllocated = 0;
+        return allocateBackorderedItems(productCode, TaskControl.NONE);
+    }
+
+    // Αυτόματη κατανομή: για κάθε προϊόν της παρτίδας της ροής αλλαγών που έχει διαθέσιμο απόθεμα και backorders
+    // (π.χ. μετά από ακύρωση ή αποδέσμευση) γίνεται μία κατανομή. Δεν κοιτάμε μόνο τη διαφορά της παρτίδας:
+    // μια παραγγελία μπορεί να μπήκε σε backorder και το απόθεμα να ελευθερώθηκε μέσα στο ίδιο tick.
+    // Η αναπλήρωση μέσω του InventoryManager.restock κατανέμει ήδη μόνη της, οπότε εκεί η ουρά θα είναι άδεια.
+    public synchronized void setAutoAllocation(boolean enabled) {
+        InventoryChangeFeed feed = inventoryManager.getChangeFeed();
+        if (enabled && autoAllocator == null) {
+            autoAllocator = this::allocateFreedStock;
+            feed.subscribe(autoAllocator);
+        } else if (!enabled && autoAllocator != null) {
+            feed.unsubscribe(autoAllocator);
+            autoAllocator = null;
+        }
+    }
+
+    private void allocateFreedStock(List<InventoryChangeFeed.StockChange> changes) {
+        for (InventoryChangeFeed.StockChange change : changes) {
+            if (change.getProduct().getAvailableQuantity() > 0 && hasBackorders(change.getProductCode())) {
+                allocateBackorderedItems(change.getProductCode());
+            }
+        }
+    }
+
+    // Όπως παραπάνω, με δυνατότητα ακύρωσης και αναφορά προόδου (είδη της ουράς που εξετάστηκαν).
+    // Η ακύρωση ελέγχεται ανάμεσα στα είδη, οπότε κάθε είδος είτε κατανεμήθηκε πλήρως είτε καθόλου.
+    @SuppressWarnings("try")
+    public int allocateBackorderedItems(int productCode, TaskControl control) {
         Product product = inventoryManager.getProductByCode(productCode);
 
         if (product == null) {
@@ -214,64 +804,353 @@ public class OrderManager {
             return 0;
         }
 
-        System.out.println("Εκτέλεση κατανομής backorder για προϊόν: " + product.getName() + " (Διαθέσιμο: " + product.getAvailableQuantity() + ").");
+        try (Journal.Op op = Journal.begin(journal);
+             ProductLocks.Held held = productLocks.lock(Collections.singletonList(product))) {
+            return allocateBackorderedItems(product, control, op);
+        }
+    }
 
-  
-        List<Order> ordersToProcess = new ArrayList<>(orders); // Δημιουργούμε ένα αντίγραφο για ασφαλή επανάληψη
-        for (Order order : ordersToProcess) {
-            if (order.getStatus() == OrderStatus.CANCELED ||
-                order.getStatus() == OrderStatus.FULFILLED || // FULFILLED = Delivered/Completed
-                order.getStatus() == OrderStatus.READY_TO_BE_DELIVERED) { 
-                continue; 
-            }
+    // Κατανομή με βάση την ουρά backorder του προϊόντος: αγγίζει μόνο τις παραγγελίες που περιμένουν
+    // το συγκεκριμένο προϊόν, με τη σειρά της πολιτικής κατανομής. Καλείται κρατώντας το κλείδωμα του προϊόντος.
+    private int allocateBackorderedItems(Product product, TaskControl control, Journal.Op op) {
+        int totalAllocated = 0;
+        BackorderQueue queue = backorderQueue(product.getCode());
+        int queued = queue.size();
+        int examined = 0;
 
+        EventLog.log(EventLog.Event.ALLOCATION_STARTED, product.getName(), product.getAvailableQuantity(), queued);
 
+        if (allocationPolicy == AllocationPolicy.PRO_RATA) {
+            // Τα μερίδια υπολογίζονται από το τωρινό διαθέσιμο. Αν μια ταυτόχρονη μείωση αποθέματος το μικρύνει,
+            // τα τελευταία είδη απλώς παίρνουν λιγότερα (η δέσμευση κάθε μεριδίου γίνεται ατομικά έως το διαθέσιμο).
+            List<BackorderEntry> recipients = new ArrayList<>();
+            int budget = (int) Math.min(queue.backorderedUnits(), Math.max(0, product.getAvailableQuantity()));
+            int[] shares = queue.fairShares(budget, recipients);
+            for (int i = 0; i < shares.length; i++) {
+                if (control.isCancelled()) {
+                    EventLog.log(EventLog.Event.ALLOCATION_CANCELLED, product.getName());
+                    break;
+                }
+                control.progress(i, shares.length);
+                if (shares[i] > 0) {
+                    totalAllocated += allocateToEntry(recipients.get(i), product.reserve(shares[i]), op);
+                }
+            }
+            queue.removeIf(BackorderEntry::isStale);
+            EventLog.log(EventLog.Event.ALLOCATION_DONE, totalAllocated, product.getName());
+            return totalAllocated;
+        }
+
+        while (!queue.isEmpty()) {
+            if (control.isCancelled()) {
+                EventLog.log(EventLog.Event.ALLOCATION_CANCELLED, product.getName());
+                break;
+            }
+            control.progress(examined++, queued);
+            BackorderEntry next = queue.peek();
+            if (next.isStale()) {
+                queue.poll(); // Ακυρωμένη/παραδομένη παραγγελία ή είδος που καλύφθηκε αλλού
+                continue;
+            }
             if (product.getAvailableQuantity() <= 0) {
-                System.out.println("Δεν υπάρχει άλλο διαθέσιμο απόθεμα για κατανομή backorder για το προϊόν " + product.getName() + ".");
+                EventLog.log(EventLog.Event.ALLOCATION_OUT_OF_STOCK, product.getName());
                 break; // Δεν υπάρχει άλλο διαθέσιμο απόθεμα
             }
 
-            boolean orderProgressedInThisAllocation = false; 
-            for (OrderItem item : order.getItems()) {
-                // Βρίσκουμε OrderItems που ανήκουν στο συγκεκριμένο προϊόν και έχουν backorder
-                if (item.getProduct().getCode() == productCode && item.getBackorderedQuantity() > 0) {
-                    if (product.getAvailableQuantity() <= 0) { 
-                        break;
-                    }
+            // Δεσμεύουμε πρώτα στο Product (ατομικά, έως όσο είναι διαθέσιμο) και μετά μετακινούμε
+            // την ίδια ποσότητα από backordered σε reserved στο OrderItem
+            int reservedFromStock = product.reserve(next.getItem().getBackorderedQuantity());
+            if (reservedFromStock == 0) {
+                break;
+            }
+            totalAllocated += allocateToEntry(next, reservedFromStock, op);
+            if (next.getItem().getBackorderedQuantity() == 0) {
+                queue.poll();
+            }
+        }
+
+        EventLog.log(EventLog.Event.ALLOCATION_DONE, totalAllocated, product.getName());
+        return totalAllocated;
+    }
+
+    // Μετακινεί reservedFromStock τεμάχια (ήδη δεσμευμένα στο προϊόν) από backordered σε reserved στο είδος
+    private int allocateToEntry(BackorderEntry entry, int reservedFromStock, Journal.Op op) {
+        Order order = entry.getOrder();
+        OrderItem item = entry.getItem();
+        synchronized (order) { // Μια παραγγελία με πολλά προϊόντα μπορεί να κατανέμεται ταυτόχρονα από άλλο προϊόν
+            boolean wasFullyReserved = item.isFullyReserved();
+            int actualAllocatedForOrderItem = item.allocate(reservedFromStock);
 
-                    int qtyToAllocate = Math.min(item.getBackorderedQuantity(), product.getAvailableQuantity());
+            EventLog.log(EventLog.Event.ITEM_ALLOCATED, item.getProduct().getName(), actualAllocatedForOrderItem, order.getId());
+            if (item.getBackorderedQuantity() == 0 && item.isFullyReserved()) {
+                EventLog.log(EventLog.Event.ITEM_COVERED, item.getProduct().getName(), order.getId());
+            }
 
-                    // Χρησιμοποιούμε τη μέθοδο allocate του OrderItem για να μετακινήσουμε από backordered σε reserved
-                    // και δεσμεύουμε την ποσότητα στο Product (από το συνολικό διαθέσιμο απόθεμα)
-                    int actualAllocatedForOrderItem = item.allocate(qtyToAllocate); 
-                    product.reserve(actualAllocatedForOrderItem); 
+            // Σταδιακή ενημέρωση: μόνο οι μετρητές του είδους που άλλαξε, όχι σάρωση όλων των ειδών
+            order.lineAllocated(item, wasFullyReserved, true);
+            updateStatusAfterAllocation(order);
 
-                    totalAllocated += actualAllocatedForOrderItem;
-                    orderProgressedInThisAllocation = true;
+            // Η εικόνα γράφεται μέσα στο κλείδωμα της παραγγελίας, ώστε οι εγγραφές ταυτόχρονων κατανομών
+            // της ίδιας παραγγελίας να έχουν τη σειρά των αλλαγών
+            List<OrderItem> items = order.getItems();
+            int[] reservedDeltas = new int[items.size()];
+            reservedDeltas[items.indexOf(item)] = reservedFromStock;
+            op.append(new Journal.Entry().order(order, null, reservedDeltas));
+            return actualAllocatedForOrderItem;
+        }
+    }
 
-                    System.out.println("Κατανεμήθηκαν " + actualAllocatedForOrderItem + " τεμάχια για το backordered είδος " + item.getProduct().getName() + " σε παραγγελία " + order.getId() + ".");
+    // --- Πολιτική κατανομής
+
+    public AllocationPolicy getAllocationPolicy() {
+        return allocationPolicy;
+    }
 
-                    if (item.isFullyReserved()) {
-                        System.out.println("Το είδος " + item.getProduct().getName() + " στην παραγγελία " + order.getId() + " καλύφθηκε πλήρως.");
+    // Αλλαγή πολιτικής: κάθε ουρά ξαναχτίζεται (O(n)) με το κλείδωμα του προϊόντος της, οπότε μια ταυτόχρονη
+    // κατανομή βλέπει κάθε ουρά ολόκληρη με την παλιά ή ολόκληρη με τη νέα σειρά.
+    @SuppressWarnings("try")
+    public void setAllocationPolicy(AllocationPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("Η πολιτική κατανομής δεν μπορεί να είναι null.");
+        }
+        synchronized (policyLock) {
+            ToLongFunction<BackorderEntry> rank = backorderRank(policy);
+            allocationPolicy = policy;
+            backorderRank = rank;
+            int[] codes;
+            synchronized (backorderQueues) {
+                codes = backorderQueues.keys();
+            }
+            for (int code : codes) {
+                // Οι ουρές προϊόντων που διαγράφηκαν δεν κατανέμονται πια, οπότε η σειρά τους δεν έχει σημασία
+                Product product = inventoryManager.getProductByCode(code);
+                if (product != null) {
+                    try (ProductLocks.Held held = productLocks.lock(Collections.singletonList(product))) {
+                        backorderQueue(code).reorder(rank);
                     }
                 }
             }
+        }
+        EventLog.log(EventLog.Event.ALLOCATION_POLICY_CHANGED, policy);
+    }
+
+    // Προτεραιότητα πελάτη για την πολιτική CUSTOMER_PRIORITY (μεγαλύτερη τιμή = εξυπηρετείται πρώτος)
+    public void setCustomerPriority(ToIntFunction<Customer> priority) {
+        if (priority == null) {
+            throw new IllegalArgumentException("Η συνάρτηση προτεραιότητας δεν μπορεί να είναι null.");
+        }
+        synchronized (policyLock) {
+            customerPriority = priority;
+            if (allocationPolicy == AllocationPolicy.CUSTOMER_PRIORITY) {
+                setAllocationPolicy(AllocationPolicy.CUSTOMER_PRIORITY);
+            }
+        }
+    }
 
+    // Η προτεραιότητα κάθε εγγραφής (μικρότερη = πρώτη) εξαρτάται μόνο από αμετάβλητα στοιχεία της παραγγελίας,
+    // ώστε να είναι ίδια ζωντανά, μετά από επαναφορά αντιγράφου και μετά από επανάληψη του ημερολογίου
+    private ToLongFunction<BackorderEntry> backorderRank(AllocationPolicy policy) {
+        switch (policy) {
+            case OLDEST_FIRST:
+                return entry -> entry.getOrder().getTimestamp().getTime();
+            case CUSTOMER_PRIORITY:
+                ToIntFunction<Customer> priority = customerPriority;
+                return entry -> -(long) priority.applyAsInt(entry.getOrder().getCustomer());
+            case SMALLEST_ORDER_FIRST:
+                return entry -> requestedUnits(entry.getOrder());
+            default: // FIFO, PRO_RATA (τα τεμάχια που περισσεύουν από τα μερίδια πάνε με σειρά άφιξης)
+                return entry -> 0;
+        }
+    }
 
-            if (order.isFullyReserved()) {
-                // Αν όλα τα items της παραγγελίας είναι τώρα πλήρως δεσμευμένα
-                order.setStatus(OrderStatus.READY_TO_BE_DELIVERED);
-                System.out.println("Η παραγγελία " + order.getId() + " είναι τώρα: READY_TO_BE_DELIVERED.");
-            } else if (order.hasBackorderedItems()) {
-                // Αν εξακολουθεί να έχει backordered items
-                order.setStatus(OrderStatus.PARTIALLY_FULFILLED);
-                System.out.println("Η παραγγελία " + order.getId() + " είναι τώρα: PARTIALLY_FULFILLED.");
-            } else if (orderProgressedInThisAllocation) {
-                order.setStatus(OrderStatus.PENDING); 
+    private static long requestedUnits(Order order) {
+        long units = 0;
+        for (OrderItem item : order.getItems()) {
+            units += item.getRequestedQty();
+        }
+        return units;
+    }
+
+    // --- Συνολική κατανομή backorder
+
+    public int allocateAll() {
+        return allocateAll(TaskControl.NONE);
+    }
+
+    // Κατανέμει το διαθέσιμο απόθεμα όλων των προϊόντων στα backorders τους σε ένα πέρασμα.
+    // Τα προϊόντα χωρίζονται σε ομάδες που δεν μοιράζονται παραγγελίες (δύο προϊόντα είναι στην ίδια ομάδα
+    // όταν μια παραγγελία περιμένει και τα δύο), ώστε οι ομάδες να κατανέμονται παράλληλα και κάθε παραγγελία
+    // να ενημερώνεται μία φορά. Η ακύρωση ελέγχεται ανάμεσα στις ομάδες. Επιστρέφει τα τεμάχια που κατανεμήθηκαν.
+    public int allocateAll(TaskControl control) {
+        List<List<Product>> partitions = backorderPartitions();
+        EventLog.log(EventLog.Event.ALLOCATE_ALL_STARTED, partitions.size());
+        AtomicInteger completed = new AtomicInteger();
+        int total = partitions.parallelStream().mapToInt(partition -> {
+            if (control.isCancelled()) {
+                return 0;
             }
+            int allocated = allocatePartition(partition);
+            synchronized (control) { // Η αναφορά προόδου δεν είναι απαραίτητα ασφαλής για πολλά νήματα
+                control.progress(completed.incrementAndGet(), partitions.size());
+            }
+            return allocated;
+        }).sum();
+        if (control.isCancelled()) {
+            EventLog.log(EventLog.Event.ALLOCATE_ALL_CANCELLED, completed.get(), partitions.size());
         }
+        EventLog.log(EventLog.Event.ALLOCATE_ALL_DONE, total, completed.get());
+        return total;
+    }
 
-        System.out.println("Συνολικά κατανεμήθηκαν " + totalAllocated + " τεμάχια για το προϊόν " + product.getName() + " από backorders.");
-        return totalAllocated;
+    // Ομάδες των προϊόντων που έχουν διαθέσιμο απόθεμα και backorders: ένα πέρασμα στις ανοιχτές παραγγελίες
+    // με backorder (union-find στα προϊόντα των ειδών τους). Τα είδη διαβάζονται χωρίς κλειδώματα, οπότε η εικόνα
+    // μπορεί να αλλάξει μέχρι την κατανομή: τότε δύο ομάδες απλώς ενημερώνουν την ίδια παραγγελία (με
+    // synchronized(order), όπως και η κατανομή ανά προϊόν), χωρίς να χάνεται η ορθότητα.
+    private List<List<Product>> backorderPartitions() {
+        int[] codes;
+        synchronized (backorderQueues) {
+            codes = backorderQueues.keys();
+        }
+        IntKeyMap<Integer> indexByCode = new IntKeyMap<>(codes.length);
+        List<Product> candidates = new ArrayList<>();
+        for (int code : codes) {
+            Product product = inventoryManager.getProductByCode(code);
+            if (product != null && product.getAvailableQuantity() > 0 && hasBackorders(code)) {
+                indexByCode.put(code, candidates.size());
+                candidates.add(product);
+            }
+        }
+
+        int[] parent = new int[candidates.size()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        for (Order order : getOrdersByStatus(OrderStatus.PARTIALLY_FULFILLED)) {
+            int first = -1;
+            for (OrderItem item : order.getItems()) {
+                if (item.getBackorderedQuantity() <= 0) {
+                    continue;
+                }
+                Integer j = indexByCode.get(item.getProduct().getCode());
+                if (j == null) {
+                    continue;
+                }
+                if (first < 0) {
+                    first = j;
+                } else {
+                    union(parent, first, j);
+                }
+            }
+        }
+
+        IntKeyMap<List<Product>> byRoot = new IntKeyMap<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            byRoot.computeIfAbsent(find(parent, i), root -> new ArrayList<>()).add(candidates.get(i));
+        }
+        return byRoot.values();
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]]; // Συμπίεση διαδρομής κατά το πέρασμα
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int i, int j) {
+        int rootI = find(parent, i);
+        int rootJ = find(parent, j);
+        if (rootI != rootJ) {
+            parent[Math.max(rootI, rootJ)] = Math.min(rootI, rootJ);
+        }
+    }
+
+    // Κατανομή μιας ομάδας κρατώντας τα κλειδώματα όλων των προϊόντων της: κάθε προϊόν δεσμεύει με ένα CAS
+    // όσα χρειάζονται οι ουρές του (έως το διαθέσιμο) και τα μοιράζει κατά την πολιτική κατανομής. Η κατάσταση κάθε
+    // παραγγελίας (και η εικόνα της στο ημερολόγιο) ενημερώνεται στο τέλος, μία φορά.
+    @SuppressWarnings("try")
+    private int allocatePartition(List<Product> partition) {
+        try (Journal.Op op = Journal.begin(journal);
+             ProductLocks.Held held = productLocks.lock(partition)) {
+            // Μια παραγγελία με είδη σε πολλά προϊόντα της ομάδας εμφανίζεται πολλές φορές: οι επόμενες ενημερώσεις
+            // της κατάστασης δεν αλλάζουν τίποτα, οπότε δεν χρειάζεται σύνολο (κατακερματισμός ενός εκατομμυρίου παραγγελιών)
+            List<Order> touched = new ArrayList<>();
+            boolean proRata = allocationPolicy == AllocationPolicy.PRO_RATA;
+            int total = 0;
+            for (Product product : partition) {
+                BackorderQueue queue = backorderQueue(product.getCode());
+                int reserved = product.reserve((int) Math.min(queue.backorderedUnits(), Integer.MAX_VALUE));
+                if (proRata) {
+                    List<BackorderEntry> recipients = new ArrayList<>();
+                    int[] shares = queue.fairShares(reserved, recipients);
+                    for (int i = 0; i < shares.length; i++) {
+                        if (shares[i] > 0) {
+                            allocateDeferred(recipients.get(i), shares[i]);
+                            touched.add(recipients.get(i).getOrder());
+                        }
+                    }
+                    queue.removeIf(BackorderEntry::isStale);
+                } else {
+                    int remaining = reserved;
+                    while (remaining > 0 && !queue.isEmpty()) {
+                        BackorderEntry entry = queue.peek();
+                        if (!entry.isStale()) {
+                            remaining -= allocateDeferred(entry, remaining);
+                            touched.add(entry.getOrder());
+                        }
+                        if (entry.isStale()) { // Άκυρη ή μόλις καλύφθηκε
+                            queue.poll();
+                        }
+                    }
+                    while (!queue.isEmpty() && queue.peek().isStale()) {
+                        queue.poll();
+                    }
+                }
+                total += reserved;
+                // Η δέσμευση του προϊόντος γράφεται μία φορά, οι ποσότητες των ειδών με τις εικόνες των παραγγελιών
+                op.append(new Journal.Entry().stock(product, 0, reserved));
+            }
+
+            Set<Order> recorded = op.isRecording() ? Collections.newSetFromMap(new IdentityHashMap<>()) : null;
+            for (Order order : touched) {
+                synchronized (order) {
+                    updateStatusAfterAllocation(order);
+                    if (recorded != null && recorded.add(order)) {
+                        op.append(new Journal.Entry().order(order, null, null));
+                    }
+                }
+            }
+            return total;
+        }
+    }
+
+    // Όπως το allocateToEntry, χωρίς ενημέρωση κατάστασης και ημερολογίου (τα κάνει ο καλών στο τέλος)
+    private static int allocateDeferred(BackorderEntry entry, int reservedFromStock) {
+        Order order = entry.getOrder();
+        OrderItem item = entry.getItem();
+        synchronized (order) {
+            boolean wasFullyReserved = item.isFullyReserved();
+            int allocated = item.allocate(reservedFromStock);
+            order.lineAllocated(item, wasFullyReserved, true);
+            return allocated;
+        }
+    }
+
+    private void updateStatusAfterAllocation(Order order) {
+        OrderStatus newStatus;
+        if (!order.hasUnreservedLines()) {
+            // Όλα τα items της παραγγελίας είναι τώρα πλήρως δεσμευμένα
+            newStatus = OrderStatus.READY_TO_BE_DELIVERED;
+        } else if (order.hasBackorderedLines()) {
+            // Εξακολουθεί να έχει backordered items
+            newStatus = OrderStatus.PARTIALLY_FULFILLED;
+        } else {
+            newStatus = OrderStatus.PENDING;
+        }
+        if (order.getStatus() != newStatus) {
+            order.setStatus(newStatus);
+            EventLog.log(EventLog.Event.ORDER_ALLOCATED_STATUS, order.getId(), newStatus);
+        }
     }
 }
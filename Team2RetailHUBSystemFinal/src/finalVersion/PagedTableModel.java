@@ -0,0 +1,168 @@
+package finalVersion;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Table model for very large, append-mostly stores (all orders, all sales).
+ * <p>
+ * Nothing is copied up front: the model only knows the row count, and rows are fetched from the store
+ * one page at a time when the table paints them. A small LRU cache keeps the recently painted pages together
+ * with their formatted cell values, so scrolling back and repainting do not fetch or format again.
+ * Opening the view therefore costs the same for a thousand rows as for millions.
+ * Must be used from the Event Dispatch Thread, like any Swing model.
+ */
+class PagedTableModel<T> extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final int PAGE_SIZE = 256;
+    private static final int MAX_CACHED_PAGES = 16;
+
+    /** Positional access to the rows of a store. */
+    interface RowSource<T> {
+        int size();
+
+        List<T> range(int from, int count);
+    }
+
+    /** A source over a list already in memory (e.g. search results). */
+    static <T> RowSource<T> of(List<T> rows) {
+        return new RowSource<T>() {
+            @Override
+            public int size() {
+                return rows.size();
+            }
+
+            @Override
+            public List<T> range(int from, int count) {
+                return rows.subList(from, Math.min(rows.size(), from + count));
+            }
+        };
+    }
+
+    private static final class Page<T> {
+        final int first;
+        final List<T> rows;
+        final Object[][] cells; // Formatted values, filled when a row is first painted
+
+        Page(int first, List<T> rows) {
+            this.first = first;
+            this.rows = rows;
+            this.cells = new Object[rows.size()][];
+        }
+    }
+
+    private final String[] columns;
+    private final ToIntFunction<T> keyOf;
+    private final EntityTableModel.CellReader<T> cellReader;
+    private final Map<Integer, Page<T>> pages = new LinkedHashMap<Integer, Page<T>>(MAX_CACHED_PAGES, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Page<T>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private RowSource<T> source;
+    private int rowCount;
+
+    PagedTableModel(String[] columns, ToIntFunction<T> keyOf, EntityTableModel.CellReader<T> cellReader) {
+        this.columns = columns.clone();
+        this.keyOf = keyOf;
+        this.cellReader = cellReader;
+        this.source = of(List.of());
+    }
+
+    /** Shows another store or result list; only its size is read here. */
+    void setSource(RowSource<T> source) {
+        this.source = source;
+        this.rowCount = source.size();
+        pages.clear();
+        fireTableDataChanged();
+    }
+
+    /** Picks up rows appended to the end of the source since the last call. */
+    void rowsAppended() {
+        int newCount = source.size();
+        if (newCount <= rowCount) {
+            return;
+        }
+        int oldCount = rowCount;
+        if (oldCount > 0) {
+            pages.remove((oldCount - 1) / PAGE_SIZE); // The last page was partial and is now stale
+        }
+        rowCount = newCount;
+        fireTableRowsInserted(oldCount, newCount - 1);
+    }
+
+    /** Repaints the row of an entity whose state changed, if it is in a cached page; otherwise it will be read fresh anyway. */
+    void update(int key) {
+        for (Page<T> page : pages.values()) {
+            for (int i = 0; i < page.rows.size(); i++) {
+                if (keyOf.applyAsInt(page.rows.get(i)) == key) {
+                    page.cells[i] = null;
+                    fireTableRowsUpdated(page.first + i, page.first + i);
+                    return;
+                }
+            }
+        }
+    }
+
+    T getRow(int rowIndex) {
+        Page<T> page = pageOf(rowIndex);
+        int i = rowIndex - page.first;
+        return i < page.rows.size() ? page.rows.get(i) : null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        Page<T> page = pageOf(rowIndex);
+        int i = rowIndex - page.first;
+        if (i >= page.rows.size()) {
+            return null; // The source shrank (should not happen for append-only stores)
+        }
+        Object[] cells = page.cells[i];
+        if (cells == null) {
+            T row = page.rows.get(i);
+            cells = new Object[columns.length];
+            for (int c = 0; c < cells.length; c++) {
+                cells[c] = cellReader.valueAt(row, c);
+            }
+            page.cells[i] = cells;
+        }
+        return cells[columnIndex];
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+        return false;
+    }
+
+    private Page<T> pageOf(int rowIndex) {
+        int pageIndex = rowIndex / PAGE_SIZE;
+        Page<T> page = pages.get(pageIndex);
+        if (page == null) {
+            int first = pageIndex * PAGE_SIZE;
+            page = new Page<>(first, source.range(first, PAGE_SIZE));
+            pages.put(pageIndex, page);
+        }
+        return page;
+    }
+}
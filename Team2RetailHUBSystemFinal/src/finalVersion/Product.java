@@ -1,11 +1,29 @@
 package finalVersion;
 
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.ReentrantLock;
+
 public class Product {
+
+    // Ειδοποιείται για κάθε μεταβολή του αποθέματος με τη διαφορά συνολικού και δεσμευμένου
+    // (τη χρησιμοποιεί ο InventoryManager για τη ροή αλλαγών, βλ. InventoryChangeFeed)
+    interface StockListener {
+        void stockChanged(Product product, int quantityDelta, int reservedDelta);
+    }
+
+    // Το συνολικό και το δεσμευμένο απόθεμα ζουν σε μία λέξη 64 bit ώστε να αλλάζουν μαζί με ένα CAS:
+    // τα 32 υψηλά bit είναι το συνολικό φυσικό απόθεμα και τα 32 χαμηλά η δεσμευμένη ποσότητα.
+    private static final AtomicLongFieldUpdater<Product> STOCK =
+            AtomicLongFieldUpdater.newUpdater(Product.class, "stock");
+
     private int code;
     private String name;
-    private double price;
-    private int quantity;         // Συνολικό φυσικό απόθεμα που υπάρχει
-    private int reservedQuantity; // Ποσότητα που έχει δεσμευτεί για παραγγελίες
+    private long priceCents;      // Τιμή σε λεπτά (βλ. Money)
+    private volatile long stock;  // (quantity << 32) | reservedQuantity
+    // Κλείδωμα για λειτουργίες πολλών προϊόντων (π.χ. δέσμευση ολόκληρης παραγγελίας), βλ. ProductLocks.
+    // Οι απλές λειτουργίες του ίδιου του Product δεν το χρειάζονται, είναι ήδη ατομικές.
+    private final ReentrantLock guard = new ReentrantLock();
+    private volatile StockListener stockListener;
 
     public Product(int code, String name, double price, int quantity) {
         if (code <= 0) throw new IllegalArgumentException("Ο κωδικός πρέπει να είναι θετικός!");
@@ -14,21 +32,28 @@ public class Product {
         if (quantity < 0) throw new IllegalArgumentException("Η ποσότητα δεν μπορεί να είναι αρνητική!");
         this.code = code;
         this.name = name;
-        this.price = price;
-        this.quantity = quantity;
-        this.reservedQuantity = 0; 
+        this.priceCents = Money.toCents(price);
+        this.stock = pack(quantity, 0);
     }
 
     // --- Getters 
     public int getCode() { return code; }
     public String getName() { return name; }
-    public double getPrice() { return price; }
-    public int getQuantity() { return quantity; } // Επιστρέφει το συνολικό απόθεμα
-    public int getReservedQuantity() { return reservedQuantity; }
+    public double getPrice() { return Money.toDouble(priceCents); }
+    public long getPriceCents() { return priceCents; }
+    public int getQuantity() { return quantityOf(stock); } // Επιστρέφει το συνολικό απόθεμα
+    public int getReservedQuantity() { return reservedOf(stock); }
+    ReentrantLock getGuard() { return guard; }
+
+    void setStockListener(StockListener stockListener) {
+        this.stockListener = stockListener;
+    }
 
     // Η μέθοδος που υπολογίζει και επιστρέφει το πραγματικά διαθέσιμο απόθεμα
+    // (από μία ανάγνωση της λέξης, ώστε συνολικό και δεσμευμένο να είναι πάντα συνεπή μεταξύ τους)
     public int getAvailableQuantity() {
-        return quantity - reservedQuantity;
+        long s = stock;
+        return quantityOf(s) - reservedOf(s);
     }
 
     // --- Setters
@@ -39,81 +64,202 @@ public class Product {
 
     public void setPrice(double price) {
         if (price < 0) throw new IllegalArgumentException("Η τιμή δεν μπορεί να είναι αρνητική!");
-        this.price = price;
+        this.priceCents = Money.toCents(price);
+    }
+
+    public void setPriceCents(long priceCents) {
+        if (priceCents < 0) throw new IllegalArgumentException("Η τιμή δεν μπορεί να είναι αρνητική!");
+        this.priceCents = priceCents;
     }
 
     public void setQuantity(int quantity) {
         if (quantity < 0) throw new IllegalArgumentException("Η ποσότητα δεν μπορεί να είναι αρνητική!");
-        this.quantity = quantity;
+        long current;
+        do {
+            current = stock;
+            if (quantity < reservedOf(current)) { // Το διαθέσιμο απόθεμα δεν γίνεται ποτέ αρνητικό
+                throw new IllegalArgumentException("Η ποσότητα δεν μπορεί να είναι μικρότερη από τη δεσμευμένη!");
+            }
+        } while (!STOCK.compareAndSet(this, current, pack(quantity, reservedOf(current))));
+        stockChanged(quantity - quantityOf(current), 0);
     }
 
     public void setReservedQuantity(int reservedQuantity) {
-        if (reservedQuantity < 0 || reservedQuantity > quantity) { 
-            throw new IllegalArgumentException("Η δεσμευμένη ποσότητα δεν είναι έγκυρη!");
-        }
-        this.reservedQuantity = reservedQuantity;
+        long current;
+        do {
+            current = stock;
+            if (reservedQuantity < 0 || reservedQuantity > quantityOf(current)) {
+                throw new IllegalArgumentException("Η δεσμευμένη ποσότητα δεν είναι έγκυρη!");
+            }
+        } while (!STOCK.compareAndSet(this, current, pack(quantityOf(current), reservedQuantity)));
+        stockChanged(0, reservedQuantity - reservedOf(current));
     }
 
 
     // 1.Μέθοδος για προσθήκη νέου stock (Restock)
     public void addStock(int qty) {
         if (qty > 0) {
-            this.quantity += qty; // Αυξάνουμε το συνολικό φυσικό απόθεμα
-            System.out.println("Product " + this.name + " added " + qty + " stock. Total: " + this.quantity + ", Available: " + getAvailableQuantity());
+            long updated = increaseQuantity(qty); // Αυξάνουμε το συνολικό φυσικό απόθεμα
+            EventLog.log(EventLog.Event.PRODUCT_STOCK_ADDED, name, qty, quantityOf(updated), availableOf(updated));
         }
     }
 
+    // Ατομική αύξηση του συνολικού αποθέματος χωρίς μήνυμα. Επιστρέφει τη νέα κατάσταση της λέξης.
+    long increaseQuantity(int qty) {
+        if (qty < 0) throw new IllegalArgumentException("Η ποσότητα δεν μπορεί να είναι αρνητική!");
+        long current, updated;
+        do {
+            current = stock;
+            updated = pack(Math.addExact(quantityOf(current), qty), reservedOf(current));
+        } while (!STOCK.compareAndSet(this, current, updated));
+        stockChanged(qty, 0);
+        return updated;
+    }
+
+    // Ατομική μείωση του συνολικού αποθέματος. Αφαιρεί μόνο από το διαθέσιμο απόθεμα,
+    // ώστε να μη "φύγουν" τεμάχια που είναι ήδη δεσμευμένα σε παραγγελίες.
+    public boolean removeStock(int qty) {
+        if (qty <= 0) throw new IllegalArgumentException("Η ποσότητα προς αφαίρεση πρέπει να είναι θετική.");
+        long current;
+        do {
+            current = stock;
+            if (availableOf(current) < qty) {
+                return false;
+            }
+        } while (!STOCK.compareAndSet(this, current, pack(quantityOf(current) - qty, reservedOf(current))));
+        stockChanged(-qty, 0);
+        return true;
+    }
+
     // 2.Μέθοδος για δέσμευση αποθέματος (όταν μπαίνει μια παραγγελία)
-    // Αυξάνει το reservedQuantity και μειώνει το availableQuantity
+    // Αυξάνει το reservedQuantity και μειώνει το availableQuantity.
+    // Ο έλεγχος διαθεσιμότητας και η δέσμευση γίνονται μαζί με ένα CAS, άρα δύο ταυτόχρονες
+    // δεσμεύσεις δεν μπορούν ποτέ να κάνουν το διαθέσιμο απόθεμα αρνητικό.
     public int reserve(int requestedQty) {
         if (requestedQty < 0) {
             throw new IllegalArgumentException("Η ζητούμενη ποσότητα για δέσμευση δεν μπορεί να είναι αρνητική!");
         }
-        int available = getAvailableQuantity(); // Παίρνουμε το πόσο είναι διαθέσιμο
-        int toReserve = Math.min(requestedQty, available); // Δεσμεύουμε μόνο όσα είναι διαθέσιμα
-
-        if (toReserve > 0) {
-            this.reservedQuantity += toReserve; // Αυξάνουμε το δεσμευμένο
+        long current, updated;
+        int toReserve;
+        do {
+            current = stock;
+            toReserve = Math.min(requestedQty, availableOf(current)); // Δεσμεύουμε μόνο όσα είναι διαθέσιμα
+            if (toReserve <= 0) {
+                toReserve = 0;
+                updated = current;
+                break;
+            }
             // Το 'quantity' (συνολικό) δεν μειώνεται εδώ, καθώς το προϊόν δεν έχει φύγει ακόμα από την αποθήκη.
-            // Το 'availableQuantity' μειώνεται αυτόματα μέσω του getter (quantity - reservedQuantity).
-        }
-        System.out.println("Product " + this.name + " reserved " + toReserve + ". New Total: " + this.quantity + ", New Reserved: " + this.reservedQuantity + ", New Available: " + getAvailableQuantity());
+            updated = pack(quantityOf(current), reservedOf(current) + toReserve);
+        } while (!STOCK.compareAndSet(this, current, updated));
+        stockChanged(0, toReserve);
+        EventLog.log(EventLog.Event.PRODUCT_RESERVED, name, toReserve, quantityOf(updated), reservedOf(updated), availableOf(updated));
         return toReserve;
     }
 
-    // 3.Μέθοδος για την ολοκλήρωση της πώλησης (όταν παραδίδεται η παραγγελία)
-    public void fulfillAndRelease(int qtyToFulfill) {
+    // Δέσμευση "όλα ή τίποτα": δεσμεύει ακριβώς requestedQty τεμάχια ή κανένα.
+    public boolean tryReserve(int requestedQty) {
+        if (requestedQty < 0) {
+            throw new IllegalArgumentException("Η ζητούμενη ποσότητα για δέσμευση δεν μπορεί να είναι αρνητική!");
+        }
+        long current;
+        do {
+            current = stock;
+            if (availableOf(current) < requestedQty) {
+                return false;
+            }
+        } while (!STOCK.compareAndSet(this, current, pack(quantityOf(current), reservedOf(current) + requestedQty)));
+        stockChanged(0, requestedQty);
+        return true;
+    }
+
+    // 3.Μέθοδος για την ολοκλήρωση της πώλησης (όταν παραδίδεται η παραγγελία).
+    // Επιστρέφει πόσα τεμάχια εκπληρώθηκαν (έως όσα ήταν δεσμευμένα).
+    public int fulfillAndRelease(int qtyToFulfill) {
         if (qtyToFulfill <= 0) {
             throw new IllegalArgumentException("Η ποσότητα προς εκπλήρωση πρέπει να είναι θετική.");
         }
-   
-        int actualFulfilled = Math.min(qtyToFulfill, this.reservedQuantity);
-
-        this.reservedQuantity -= actualFulfilled; // Μειώνει τη δεσμευμένη ποσότητα
-        this.quantity -= actualFulfilled;       // Μειώνει το συνολικό απόθεμα
+        long current, updated;
+        int actualFulfilled;
+        do {
+            current = stock;
+            actualFulfilled = Math.min(qtyToFulfill, reservedOf(current));
+            // Μειώνονται μαζί η δεσμευμένη ποσότητα και το συνολικό απόθεμα
+            updated = pack(quantityOf(current) - actualFulfilled, reservedOf(current) - actualFulfilled);
+        } while (!STOCK.compareAndSet(this, current, updated));
+        stockChanged(-actualFulfilled, -actualFulfilled);
 
-        this.reservedQuantity = Math.max(0, this.reservedQuantity);
-        this.quantity = Math.max(0, this.quantity);
-
-        System.out.println("Product " + this.name + " fulfilled " + actualFulfilled + ". New Total: " + this.quantity + ", New Reserved: " + this.reservedQuantity + ", New Available: " + getAvailableQuantity());
+        EventLog.log(EventLog.Event.PRODUCT_FULFILLED, name, actualFulfilled, quantityOf(updated), reservedOf(updated), availableOf(updated));
+        return actualFulfilled;
     }
 
 
-    public void unreserve(int qtyToUnreserve) {
+    // Επιστρέφει πόσα τεμάχια αποδεσμεύτηκαν (έως όσα ήταν δεσμευμένα)
+    public int unreserve(int qtyToUnreserve) {
         if (qtyToUnreserve < 0) {
             throw new IllegalArgumentException("Η ποσότητα προς αποδέσμευση δεν μπορεί να είναι αρνητική!");
         }
-        int actualUnreserved = Math.min(qtyToUnreserve, reservedQuantity);
-        this.reservedQuantity -= actualUnreserved;
+        long current, updated;
+        int actualUnreserved;
+        do {
+            current = stock;
+            actualUnreserved = Math.min(qtyToUnreserve, reservedOf(current));
+            updated = pack(quantityOf(current), reservedOf(current) - actualUnreserved);
+        } while (!STOCK.compareAndSet(this, current, updated));
+        stockChanged(0, -actualUnreserved);
+
+        EventLog.log(EventLog.Event.PRODUCT_UNRESERVED, name, actualUnreserved, reservedOf(updated), availableOf(updated));
+        return actualUnreserved;
+    }
+
+    // Ατομική μεταβολή συνολικού και δεσμευμένου αποθέματος μαζί (επανάληψη του ημερολογίου, βλ. Journal).
+    // Δεν ελέγχει τα όρια: οι εγγραφές ταυτόχρονων λειτουργιών μπορεί να έχουν άλλη σειρά από τις αλλαγές,
+    // οπότε μόνο το τελικό αποτέλεσμα είναι έγκυρο (βλ. hasValidStock).
+    void adjustStock(int quantityDelta, int reservedDelta) {
+        long current;
+        do {
+            current = stock;
+        } while (!STOCK.compareAndSet(this, current, pack(Math.addExact(quantityOf(current), quantityDelta),
+                                                          Math.addExact(reservedOf(current), reservedDelta))));
+        stockChanged(quantityDelta, reservedDelta);
+    }
+
+    boolean hasValidStock() {
+        long current = stock;
+        return reservedOf(current) >= 0 && reservedOf(current) <= quantityOf(current);
+    }
+
+    // Ειδοποίηση του listener μετά από επιτυχημένο CAS (οι μηδενικές μεταβολές παραλείπονται)
+    private void stockChanged(int quantityDelta, int reservedDelta) {
+        StockListener listener = stockListener;
+        if (listener != null && (quantityDelta != 0 || reservedDelta != 0)) {
+            listener.stockChanged(this, quantityDelta, reservedDelta);
+        }
+    }
+
+    // --- Κωδικοποίηση της λέξης αποθέματος
+    private static long pack(int quantity, int reserved) {
+        return ((long) quantity << 32) | (reserved & 0xFFFFFFFFL);
+    }
+
+    private static int quantityOf(long stock) {
+        return (int) (stock >>> 32);
+    }
+
+    private static int reservedOf(long stock) {
+        return (int) stock;
+    }
 
-        System.out.println("Product " + this.name + " unreserved " + actualUnreserved + ". New Reserved: " + this.reservedQuantity + ", New Available: " + getAvailableQuantity());
+    private static int availableOf(long stock) {
+        return quantityOf(stock) - reservedOf(stock);
     }
 
 
     @Override
     public String toString() {
-        return "Προϊόν: " + name + " (Κωδ: " + code + "), Τιμή: " + String.format("%.2f€", price) +
-               ", Συνολικό Απόθεμα: " + quantity + ", Δεσμευμένο: " + reservedQuantity + ", Διαθέσιμο: " + getAvailableQuantity();
+        long s = stock;
+        return "Προϊόν: " + name + " (Κωδ: " + code + "), Τιμή: " + Money.format(priceCents) +
+               ", Συνολικό Απόθεμα: " + quantityOf(s) + ", Δεσμευμένο: " + reservedOf(s) + ", Διαθέσιμο: " + availableOf(s);
     }
 
     public void displayInfo() {
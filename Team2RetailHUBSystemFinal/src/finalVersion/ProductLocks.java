@@ -0,0 +1,118 @@
+package finalVersion;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Κλείδωμα πολλών προϊόντων μαζί για λειτουργίες που αφορούν ολόκληρη παραγγελία.
+// Τα κλειδώματα παίρνονται πάντα με αύξουσα σειρά κωδικού προϊόντος (και αφήνονται με την αντίστροφη),
+// οπότε δύο παραγγελίες που μοιράζονται προϊόντα δεν μπορούν να κάνουν deadlock.
+// Κρατάει επίσης στατιστικά αναμονής/κατοχής για να φαίνεται η συμφόρηση στα δημοφιλή προϊόντα.
+public class ProductLocks {
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder totalHoldNanos = new LongAdder();
+    private final LongAccumulator maxHoldNanos = new LongAccumulator(Long::max, 0L);
+
+    // Κλειδώνει τα προϊόντα των ειδών (κάθε προϊόν μία φορά) με σειρά κωδικού
+    public Held lockItems(Collection<OrderItem> items) {
+        List<Product> products = new ArrayList<>(items.size());
+        for (OrderItem item : items) {
+            if (item.getProduct() != null) {
+                products.add(item.getProduct());
+            }
+        }
+        return lock(products);
+    }
+
+    public Held lock(Collection<Product> products) {
+        List<Product> ordered = new ArrayList<>(products);
+        ordered.sort(Comparator.comparingInt(Product::getCode));
+        // Αφαιρούμε τα διπλότυπα (ίδιο προϊόν σε πολλά είδη) ώστε να κλειδώνεται μία φορά
+        int n = 0;
+        for (int i = 0; i < ordered.size(); i++) {
+            if (n == 0 || ordered.get(n - 1) != ordered.get(i)) {
+                ordered.set(n++, ordered.get(i));
+            }
+        }
+        Product[] locked = ordered.subList(0, n).toArray(new Product[0]);
+
+        long start = System.nanoTime();
+        int acquired = 0;
+        try {
+            for (Product p : locked) {
+                p.getGuard().lock();
+                acquired++;
+            }
+        } finally {
+            if (acquired < locked.length) {
+                for (int i = acquired - 1; i >= 0; i--) {
+                    locked[i].getGuard().unlock();
+                }
+            }
+        }
+        long lockedAt = System.nanoTime();
+        totalWaitNanos.add(lockedAt - start);
+        acquisitions.increment();
+        return new Held(locked, lockedAt);
+    }
+
+    // Τα κλειδώματα που πάρθηκαν, για try-with-resources γύρω από το κρίσιμο τμήμα. Το σώμα συνήθως δεν το
+    // αναφέρει (μόνο η διάρκειά του μετράει), γι' αυτό οι μέθοδοι που το χρησιμοποιούν έχουν @SuppressWarnings("try").
+    public final class Held implements AutoCloseable {
+        private final Product[] locked;
+        private final long lockedAt;
+        private boolean released;
+
+        private Held(Product[] locked, long lockedAt) {
+            this.locked = locked;
+            this.lockedAt = lockedAt;
+        }
+
+        @Override
+        public void close() {
+            if (released) {
+                return;
+            }
+            released = true;
+            long held = System.nanoTime() - lockedAt;
+            for (int i = locked.length - 1; i >= 0; i--) {
+                locked[i].getGuard().unlock();
+            }
+            totalHoldNanos.add(held);
+            maxHoldNanos.accumulate(held);
+        }
+    }
+
+    // --- Στατιστικά
+    public long getAcquisitions() { return acquisitions.sum(); }
+    public long getTotalWaitNanos() { return totalWaitNanos.sum(); }
+    public long getTotalHoldNanos() { return totalHoldNanos.sum(); }
+    public long getMaxHoldNanos() { return maxHoldNanos.get(); }
+
+    public double getAverageHoldMicros() {
+        long count = acquisitions.sum();
+        return count == 0 ? 0 : totalHoldNanos.sum() / 1000.0 / count;
+    }
+
+    public double getAverageWaitMicros() {
+        long count = acquisitions.sum();
+        return count == 0 ? 0 : totalWaitNanos.sum() / 1000.0 / count;
+    }
+
+    public void reset() {
+        acquisitions.reset();
+        totalWaitNanos.reset();
+        totalHoldNanos.reset();
+        maxHoldNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Κλειδώματα: %d, Μέση αναμονή: %.1fμs, Μέση κατοχή: %.1fμs, Μέγιστη κατοχή: %.1fμs",
+                getAcquisitions(), getAverageWaitMicros(), getAverageHoldMicros(), getMaxHoldNanos() / 1000.0);
+    }
+}
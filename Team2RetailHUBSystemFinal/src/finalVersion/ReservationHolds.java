@@ -0,0 +1,325 @@
+package finalVersion;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Κρατήσεις αποθέματος με χρόνο λήξης.
+// Μια κράτηση δεσμεύει τεμάχια ενός προϊόντος για περιορισμένο χρόνο (π.χ. όσο ο πελάτης ολοκληρώνει
+// την παραγγελία του). Αν ως τότε δεν επιβεβαιωθεί ή αποδεσμευτεί, λήγει: τα τεμάχια γυρίζουν στο διαθέσιμο
+// απόθεμα και κατανέμονται στα backorders του προϊόντος. Οι λήξεις παρακολουθούνται σε hashed timing wheel
+// (βλ. TimingWheel), οπότε η προσθήκη, η ακύρωση και η λήξη κάθε κράτησης είναι O(1).
+// Οι κρατήσεις είναι προσωρινές: δεν γράφονται στο ημερολόγιο ούτε στο στιγμιότυπο, άρα μετά από επανεκκίνηση
+// έχουν απλώς λήξει. Η επιβεβαίωση γράφει τη δέσμευση, που από εκεί και πέρα είναι κανονική δέσμευση.
+public class ReservationHolds implements AutoCloseable {
+
+    public static final long DEFAULT_TICK_MILLIS = 100;
+    static final int WHEEL_SIZE = 1024; // Με tick 100 ms μία περιστροφή είναι ~100 δευτερόλεπτα
+
+    public enum State { ACTIVE, CONFIRMED, RELEASED, EXPIRED }
+
+    public static final class Hold extends TimingWheel.Timer {
+        private final Product product;      // null: κράτηση χωρίς απόθεμα (π.χ. χρόνος αναμονής παραγγελίας)
+        private final int quantity;
+        private final long expiresAt;       // Ώρα λήξης (ms, όπως το System.currentTimeMillis)
+        private final Runnable onExpire;
+        private volatile State state = State.ACTIVE; // Αλλάζει μόνο στο κλείδωμα του ReservationHolds
+
+        private Hold(Product product, int quantity, long ttlMillis, Runnable onExpire) {
+            this.product = product;
+            this.quantity = quantity;
+            this.expiresAt = System.currentTimeMillis() + ttlMillis;
+            this.onExpire = onExpire;
+        }
+
+        public Product getProduct() { return product; }
+        public int getQuantity() { return quantity; }
+        public long getExpiresAt() { return expiresAt; }
+        public State getState() { return state; }
+        public boolean isActive() { return state == State.ACTIVE; }
+
+        public long getRemainingMillis() {
+            return state == State.ACTIVE ? Math.max(0, expiresAt - System.currentTimeMillis()) : 0;
+        }
+
+        @Override
+        public String toString() {
+            return "Κράτηση " + quantity + " τεμ. του " + (product == null ? "-" : product.getName()) + " (" + state + ")";
+        }
+    }
+
+    private final InventoryManager inventory;
+    private final long tickNanos;
+    private final long startNanos = System.nanoTime();
+    private final TimingWheel wheel = new TimingWheel(WHEEL_SIZE);                  // guarded by this
+    private final IdentityHashMap<Product, int[]> heldByProduct = new IdentityHashMap<>(); // guarded by this
+    private long heldUnits;                                                           // guarded by this
+    private ScheduledExecutorService ticker;  // guarded by this, ξεκινά με την πρώτη κράτηση
+    private boolean closed;                   // guarded by this
+
+    ReservationHolds(InventoryManager inventory) {
+        this(inventory, DEFAULT_TICK_MILLIS);
+    }
+
+    ReservationHolds(InventoryManager inventory, long tickMillis) {
+        if (tickMillis <= 0) throw new IllegalArgumentException("Το διάστημα του tick πρέπει να είναι θετικό.");
+        this.inventory = inventory;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+    }
+
+    // Δεσμεύει έως quantity τεμάχια από το διαθέσιμο απόθεμα για ttlMillis. Η κράτηση έχει όσα δεσμεύτηκαν
+    // πραγματικά· αν δεν υπήρχε καθόλου διαθέσιμο, επιστρέφεται ήδη ανενεργή με ποσότητα 0.
+    // Το Journal.Op εδώ (και στις release/expireDue) δεν γράφει τίποτα: κρατά μόνο την πύλη του ημερολογίου,
+    // ώστε ένα checkpoint να βλέπει απόθεμα και κρατήσεις μαζί· γι' αυτό το @SuppressWarnings("try").
+    @SuppressWarnings("try")
+    public Hold hold(Product product, int quantity, long ttlMillis) {
+        if (product == null) throw new IllegalArgumentException("Το προϊόν της κράτησης δεν μπορεί να είναι null.");
+        if (quantity <= 0) throw new IllegalArgumentException("Η ποσότητα της κράτησης πρέπει να είναι θετική.");
+        checkTtl(ttlMillis);
+        try (Journal.Op op = Journal.begin(inventory.getJournal())) {
+            int reserved = product.reserve(quantity);
+            Hold hold = new Hold(product, reserved, ttlMillis, null);
+            if (reserved == 0) {
+                hold.state = State.RELEASED;
+                return hold;
+            }
+            synchronized (this) {
+                if (!closed) {
+                    heldByProduct.computeIfAbsent(product, p -> new int[1])[0] += reserved;
+                    heldUnits += reserved;
+                    schedule(hold, ttlMillis);
+                    return hold;
+                }
+            }
+            product.unreserve(reserved);
+            throw new IllegalStateException("Οι κρατήσεις αποθέματος έχουν κλείσει.");
+        }
+    }
+
+    // Χρονομετρητής χωρίς απόθεμα: το onExpire τρέχει στη λήξη, έξω από κάθε κλείδωμα (βλ. OrderManager)
+    Hold timeout(long ttlMillis, Runnable onExpire) {
+        checkTtl(ttlMillis);
+        Hold hold = new Hold(null, 0, ttlMillis, onExpire);
+        synchronized (this) {
+            ensureOpen();
+            schedule(hold, ttlMillis);
+        }
+        return hold;
+    }
+
+    // Ο πελάτης εγκατέλειψε: τα τεμάχια γυρίζουν αμέσως στο διαθέσιμο απόθεμα.
+    // Επιστρέφει false αν η κράτηση δεν ήταν πια ενεργή (π.χ. έληξε ήδη).
+    @SuppressWarnings("try")
+    public boolean release(Hold hold) {
+        if (hold == null) {
+            return false;
+        }
+        try (Journal.Op op = Journal.begin(inventory.getJournal())) {
+            if (!finish(hold, State.RELEASED)) {
+                return false;
+            }
+            if (hold.product != null) {
+                hold.product.unreserve(hold.quantity);
+            }
+        }
+        if (hold.product != null) {
+            inventory.allocateReleasedStock(hold.product);
+        }
+        return true;
+    }
+
+    // Η παραγγελία επιβεβαιώθηκε: η δέσμευση μένει χωρίς χρόνο λήξης και γράφεται στο ημερολόγιο.
+    // Επιστρέφει false αν η κράτηση είχε ήδη λήξει ή αποδεσμευτεί (τότε τα τεμάχια δεν είναι πια δεσμευμένα).
+    public boolean confirm(Hold hold) {
+        if (hold == null) {
+            return false;
+        }
+        try (Journal.Op op = Journal.begin(inventory.getJournal())) {
+            if (!finish(hold, State.CONFIRMED)) {
+                return false;
+            }
+            if (hold.product != null) {
+                op.append(new Journal.Entry().stock(hold.product, 0, hold.quantity));
+            }
+        }
+        return true;
+    }
+
+    // Αναίρεση επιβεβαίωσης (π.χ. δεν επιβεβαιώθηκαν όλες οι κρατήσεις μιας παραγγελίας): τα τεμάχια γυρίζουν
+    // στο διαθέσιμο απόθεμα και η αποδέσμευση γράφεται στο ημερολόγιο, όπως γράφτηκε και η δέσμευση.
+    // Επιστρέφει false αν η κράτηση δεν ήταν επιβεβαιωμένη.
+    public boolean unconfirm(Hold hold) {
+        if (hold == null) {
+            return false;
+        }
+        try (Journal.Op op = Journal.begin(inventory.getJournal())) {
+            synchronized (this) {
+                if (hold.state != State.CONFIRMED) {
+                    return false;
+                }
+                hold.state = State.RELEASED;
+            }
+            if (hold.product != null) {
+                int returned = hold.product.unreserve(hold.quantity);
+                op.append(new Journal.Entry().stock(hold.product, 0, -returned));
+            }
+        }
+        if (hold.product != null) {
+            inventory.allocateReleasedStock(hold.product);
+        }
+        return true;
+    }
+
+    // Ακύρωση χρονομετρητή χωρίς να τρέξει το onExpire
+    boolean cancel(Hold hold) {
+        return hold != null && finish(hold, State.RELEASED);
+    }
+
+    // Λήξη όσων κρατήσεων έφτασε η ώρα τους (το ίδιο κάνει και κάθε tick). Επιστρέφει πόσες έληξαν.
+    // Τα τεμάχια επιστρέφονται μέσα σε μία λειτουργία του ημερολογίου (ώστε ένα checkpoint να βλέπει
+    // απόθεμα και κρατήσεις μαζί), η κατανομή σε backorders και τα onExpire τρέχουν μετά, χωρίς κλειδώματα.
+    @SuppressWarnings("try")
+    public int expireDue() {
+        List<TimingWheel.Timer> due = new ArrayList<>();
+        int expiredHolds = 0;
+        long returnedUnits = 0;
+        Set<Product> released = new LinkedHashSet<>();
+        try (Journal.Op op = Journal.begin(inventory.getJournal())) {
+            synchronized (this) {
+                wheel.advanceTo(currentTick(), due);
+                for (TimingWheel.Timer timer : due) {
+                    Hold hold = (Hold) timer;
+                    hold.state = State.EXPIRED;
+                    unhold(hold);
+                }
+            }
+            for (TimingWheel.Timer timer : due) {
+                Hold hold = (Hold) timer;
+                if (hold.product != null) {
+                    returnedUnits += hold.product.unreserve(hold.quantity);
+                    released.add(hold.product);
+                    expiredHolds++;
+                }
+            }
+        }
+        if (expiredHolds > 0) {
+            EventLog.log(EventLog.Event.HOLDS_EXPIRED, expiredHolds, returnedUnits);
+        }
+        for (Product product : released) {
+            try {
+                inventory.allocateReleasedStock(product);
+            } catch (RuntimeException e) {
+                System.err.println("Σφάλμα κατά την κατανομή αποθέματος κράτησης που έληξε: " + e);
+            }
+        }
+        for (TimingWheel.Timer timer : due) {
+            Hold hold = (Hold) timer;
+            if (hold.onExpire != null) {
+                try {
+                    hold.onExpire.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Σφάλμα κατά τη λήξη κράτησης: " + e);
+                }
+            }
+        }
+        return due.size();
+    }
+
+    public synchronized int getActiveCount() {
+        return wheel.size();
+    }
+
+    // Τεμάχια όλων των ενεργών κρατήσεων αποθέματος
+    public synchronized long getHeldUnits() {
+        return heldUnits;
+    }
+
+    // Τεμάχια του προϊόντος σε ενεργές κρατήσεις (το στιγμιότυπο τα αφαιρεί από το δεσμευμένο απόθεμα)
+    synchronized int heldQuantity(Product product) {
+        int[] held = heldByProduct.get(product);
+        return held == null ? 0 : held[0];
+    }
+
+    // Σταματά τον χρονομετρητή και αποδεσμεύει όσες κρατήσεις είναι ακόμη ενεργές (χωρίς να τρέξουν τα onExpire)
+    @Override
+    public void close() {
+        ScheduledExecutorService stopping;
+        List<TimingWheel.Timer> active = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            stopping = ticker;
+            ticker = null;
+            wheel.drainTo(active);
+        }
+        if (stopping != null) {
+            stopping.shutdown();
+        }
+        for (TimingWheel.Timer timer : active) {
+            release((Hold) timer);
+        }
+    }
+
+    // --- Τροχός (καλούνται στο κλείδωμα)
+
+    private void schedule(Hold hold, long ttlMillis) {
+        long deadlineNanos = System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        wheel.schedule(hold, (deadlineNanos + tickNanos - 1) / tickNanos); // Στρογγυλοποίηση προς τα πάνω
+        if (ticker == null) {
+            ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "reservation-holds");
+                thread.setDaemon(true);
+                return thread;
+            });
+            ticker.scheduleWithFixedDelay(this::tick, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Μια εξαίρεση που φτάνει στον executor ακυρώνει οριστικά το scheduleWithFixedDelay και καμία κράτηση
+    // δεν θα έληγε πια· την καταγράφουμε και το επόμενο tick συνεχίζει κανονικά.
+    private void tick() {
+        try {
+            expireDue();
+        } catch (RuntimeException e) {
+            System.err.println("Σφάλμα στον χρονομετρητή κρατήσεων: " + e);
+        }
+    }
+
+    private synchronized boolean finish(Hold hold, State state) {
+        if (hold.state != State.ACTIVE) {
+            return false;
+        }
+        wheel.cancel(hold);
+        hold.state = state;
+        unhold(hold);
+        return true;
+    }
+
+    private void unhold(Hold hold) {
+        if (hold.product == null) {
+            return;
+        }
+        int[] held = heldByProduct.get(hold.product);
+        held[0] -= hold.quantity;
+        if (held[0] == 0) {
+            heldByProduct.remove(hold.product);
+        }
+        heldUnits -= hold.quantity;
+    }
+
+    private long currentTick() {
+        return (System.nanoTime() - startNanos) / tickNanos;
+    }
+
+    private void ensureOpen() {
+        if (closed) throw new IllegalStateException("Οι κρατήσεις αποθέματος έχουν κλείσει.");
+    }
+
+    private static void checkTtl(long ttlMillis) {
+        if (ttlMillis <= 0) throw new IllegalArgumentException("Ο χρόνος κράτησης πρέπει να είναι θετικός.");
+    }
+}
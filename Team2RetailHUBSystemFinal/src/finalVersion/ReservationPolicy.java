@@ -0,0 +1,7 @@
+package finalVersion;
+
+public enum ReservationPolicy {
+    BACKORDER,      // Δεσμεύεται ό,τι υπάρχει και το υπόλοιπο γίνεται backorder (allowBackorder = true)
+    PARTIAL,        // Δεσμεύεται ό,τι υπάρχει χωρίς backorder για το υπόλοιπο (allowBackorder = false)
+    ALL_OR_NOTHING  // Δεσμεύονται όλα τα είδη της παραγγελίας πλήρως ή κανένα
+}
@@ -67,9 +67,12 @@ class RestockOrderScenario {
         } while (!answer.equalsIgnoreCase("y") && !answer.equalsIgnoreCase("n"));
 
         if (answer.equalsIgnoreCase("y")) {
-            inventory.addStockToExisting(code, qty);
+            RestockResult result = inventory.addStockToExisting(code, qty);
             System.out.println(">>> Επιτυχία! Προστέθηκαν " + qty + " μονάδες στο προϊόν '" + selected.getName() +
                                "' (Κωδικός: " + selected.getCode() + ").");
+            if (result.getAllocatedToBackorders() > 0) {
+                System.out.println("Από αυτές κατανεμήθηκαν " + result.getAllocatedToBackorders() + " σε εκκρεμείς παραγγελίες (backorders).");
+            }
             System.out.println("Νέο διαθέσιμο απόθεμα: " + selected.getQuantity());
         } else {
             System.out.println("Η αναπλήρωση ακυρώθηκε.");
@@ -0,0 +1,50 @@
+package finalVersion;
+
+// Σύνοψη αναπλήρωσης για ένα προϊόν μέσα σε μια παραλαβή (όλες οι γραμμές του ίδιου κωδικού μαζί).
+public class RestockResult {
+    private final int productCode;
+    private final Product product;   // null αν ο κωδικός δεν βρέθηκε
+    private int quantityAdded;       // Συνολική ποσότητα που προστέθηκε στο απόθεμα
+    private int lines;               // Πόσες γραμμές της παραλαβής αφορούσαν το προϊόν
+    private int rejectedLines;       // Γραμμές που απορρίφθηκαν (άγνωστος κωδικός ή μη θετική ποσότητα)
+    private int allocatedToBackorders;
+
+    RestockResult(int productCode, Product product) {
+        this.productCode = productCode;
+        this.product = product;
+    }
+
+    // --- Getters ---
+    public int getProductCode() { return productCode; }
+    public Product getProduct() { return product; }
+    public int getQuantityAdded() { return quantityAdded; }
+    public int getLines() { return lines; }
+    public int getRejectedLines() { return rejectedLines; }
+    public int getAllocatedToBackorders() { return allocatedToBackorders; }
+
+    public boolean isApplied() {
+        return product != null && quantityAdded > 0;
+    }
+
+    // --- Ενημέρωση από τον InventoryManager κατά την επεξεργασία της παραλαβής
+    void addLine(int qty) {
+        this.quantityAdded = Math.addExact(this.quantityAdded, qty);
+        this.lines++;
+    }
+
+    void rejectLine() {
+        this.rejectedLines++;
+    }
+
+    void setAllocatedToBackorders(int allocatedToBackorders) {
+        this.allocatedToBackorders = allocatedToBackorders;
+    }
+
+    @Override
+    public String toString() {
+        String name = product != null ? product.getName() : "Άγνωστο προϊόν";
+        return name + " (Κωδ: " + productCode + "): +" + quantityAdded + " από " + lines + " γραμμές" +
+               (rejectedLines > 0 ? ", απορρίφθηκαν " + rejectedLines : "") +
+               ", Κατανεμήθηκαν σε backorders: " + allocatedToBackorders;
+    }
+}
@@ -13,22 +13,66 @@ public class Sale implements Serializable {
     private final int saleId;
     private final int orderId; // Το ID της παραγγελίας από την οποία προήλθε η πώληση
     private final Customer customer;
-    private final double totalSaleValue;
+    private final long totalSaleValueCents;
     private final Date saleDate;
     private final List<OrderItem> soldItems; // Τα OrderItems που πουλήθηκαν
 
     public Sale(int orderId, Customer customer, double totalSaleValue, Date saleDate, List<OrderItem> soldItems) {
+        this(orderId, customer, Money.toCents(totalSaleValue), saleDate, soldItems);
+    }
+
+    // Η αξία της πώλησης υπολογίζεται από τα είδη (τιμή τη στιγμή της παραγγελίας επί ποσότητα), σε λεπτά
+    public Sale(int orderId, Customer customer, Date saleDate, List<OrderItem> soldItems) {
+        this(orderId, customer, totalCentsOf(soldItems), saleDate, soldItems);
+    }
+
+    private Sale(int orderId, Customer customer, long totalSaleValueCents, Date saleDate, List<OrderItem> soldItems) {
         if (customer == null || soldItems == null || soldItems.isEmpty()) {
             throw new IllegalArgumentException("Δεν μπορούν να δημιουργηθούν δεδομένα πώλησης χωρίς πελάτη ή είδη.");
         }
         this.saleId = nextSaleId.getAndIncrement();
         this.orderId = orderId;
         this.customer = customer;
-        this.totalSaleValue = totalSaleValue;
+        this.totalSaleValueCents = totalSaleValueCents;
         this.saleDate = (Date) saleDate.clone(); // Defensive copy
         this.soldItems = new ArrayList<>(soldItems); // Defensive copy
     }
 
+    // Επαναφορά αποθηκευμένης πώλησης (βλ. SnapshotStore) με το αρχικό ID και την αξία της
+    Sale(int saleId, int orderId, Customer customer, long totalSaleValueCents, Date saleDate, List<OrderItem> soldItems) {
+        if (customer == null || soldItems == null || soldItems.isEmpty() || saleDate == null) {
+            throw new IllegalArgumentException("Ελλιπή στοιχεία αποθηκευμένης πώλησης " + saleId + ".");
+        }
+        this.saleId = saleId;
+        this.orderId = orderId;
+        this.customer = customer;
+        this.totalSaleValueCents = totalSaleValueCents;
+        this.saleDate = (Date) saleDate.clone();
+        this.soldItems = new ArrayList<>(soldItems);
+        reserveIdsThrough(saleId); // Οι νέες πωλήσεις δεν παίρνουν ID αποθηκευμένων
+    }
+
+    // Το ID που θα πάρει η επόμενη νέα πώληση
+    static int getNextSaleId() {
+        return nextSaleId.get();
+    }
+
+    // Οι επόμενες πωλήσεις θα πάρουν ID μεγαλύτερο από lastUsedId
+    static void reserveIdsThrough(int lastUsedId) {
+        nextSaleId.accumulateAndGet(lastUsedId + 1, Math::max);
+    }
+
+    private static long totalCentsOf(List<OrderItem> items) {
+        if (items == null) {
+            return 0; // Ο έλεγχος γίνεται στον κύριο constructor
+        }
+        long total = 0;
+        for (int i = 0; i < items.size(); i++) {
+            total = Math.addExact(total, items.get(i).getTotalValueCents());
+        }
+        return total;
+    }
+
     // --- Getters ---
     public int getSaleId() {
         return saleId;
@@ -43,13 +87,22 @@ public class Sale implements Serializable {
     }
 
     public double getTotalSaleValue() {
-        return totalSaleValue;
+        return Money.toDouble(totalSaleValueCents);
+    }
+
+    public long getTotalSaleValueCents() {
+        return totalSaleValueCents;
     }
 
     public Date getSaleDate() {
         return (Date) saleDate.clone(); // Defensive copy
     }
 
+    // Χρόνος πώλησης σε ms (χωρίς αντίγραφο Date, για ταξινόμηση και αναζήτηση)
+    public long getSaleTime() {
+        return saleDate.getTime();
+    }
+
     public List<OrderItem> getSoldItems() {
         return Collections.unmodifiableList(soldItems);
     }
@@ -57,6 +110,6 @@ public class Sale implements Serializable {
     @Override
     public String toString() {
         return "Sale ID: " + saleId + ", Order ID: " + orderId + ", Customer: " + customer.getName() +
-               ", Value: " + String.format("%.2f€", totalSaleValue) + ", Date: " + saleDate;
+               ", Value: " + Money.format(totalSaleValueCents) + ", Date: " + saleDate;
     }
 }
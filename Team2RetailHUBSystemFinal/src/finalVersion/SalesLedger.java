@@ -0,0 +1,410 @@
+package finalVersion;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Βιβλίο πωλήσεων: αποθήκη μόνο-προσθήκης, χωρισμένη σε τμήματα ανά ημέρα.
+// Μέσα σε κάθε ημέρα οι πωλήσεις είναι ταξινομημένες κατά χρόνο, οπότε τα ερωτήματα διαστήματος
+// βρίσκουν τα όρια με δυαδική αναζήτηση. Δευτερεύοντα ευρετήρια ανά πελάτη, παραγγελία και προϊόν.
+public class SalesLedger {
+
+    // Ειδοποιείται για κάθε νέα πώληση, μέσα στο κλείδωμα του βιβλίου (άρα με τη σειρά καταχώρησης)
+    public interface SaleListener {
+        void saleRecorded(Sale sale);
+    }
+
+    // Οι πωλήσεις μίας ημέρας και οι χρόνοι τους (σε ms) σε παράλληλο πίνακα για δυαδική αναζήτηση
+    private static final class DayPartition {
+        private final List<Sale> sales = new ArrayList<>();
+        private long[] times = new long[16];
+
+        void add(Sale sale) {
+            long time = sale.getSaleTime();
+            int n = sales.size();
+            if (n == times.length) {
+                times = Arrays.copyOf(times, n * 2);
+            }
+            if (n == 0 || times[n - 1] <= time) {
+                // Συνήθης περίπτωση: οι πωλήσεις έρχονται με χρονολογική σειρά
+                sales.add(sale);
+                times[n] = time;
+                return;
+            }
+            // Παλαιότερη πώληση (π.χ. εισαγωγή ιστορικού): μπαίνει στη σωστή θέση
+            int pos = upperBound(time);
+            sales.add(pos, sale);
+            System.arraycopy(times, pos, times, pos + 1, n - pos);
+            times[pos] = time;
+        }
+
+        // Πρώτη θέση με χρόνο >= time
+        int lowerBound(long time) {
+            int lo = 0, hi = sales.size();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (times[mid] < time) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+
+        // Πρώτη θέση με χρόνο > time
+        int upperBound(long time) {
+            int lo = 0, hi = sales.size();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (times[mid] <= time) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    private final ZoneId zone;
+    private final TreeMap<LocalDate, DayPartition> days = new TreeMap<>();
+    private final IntKeyMap<List<Sale>> byCustomerId = new IntKeyMap<>();
+    private final IntKeyMap<List<Sale>> byOrderId = new IntKeyMap<>();
+    private final IntKeyMap<List<Sale>> byProductCode = new IntKeyMap<>();
+    private final IntKeyMap<Customer> customers = new IntKeyMap<>(); // Οι πελάτες που έχουν πωλήσεις
+    private final List<SaleListener> listeners = new ArrayList<>();
+    private int size;
+    // Θεσιακό ευρετήριο για τη χρονολογική σειρά: τα τμήματα με σειρά ημέρας και η θέση της πρώτης πώλησης
+    // κάθε τμήματος. Ξαναχτίζεται (O(ημερών)) μόνο όταν προστεθεί ημέρα ή πώληση σε ημέρα πριν την τελευταία,
+    // γιατί τότε μετακινούνται οι θέσεις των επόμενων ημερών· οι συνήθεις πωλήσεις του σήμερα δεν το αγγίζουν.
+    private DayPartition[] dayOrder = new DayPartition[0];
+    private int[] dayStarts = new int[0];
+    private boolean dayOrderStale;
+
+    public SalesLedger() {
+        this(ZoneId.systemDefault());
+    }
+
+    public SalesLedger(ZoneId zone) {
+        if (zone == null) throw new IllegalArgumentException("Η ζώνη ώρας δεν μπορεί να είναι null.");
+        this.zone = zone;
+    }
+
+    public synchronized void record(Sale sale) {
+        if (sale == null) {
+            throw new IllegalArgumentException("Η πώληση δεν μπορεί να είναι null.");
+        }
+        addToDay(sale);
+
+        Customer customer = sale.getCustomer();
+        byCustomerId.computeIfAbsent(customer.getId(), id -> new ArrayList<>()).add(sale);
+        customers.putIfAbsent(customer.getId(), customer);
+        byOrderId.computeIfAbsent(sale.getOrderId(), id -> new ArrayList<>()).add(sale);
+        for (OrderItem item : sale.getSoldItems()) {
+            List<Sale> productSales = byProductCode.computeIfAbsent(item.getProduct().getCode(), c -> new ArrayList<>());
+            // Το ίδιο προϊόν σε περισσότερα είδη της πώλησης καταχωρείται μία φορά
+            if (productSales.isEmpty() || productSales.get(productSales.size() - 1) != sale) {
+                productSales.add(sale);
+            }
+        }
+        size++;
+        for (SaleListener listener : listeners) {
+            listener.saleRecorded(sale);
+        }
+    }
+
+    // Μαζική καταχώρηση (π.χ. εισαγωγή ιστορικού) σε ένα κλείδωμα, με το ίδιο αποτέλεσμα όπως record() για κάθε πώληση
+    // με χρονολογική σειρά. Οι πωλήσεις ταξινομούνται κατά χρόνο, ώστε κάθε ημέρα να γεμίζει με προσθήκη στο τέλος.
+    // Τα ευρετήρια πελάτη/παραγγελίας/προϊόντος δεν ενημερώνονται ανά πώληση (μία τυχαία αναζήτηση για καθένα):
+    // οι πωλήσεις ομαδοποιούνται ανά κλειδί και κάθε λίστα βρίσκεται μία φορά και συμπληρώνεται με μιας.
+    public synchronized void recordAll(List<Sale> sales) {
+        Sale[] sorted = sortByTime(sales);
+        // Διαδοχικές πωλήσεις πέφτουν συνήθως στην ίδια ημέρα: η ημέρα υπολογίζεται μόνο όταν ο χρόνος βγει από τα όριά της
+        DayPartition partition = null;
+        long dayStart = Long.MAX_VALUE;
+        long dayEnd = Long.MIN_VALUE;
+        for (Sale sale : sorted) {
+            long time = sale.getSaleTime();
+            if (time < dayStart || time >= dayEnd) {
+                LocalDate day = dayOf(time);
+                partition = partitionFor(day);
+                dayStart = day.atStartOfDay(zone).toInstant().toEpochMilli();
+                dayEnd = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            }
+            partition.add(sale);
+        }
+
+        long[] keys = new long[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            keys[i] = groupKey(sorted[i].getCustomer().getId(), i);
+        }
+        appendGroups(byCustomerId, keys, keys.length, sorted);
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || (int) (keys[i] >> 32) != (int) (keys[i - 1] >> 32)) {
+                Customer customer = sorted[(int) keys[i]].getCustomer();
+                customers.putIfAbsent(customer.getId(), customer);
+            }
+        }
+
+        for (int i = 0; i < sorted.length; i++) {
+            keys[i] = groupKey(sorted[i].getOrderId(), i);
+        }
+        appendGroups(byOrderId, keys, keys.length, sorted);
+
+        int pairs = 0;
+        for (Sale sale : sorted) {
+            pairs += sale.getSoldItems().size();
+        }
+        keys = new long[pairs];
+        pairs = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            for (OrderItem item : sorted[i].getSoldItems()) {
+                keys[pairs++] = groupKey(item.getProduct().getCode(), i);
+            }
+        }
+        appendGroups(byProductCode, keys, pairs, sorted);
+
+        size += sorted.length;
+        for (Sale sale : sorted) {
+            for (SaleListener listener : listeners) {
+                listener.saleRecorded(sale);
+            }
+        }
+    }
+
+    public synchronized void addListener(SaleListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Ο listener δεν μπορεί να είναι null.");
+        }
+        listeners.add(listener);
+    }
+
+    public synchronized void removeListener(SaleListener listener) {
+        listeners.remove(listener);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // Όλες οι πωλήσεις με χρονολογική σειρά
+    public synchronized List<Sale> getAll() {
+        List<Sale> result = new ArrayList<>(size);
+        for (DayPartition day : days.values()) {
+            result.addAll(day.sales);
+        }
+        return result;
+    }
+
+    // Η πώληση στη θέση index της χρονολογικής σειράς
+    public synchronized Sale get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Θέση " + index + ", πλήθος πωλήσεων " + size);
+        }
+        int d = dayIndexOf(index);
+        return dayOrder[d].sales.get(index - dayStarts[d]);
+    }
+
+    // Έως count πωλήσεις από τη θέση from της χρονολογικής σειράς (μία σελίδα)
+    public synchronized List<Sale> getRange(int from, int count) {
+        List<Sale> result = new ArrayList<>(Math.max(0, Math.min(count, size - from)));
+        if (from < 0 || from >= size || count <= 0) {
+            return result;
+        }
+        int d = dayIndexOf(from);
+        int offset = from - dayStarts[d];
+        while (result.size() < count && d < dayOrder.length) {
+            List<Sale> daySales = dayOrder[d].sales;
+            int end = Math.min(daySales.size(), offset + (count - result.size()));
+            result.addAll(daySales.subList(offset, end));
+            d++;
+            offset = 0;
+        }
+        return result;
+    }
+
+    // Το τμήμα ημέρας που περιέχει τη θέση index (δυαδική αναζήτηση στις αρχές των τμημάτων)
+    private int dayIndexOf(int index) {
+        if (dayOrderStale) {
+            dayOrder = days.values().toArray(new DayPartition[0]);
+            dayStarts = new int[dayOrder.length];
+            int start = 0;
+            for (int i = 0; i < dayOrder.length; i++) {
+                dayStarts[i] = start;
+                start += dayOrder[i].sales.size();
+            }
+            dayOrderStale = false;
+        }
+        int lo = 0, hi = dayStarts.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (dayStarts[mid] <= index) lo = mid; else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    public synchronized List<Sale> findByCustomerId(int customerId) {
+        return copyOf(byCustomerId.get(customerId));
+    }
+
+    public synchronized List<Sale> findByOrderId(int orderId) {
+        return copyOf(byOrderId.get(orderId));
+    }
+
+    public synchronized List<Sale> findByProductCode(int productCode) {
+        return copyOf(byProductCode.get(productCode));
+    }
+
+    // Πωλήσεις πελατών που το όνομά τους περιέχει το κείμενο (χωρίς διάκριση πεζών/κεφαλαίων).
+    // Σαρώνει μόνο τους διακριτούς πελάτες του βιβλίου, όχι τις πωλήσεις.
+    public synchronized List<Sale> findByCustomerName(String query) {
+        List<Sale> result = new ArrayList<>();
+        if (query == null || query.trim().isEmpty()) {
+            return result;
+        }
+        String lowerCaseQuery = query.trim().toLowerCase();
+        for (Customer customer : customers.values()) {
+            if (customer.getName().toLowerCase().contains(lowerCaseQuery)) {
+                result.addAll(byCustomerId.get(customer.getId()));
+            }
+        }
+        result.sort(Comparator.comparingLong(Sale::getSaleTime));
+        return result;
+    }
+
+    // Πωλήσεις στο διάστημα [from, to), με χρονολογική σειρά
+    public synchronized List<Sale> findBetween(Date from, Date to) {
+        List<Sale> result = new ArrayList<>();
+        if (from == null || to == null || !from.before(to)) {
+            return result;
+        }
+        long fromTime = from.getTime();
+        long toTime = to.getTime();
+        for (Map.Entry<LocalDate, DayPartition> entry : days.subMap(dayOf(fromTime), true, dayOf(toTime), true).entrySet()) {
+            DayPartition day = entry.getValue();
+            // Στην πρώτη και την τελευταία ημέρα τα όρια βρίσκονται με δυαδική αναζήτηση·
+            // στις ενδιάμεσες δίνουν απλώς ολόκληρο το τμήμα
+            int start = day.lowerBound(fromTime);
+            int end = day.lowerBound(toTime);
+            result.addAll(day.sales.subList(start, end));
+        }
+        return result;
+    }
+
+    public synchronized List<Sale> findOnDay(LocalDate day) {
+        DayPartition partition = day == null ? null : days.get(day);
+        return partition == null ? new ArrayList<>() : new ArrayList<>(partition.sales);
+    }
+
+    // Αντίγραφο όλων των πωλήσεων ανά ημέρα (για επεξεργασία των ημερών ανεξάρτητα, π.χ. παράλληλα)
+    public synchronized TreeMap<LocalDate, List<Sale>> snapshotByDay() {
+        TreeMap<LocalDate, List<Sale>> snapshot = new TreeMap<>();
+        for (Map.Entry<LocalDate, DayPartition> entry : days.entrySet()) {
+            snapshot.put(entry.getKey(), new ArrayList<>(entry.getValue().sales));
+        }
+        return snapshot;
+    }
+
+    // Οι ημέρες που έχουν πωλήσεις, με αύξουσα σειρά
+    public synchronized List<LocalDate> getDays() {
+        return new ArrayList<>(days.keySet());
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    private void addToDay(Sale sale) {
+        partitionFor(dayOf(sale.getSaleTime())).add(sale);
+    }
+
+    // Το τμήμα της ημέρας (νέο αν δεν υπάρχει), για πώληση που θα προστεθεί σε αυτό
+    private DayPartition partitionFor(LocalDate day) {
+        DayPartition partition = days.get(day);
+        if (partition == null) {
+            partition = new DayPartition();
+            days.put(day, partition);
+            dayOrderStale = true;
+        } else if (!day.equals(days.lastKey())) {
+            dayOrderStale = true;
+        }
+        return partition;
+    }
+
+    // Οι πωλήσεις με χρονολογική σειρά (σταθερή ταξινόμηση). Αρχεία ιστορικού είναι συνήθως ήδη ταξινομημένα,
+    // οπότε δεν γίνεται τίποτα· αλλιώς ταξινομούνται ζεύγη (χρόνος, θέση) πακεταρισμένα σε long, χωρίς comparator
+    // που να διαβάζει το Date κάθε πώλησης σε κάθε σύγκριση.
+    private static Sale[] sortByTime(List<Sale> sales) {
+        Sale[] array = sales.toArray(new Sale[0]);
+        long[] times = new long[array.length];
+        boolean ordered = true;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == null) {
+                throw new IllegalArgumentException("Η πώληση δεν μπορεί να είναι null.");
+            }
+            times[i] = array[i].getSaleTime();
+            ordered &= i == 0 || times[i - 1] <= times[i];
+            min = Math.min(min, times[i]);
+            max = Math.max(max, times[i]);
+        }
+        if (ordered) {
+            return array;
+        }
+        int indexBits = 32 - Integer.numberOfLeadingZeros(array.length);
+        if (max - min < 0 || 64 - Long.numberOfLeadingZeros(max - min) + indexBits > 63) {
+            // Εύρος χρόνων που δεν χωράει στο πακετάρισμα
+            Arrays.sort(array, Comparator.comparingLong(Sale::getSaleTime));
+            return array;
+        }
+        long[] keys = new long[array.length];
+        for (int i = 0; i < array.length; i++) {
+            keys[i] = ((times[i] - min) << indexBits) | i;
+        }
+        Arrays.sort(keys);
+        Sale[] sorted = new Sale[array.length];
+        long indexMask = (1L << indexBits) - 1;
+        for (int i = 0; i < keys.length; i++) {
+            sorted[i] = array[(int) (keys[i] & indexMask)];
+        }
+        return sorted;
+    }
+
+    // Κλειδί ομαδοποίησης για την recordAll: το κλειδί του ευρετηρίου στα πάνω 32 bits και η θέση της πώλησης
+    // στα κάτω, ώστε μετά την ταξινόμηση κάθε ομάδα να έχει τις πωλήσεις της με χρονολογική σειρά
+    private static long groupKey(int key, int index) {
+        return ((long) key << 32) | index;
+    }
+
+    // Ταξινομεί τα πρώτα count κλειδιά ομαδοποίησης και προσθέτει κάθε ομάδα στη λίστα του κλειδιού της.
+    // Η ίδια πώληση δεν μπαίνει δύο φορές στην ίδια λίστα (π.χ. το ίδιο προϊόν σε δύο είδη της πώλησης).
+    private static void appendGroups(IntKeyMap<List<Sale>> index, long[] keys, int count, Sale[] sales) {
+        Arrays.sort(keys, 0, count);
+        int start = 0;
+        while (start < count) {
+            int key = (int) (keys[start] >> 32);
+            int end = start + 1;
+            while (end < count && (int) (keys[end] >> 32) == key) {
+                end++;
+            }
+            List<Sale> list = index.computeIfAbsent(key, k -> new ArrayList<>());
+            ((ArrayList<Sale>) list).ensureCapacity(list.size() + end - start);
+            for (int i = start; i < end; i++) {
+                if (i == start || keys[i] != keys[i - 1]) {
+                    list.add(sales[(int) keys[i]]);
+                }
+            }
+            start = end;
+        }
+    }
+
+    private LocalDate dayOf(long time) {
+        return Instant.ofEpochMilli(time).atZone(zone).toLocalDate();
+    }
+
+    private static List<Sale> copyOf(List<Sale> sales) {
+        return sales == null ? Collections.emptyList() : new ArrayList<>(sales);
+    }
+}
@@ -0,0 +1,155 @@
+package finalVersion;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Συγκεντρωτικά πωλήσεων ανά ημέρα, προϊόν και πελάτη που ενημερώνονται με κάθε νέα πώληση του βιβλίου,
+// ώστε οι αναφορές να μην ξαναδιαβάζουν όλες τις πωλήσεις και τα είδη τους.
+// Τα σύνολα ημέρας/προϊόντος/πελάτη διαβάζονται σε O(1)· μήνας, έτος ή διάστημα είναι συγχώνευση ημερήσιων κάδων.
+public class SalesRollup implements SalesLedger.SaleListener {
+    private final ZoneId zone;
+    private final TreeMap<LocalDate, SalesTotals> byDay = new TreeMap<>();
+    private final IntKeyMap<SalesTotals> byProductCode = new IntKeyMap<>();
+    private final IntKeyMap<SalesTotals> byCustomerId = new IntKeyMap<>();
+    private final SalesTotals grandTotals = new SalesTotals();
+
+    public SalesRollup() {
+        this(ZoneId.systemDefault());
+    }
+
+    public SalesRollup(ZoneId zone) {
+        if (zone == null) throw new IllegalArgumentException("Η ζώνη ώρας δεν μπορεί να είναι null.");
+        this.zone = zone;
+    }
+
+    // Δημιουργεί συγκεντρωτικά για το βιβλίο: ξαναχτίζει από τις υπάρχουσες πωλήσεις και ακούει τις νέες
+    public static SalesRollup attachTo(SalesLedger ledger) {
+        SalesRollup rollup = new SalesRollup(ledger.getZone());
+        rollup.rebuildFrom(ledger);
+        return rollup;
+    }
+
+    // Εγγραφή στο βιβλίο και υπολογισμός των υπαρχουσών πωλήσεων, με τις ημέρες να επεξεργάζονται παράλληλα.
+    // Η εγγραφή και το αντίγραφο γίνονται μαζί μέσα στο κλείδωμα του βιβλίου, οπότε κάθε πώληση μετράει
+    // ακριβώς μία φορά: είτε είναι στο αντίγραφο είτε έρχεται μέσω saleRecorded. Τα αθροίσματα δεν εξαρτώνται
+    // από τη σειρά, άρα οι νέες πωλήσεις μπορούν να καταχωρούνται όσο γίνεται ο υπολογισμός.
+    public void rebuildFrom(SalesLedger ledger) {
+        TreeMap<LocalDate, List<Sale>> snapshot;
+        synchronized (ledger) {
+            ledger.addListener(this);
+            snapshot = ledger.snapshotByDay();
+        }
+        SalesRollup rebuilt = snapshot.values().parallelStream()
+                .map(this::aggregate)
+                .reduce(SalesRollup::mergeInto)
+                .orElseGet(() -> new SalesRollup(zone));
+        synchronized (this) {
+            mergeInto(this, rebuilt);
+        }
+        System.out.println("Τα συγκεντρωτικά πωλήσεων υπολογίστηκαν για " + snapshot.size() + " ημέρες.");
+    }
+
+    @Override
+    public synchronized void saleRecorded(Sale sale) {
+        apply(sale);
+    }
+
+    // --- Ερωτήματα (επιστρέφουν αντίγραφα)
+    public synchronized SalesTotals getDayTotals(LocalDate day) {
+        return copyOf(byDay.get(day));
+    }
+
+    public synchronized SalesTotals getProductTotals(int productCode) {
+        return copyOf(byProductCode.get(productCode));
+    }
+
+    public synchronized SalesTotals getCustomerTotals(int customerId) {
+        return copyOf(byCustomerId.get(customerId));
+    }
+
+    public synchronized SalesTotals getGrandTotals() {
+        return new SalesTotals(grandTotals);
+    }
+
+    // Σύνολα για τις ημέρες [from, to] (και τα δύο άκρα μέσα)
+    public synchronized SalesTotals getTotalsBetween(LocalDate from, LocalDate to) {
+        SalesTotals result = new SalesTotals();
+        if (from == null || to == null || from.isAfter(to)) {
+            return result;
+        }
+        for (SalesTotals day : byDay.subMap(from, true, to, true).values()) {
+            result.merge(day);
+        }
+        return result;
+    }
+
+    public SalesTotals getMonthTotals(YearMonth month) {
+        return getTotalsBetween(month.atDay(1), month.atEndOfMonth());
+    }
+
+    public SalesTotals getYearTotals(int year) {
+        return getTotalsBetween(LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31));
+    }
+
+    // Ενημέρωση όλων των κάδων για μία πώληση (ο καλών κρατάει το κλείδωμα ή έχει το αντικείμενο αποκλειστικά)
+    private void apply(Sale sale) {
+        long units = 0;
+        LocalDate day = Instant.ofEpochMilli(sale.getSaleTime()).atZone(zone).toLocalDate();
+        List<OrderItem> items = sale.getSoldItems();
+        for (int i = 0; i < items.size(); i++) {
+            OrderItem item = items.get(i);
+            units += item.getRequestedQty();
+            int code = item.getProduct().getCode();
+            SalesTotals product = byProductCode.computeIfAbsent(code, c -> new SalesTotals());
+            if (firstLineOf(items, i, code)) {
+                product.add(item.getRequestedQty(), item.getTotalValueCents());
+            } else {
+                // Το ίδιο προϊόν σε δεύτερη γραμμή της πώλησης: τεμάχια και έσοδα μετράνε, η πώληση όχι ξανά
+                product.addLine(item.getRequestedQty(), item.getTotalValueCents());
+            }
+        }
+        long revenue = sale.getTotalSaleValueCents();
+        byDay.computeIfAbsent(day, d -> new SalesTotals()).add(units, revenue);
+        byCustomerId.computeIfAbsent(sale.getCustomer().getId(), id -> new SalesTotals()).add(units, revenue);
+        grandTotals.add(units, revenue);
+    }
+
+    private static boolean firstLineOf(List<OrderItem> items, int index, int code) {
+        for (int i = 0; i < index; i++) {
+            if (items.get(i).getProduct().getCode() == code) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private SalesRollup aggregate(List<Sale> sales) {
+        SalesRollup partial = new SalesRollup(zone);
+        for (Sale sale : sales) {
+            partial.apply(sale);
+        }
+        return partial;
+    }
+
+    // Προσθέτει τους κάδους του source στο target και επιστρέφει το target
+    private static SalesRollup mergeInto(SalesRollup target, SalesRollup source) {
+        for (Map.Entry<LocalDate, SalesTotals> entry : source.byDay.entrySet()) {
+            target.byDay.computeIfAbsent(entry.getKey(), d -> new SalesTotals()).merge(entry.getValue());
+        }
+        source.byProductCode.forEach((code, totals) ->
+                target.byProductCode.computeIfAbsent(code, c -> new SalesTotals()).merge(totals));
+        source.byCustomerId.forEach((id, totals) ->
+                target.byCustomerId.computeIfAbsent(id, c -> new SalesTotals()).merge(totals));
+        target.grandTotals.merge(source.grandTotals);
+        return target;
+    }
+
+    private static SalesTotals copyOf(SalesTotals totals) {
+        return totals == null ? new SalesTotals() : new SalesTotals(totals);
+    }
+}
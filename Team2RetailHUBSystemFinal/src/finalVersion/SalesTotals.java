@@ -0,0 +1,47 @@
+package finalVersion;
+
+// Αθροίσματα πωλήσεων για μια ομάδα (ημέρα, προϊόν, πελάτη ή διάστημα): τεμάχια, έσοδα και πλήθος πωλήσεων.
+// Οι μέθοδοι ενημέρωσης είναι package-private· έξω από το πακέτο οι τιμές είναι μόνο για ανάγνωση.
+public class SalesTotals {
+    private long units;
+    private long revenueCents;
+    private int orders;
+
+    SalesTotals() {
+    }
+
+    SalesTotals(SalesTotals other) {
+        this.units = other.units;
+        this.revenueCents = other.revenueCents;
+        this.orders = other.orders;
+    }
+
+    // --- Getters ---
+    public long getUnits() { return units; }
+    public long getRevenueCents() { return revenueCents; }
+    public double getRevenue() { return Money.toDouble(revenueCents); }
+    public int getOrders() { return orders; }
+
+    // Μία ακόμη πώληση
+    void add(long units, long revenueCents) {
+        addLine(units, revenueCents);
+        this.orders++;
+    }
+
+    // Τεμάχια και έσοδα χωρίς νέα πώληση (π.χ. δεύτερη γραμμή του ίδιου προϊόντος στην ίδια πώληση)
+    void addLine(long units, long revenueCents) {
+        this.units += units;
+        this.revenueCents += revenueCents;
+    }
+
+    void merge(SalesTotals other) {
+        this.units += other.units;
+        this.revenueCents += other.revenueCents;
+        this.orders += other.orders;
+    }
+
+    @Override
+    public String toString() {
+        return "Τεμάχια: " + units + ", Έσοδα: " + Money.format(revenueCents) + ", Πωλήσεις: " + orders;
+    }
+}
@@ -0,0 +1,168 @@
+package finalVersion;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Keeps a combo box filled with only the best matches for the text of its search field.
+ * <p>
+ * Typing restarts a short debounce timer; when it fires, the query runs on a background thread against the
+ * backend's name index and the combo's model is replaced with at most {@code limit} matches. Results of an
+ * older query that arrive after a newer one was started are dropped. The full catalog is never loaded into
+ * the combo, so opening the order screens does not depend on how many products or customers exist.
+ * Must be used from the Event Dispatch Thread.
+ */
+class SearchChooser<T> {
+    private static final int DEBOUNCE_MILLIS = 200;
+
+    /** Finds at most {@code limit} entities for a search text (empty text: the first entities); runs off the EDT. */
+    interface Query<T> {
+        List<T> find(String text, int limit);
+    }
+
+    private final JComboBox<String> combo;
+    private final JTextField searchField;
+    private final Query<T> query;
+    private final Function<T, String> display;
+    private final int limit;
+    private final String noun;
+    private final Consumer<String> output;
+    private final ResultsModel model = new ResultsModel();
+    private final Timer debounce;
+    private int latestRequest;
+
+    SearchChooser(JComboBox<String> combo, JTextField searchField, Query<T> query, Function<T, String> display,
+                  int limit, String noun, Consumer<String> output) {
+        this.combo = combo;
+        this.searchField = searchField;
+        this.query = query;
+        this.display = display;
+        this.limit = limit;
+        this.noun = noun;
+        this.output = output;
+        combo.setModel(model);
+        debounce = new Timer(DEBOUNCE_MILLIS, e -> search(false, true));
+        debounce.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+        });
+        search(false, false);
+    }
+
+    /** Runs the current search right away and reports the number of matches (Search button). */
+    void searchNow() {
+        search(true, false);
+    }
+
+    /** Clears the search text and shows the first entities again. */
+    void reset() {
+        searchField.setText("");
+        search(false, false);
+    }
+
+    /** Re-runs the current search after entities were added, renamed or removed. */
+    void refresh() {
+        debounce.restart();
+    }
+
+    private void search(boolean report, boolean fromTyping) {
+        debounce.stop();
+        int request = ++latestRequest;
+        String text = searchField.getText().trim();
+        new SwingWorker<List<T>, Void>() {
+            @Override
+            protected List<T> doInBackground() {
+                return query.find(text, limit);
+            }
+
+            @Override
+            protected void done() {
+                if (request != latestRequest) {
+                    return; // A newer search was started meanwhile
+                }
+                List<T> matches;
+                try {
+                    matches = get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    output.accept("Search for " + noun + "s failed: " + e.getCause().getMessage());
+                    return;
+                }
+                List<String> items = new ArrayList<>(matches.size());
+                for (T entity : matches) {
+                    items.add(display.apply(entity));
+                }
+                model.setItems(items);
+                if (report) {
+                    output.accept(matches.isEmpty() ? "No " + noun + "s found for: " + text
+                                                    : matches.size() + " " + noun + "(s) found for: " + text);
+                }
+                if (fromTyping && !items.isEmpty() && searchField.hasFocus() && combo.isShowing()) {
+                    combo.showPopup();
+                }
+            }
+        }.execute();
+    }
+
+    /** Combo model holding only the current matches; replaced as a whole when a search completes. */
+    private static final class ResultsModel extends AbstractListModel<String> implements ComboBoxModel<String> {
+        private static final long serialVersionUID = 1L;
+        private List<String> items = new ArrayList<>();
+        private Object selected;
+
+        void setItems(List<String> newItems) {
+            int oldSize = items.size();
+            items = newItems;
+            if (oldSize > 0) {
+                fireIntervalRemoved(this, 0, oldSize - 1);
+            }
+            if (!items.isEmpty()) {
+                fireIntervalAdded(this, 0, items.size() - 1);
+            }
+            // Keep the selection if it is still among the matches, otherwise select the best match
+            setSelectedItem(items.contains(selected) ? selected : (items.isEmpty() ? null : items.get(0)));
+        }
+
+        @Override
+        public void setSelectedItem(Object item) {
+            selected = item;
+            fireContentsChanged(this, -1, -1);
+        }
+
+        @Override
+        public Object getSelectedItem() {
+            return selected;
+        }
+
+        @Override
+        public int getSize() {
+            return items.size();
+        }
+
+        @Override
+        public String getElementAt(int index) {
+            return items.get(index);
+        }
+    }
+}
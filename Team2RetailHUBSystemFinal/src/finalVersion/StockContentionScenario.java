@@ -0,0 +1,102 @@
+package finalVersion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Έλεγχος υπερπώλησης υπό ανταγωνισμό: πολλά νήματα κάνουν ταυτόχρονα reserve/tryReserve/unreserve/
+// addStock/removeStock στα ίδια λίγα προϊόντα. Κάθε νήμα μετράει πόσα τεμάχια έχει δεσμεύσει. Στο τέλος
+// για κάθε προϊόν πρέπει 0 <= δεσμευμένο <= συνολικό, και το δεσμευμένο να ισούται με όσα νομίζουν τα νήματα
+// ότι κρατούν. Εκτέλεση: java finalVersion.StockContentionScenario [νήματα] [λειτουργίες ανά νήμα]
+class StockContentionScenario {
+    private static final int PRODUCTS = 4;
+    private static final int INITIAL_STOCK = 1_000;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        EventLog.setLevel(EventLog.Level.WARN); // Χωρίς μήνυμα ανά λειτουργία αποθέματος
+
+        Product[] products = new Product[PRODUCTS];
+        for (int i = 0; i < PRODUCTS; i++) {
+            products[i] = new Product(i + 1, "Προϊόν " + (i + 1), 1.0, INITIAL_STOCK);
+        }
+
+        System.out.println("--- Έλεγχος υπερπώλησης: " + threads + " νήματα x " + operations + " λειτουργίες ---");
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            results.add(pool.submit(() -> {
+                start.await();
+                return run(products, operations, new Random(seed));
+            }));
+        }
+        start.countDown();
+
+        long[] held = new long[PRODUCTS];
+        for (Future<long[]> result : results) {
+            long[] threadHeld = result.get();
+            for (int i = 0; i < PRODUCTS; i++) {
+                held[i] += threadHeld[i];
+            }
+        }
+        pool.shutdown();
+
+        boolean ok = true;
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product p = products[i];
+            boolean valid = p.getReservedQuantity() >= 0 && p.getReservedQuantity() <= p.getQuantity()
+                            && p.getReservedQuantity() == held[i];
+            ok &= valid;
+            System.out.println(p + " | δεσμευμένα κατά τα νήματα: " + held[i] + (valid ? "" : "  <-- ΣΦΑΛΜΑ"));
+        }
+        if (!ok) {
+            throw new IllegalStateException("Το απόθεμα δεν είναι συνεπές μετά τις ταυτόχρονες λειτουργίες.");
+        }
+        System.out.println("Κανένα προϊόν δεν υπερπωλήθηκε.");
+    }
+
+    // Οι λειτουργίες ενός νήματος. Επιστρέφει τα τεμάχια που κρατά ακόμη δεσμευμένα, ανά προϊόν.
+    private static long[] run(Product[] products, int operations, Random random) {
+        long[] held = new long[products.length];
+        for (int n = 0; n < operations; n++) {
+            int i = random.nextInt(products.length);
+            Product p = products[i];
+            int qty = 1 + random.nextInt(5);
+            switch (random.nextInt(6)) {
+                case 0:
+                    held[i] += p.reserve(qty);
+                    break;
+                case 1:
+                    if (p.tryReserve(qty)) {
+                        held[i] += qty;
+                    }
+                    break;
+                case 2:
+                case 3:
+                    // Αποδεσμεύουμε μόνο ό,τι έχει δεσμεύσει το ίδιο το νήμα
+                    int release = (int) Math.min(qty, held[i]);
+                    if (release > 0) {
+                        held[i] -= p.unreserve(release);
+                    }
+                    break;
+                case 4:
+                    p.addStock(qty);
+                    break;
+                default:
+                    p.removeStock(qty); // Μόνο από το μη δεσμευμένο απόθεμα
+                    break;
+            }
+            if (p.getAvailableQuantity() < 0) {
+                throw new IllegalStateException("Αρνητικό διαθέσιμο απόθεμα για το " + p.getName());
+            }
+        }
+        return held;
+    }
+}
@@ -0,0 +1,24 @@
+package finalVersion;
+
+// Έλεγχος μιας μακροσκελούς λειτουργίας από αυτόν που την ξεκίνησε (π.χ. το GUI):
+// η λειτουργία ελέγχει περιοδικά αν ζητήθηκε ακύρωση και αναφέρει την πρόοδό της.
+// Η ακύρωση είναι συνεργατική: η λειτουργία σταματά σε σημείο όπου τα δεδομένα είναι συνεπή.
+public interface TaskControl {
+
+    // Για κλήσεις χωρίς ακύρωση/πρόοδο
+    TaskControl NONE = new TaskControl() {
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public void progress(int done, int total) {
+        }
+    };
+
+    boolean isCancelled();
+
+    // done από total βήματα (total <= 0 αν δεν είναι γνωστό)
+    void progress(int done, int total);
+}
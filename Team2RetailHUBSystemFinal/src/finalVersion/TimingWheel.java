@@ -0,0 +1,111 @@
+package finalVersion;
+
+import java.util.List;
+
+// Hashed timing wheel (Varghese & Lauck): ένας κυκλικός πίνακας με κουβάδες, έναν ανά tick.
+// Κάθε χρονομετρητής μπαίνει στον κουβά του tick λήξης του (tick & mask), σε διπλά συνδεδεμένη λίστα μέσα
+// στον ίδιο τον χρονομετρητή, οπότε η προσθήκη και η ακύρωση είναι O(1) χωρίς καμία επιπλέον δέσμευση μνήμης.
+// Σε κάθε tick εξετάζεται μόνο ο κουβάς του: οι λήξεις πέρα από μία περιστροφή μένουν στον κουβά
+// και ξαναεξετάζονται στην επόμενη. Δεν είναι thread-safe: τον προστατεύει ο κάτοχός του (βλ. ReservationHolds).
+class TimingWheel {
+
+    // Κόμβος του τροχού (ο κάτοχος τον επεκτείνει με τα δικά του δεδομένα)
+    static class Timer {
+        private long deadline;      // Tick λήξης
+        private Timer prev;
+        private Timer next;
+        private int bucket = -1;    // -1: δεν είναι στον τροχό
+
+        boolean isScheduled() {
+            return bucket >= 0;
+        }
+    }
+
+    private final Timer[] buckets;
+    private final int mask;
+    private long currentTick;       // Το τελευταίο tick που εξετάστηκε
+    private int size;
+
+    TimingWheel(int wheelSize) {
+        if (wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Το μέγεθος του τροχού πρέπει να είναι θετική δύναμη του 2.");
+        }
+        this.buckets = new Timer[wheelSize];
+        this.mask = wheelSize - 1;
+    }
+
+    long currentTick() { return currentTick; }
+    int size() { return size; }
+
+    // O(1). Ένα tick που έχει ήδη περάσει γίνεται το επόμενο, ώστε να λήξει στην επόμενη προώθηση.
+    void schedule(Timer timer, long deadlineTick) {
+        if (timer.isScheduled()) {
+            throw new IllegalStateException("Ο χρονομετρητής είναι ήδη στον τροχό.");
+        }
+        timer.deadline = Math.max(deadlineTick, currentTick + 1);
+        int index = (int) (timer.deadline & mask);
+        timer.bucket = index;
+        timer.prev = null;
+        timer.next = buckets[index];
+        if (timer.next != null) {
+            timer.next.prev = timer;
+        }
+        buckets[index] = timer;
+        size++;
+    }
+
+    // O(1). Επιστρέφει false αν ο χρονομετρητής δεν ήταν στον τροχό (έληξε ή ακυρώθηκε ήδη).
+    boolean cancel(Timer timer) {
+        if (!timer.isScheduled()) {
+            return false;
+        }
+        unlink(timer);
+        return true;
+    }
+
+    // Προχωρά τον τροχό έως και το tick και προσθέτει στη expired όσους χρονομετρητές έληξαν.
+    // Αν πέρασε πάνω από μία περιστροφή (π.χ. καθυστέρησε το νήμα), κάθε κουβάς εξετάζεται μία φορά.
+    void advanceTo(long tick, List<Timer> expired) {
+        if (tick <= currentTick) {
+            return;
+        }
+        long steps = Math.min(tick - currentTick, buckets.length);
+        for (long t = currentTick + 1; t <= currentTick + steps; t++) {
+            Timer timer = buckets[(int) (t & mask)];
+            while (timer != null) {
+                Timer next = timer.next;
+                if (timer.deadline <= tick) {
+                    unlink(timer);
+                    expired.add(timer);
+                }
+                timer = next;
+            }
+        }
+        currentTick = tick;
+    }
+
+    // Αφαιρεί όλους τους χρονομετρητές από τον τροχό (χωρίς να λήξουν) και τους προσθέτει στη removed
+    void drainTo(List<Timer> removed) {
+        for (int i = 0; i < buckets.length; i++) {
+            while (buckets[i] != null) {
+                removed.add(buckets[i]);
+                unlink(buckets[i]);
+            }
+        }
+    }
+
+    private void unlink(Timer timer) {
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else {
+            buckets[timer.bucket] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+        timer.bucket = -1;
+        size--;
+    }
+}